@@ -0,0 +1,57 @@
+package com.example.demo;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ejecucion de entrenamiento para generar el archivo CDS del perfil
+ * {@code prod}: con {@code cds.training.enabled=true} la aplicacion llama a
+ * los endpoints de {@code /api} (casos validos e invalidos) para cargar las
+ * clases del camino caliente. Al terminar el arranque
+ * {@link SpringBootValidHeadContentTypeApplication#main(String[])} cierra el
+ * contexto y la JVM sale escribiendo el archivo CDS.
+ */
+@Component
+@ConditionalOnProperty(name = "cds.training.enabled", havingValue = "true")
+public class CdsTrainingRun implements ApplicationListener<ApplicationReadyEvent> {
+
+	private static final String[][] CALLS = {
+			{ "/api/content-type-value", "application/custom-type" },
+			{ "/api/content-type-value", MediaType.APPLICATION_JSON_VALUE },
+			{ "/api/content-type-not-value", MediaType.APPLICATION_JSON_VALUE },
+			{ "/api/content-type-not-value", "application/custom-type; charset=UTF-8" },
+			{ "/api/batch", "application/x-ndjson" },
+			{ "/api/upload", "multipart/form-data; boundary=cds" } };
+
+	@Override
+	public void onApplicationEvent(ApplicationReadyEvent event) {
+		int port = ((WebServerApplicationContext) event.getApplicationContext()).getWebServer().getPort();
+		HttpClient client = HttpClient.newHttpClient();
+		try {
+			for (String[] call : CALLS) {
+				HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + call[0]))
+						.header(HttpHeaders.CONTENT_TYPE, call[1])
+						.POST(HttpRequest.BodyPublishers.ofString("{\"dato\":\"ejemplo\"}"))
+						.build();
+				client.send(request, HttpResponse.BodyHandlers.discarding());
+			}
+		} catch (IOException ex) {
+			throw new IllegalStateException("La ejecucion de entrenamiento CDS ha fallado", ex);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("La ejecucion de entrenamiento CDS se ha interrumpido", ex);
+		}
+	}
+
+}
@@ -4,13 +4,17 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
 
 @SpringBootApplication
 @EnableAutoConfiguration(exclude = {DataSourceAutoConfiguration.class})
 public class SpringBootValidHeadContentTypeApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(SpringBootValidHeadContentTypeApplication.class, args);
+		ConfigurableApplicationContext context = SpringApplication.run(SpringBootValidHeadContentTypeApplication.class,
+				args);
+		// La ejecucion de entrenamiento CDS termina en cuanto la aplicacion esta lista
+		context.getBeanProvider(CdsTrainingRun.class).ifAvailable(training -> SpringApplication.exit(context));
 	}
 
 }
@@ -0,0 +1,48 @@
+package com.example.demo.config;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Pool de buffers de tamano fijo, con el mismo esquema sin cerrojos que
+ * {@link MacPool}: si todos los huecos estan ocupados se crea un buffer nuevo
+ * y los que no caben al devolverlos se descartan.
+ */
+public final class BufferPool {
+
+	private final int bufferSize;
+
+	private final AtomicReferenceArray<byte[]> slots;
+
+	public BufferPool(int bufferSize, int size) {
+		this.bufferSize = bufferSize;
+		this.slots = new AtomicReferenceArray<>(size);
+	}
+
+	public byte[] acquire() {
+		int start = (int) (Thread.currentThread().getId() % slots.length());
+		for (int i = 0; i < slots.length(); i++) {
+			byte[] buffer = slots.getAndSet((start + i) % slots.length(), null);
+			if (buffer != null) {
+				return buffer;
+			}
+		}
+		return new byte[bufferSize];
+	}
+
+	public void release(byte[] buffer) {
+		if (buffer.length != bufferSize) {
+			return;
+		}
+		int start = (int) (Thread.currentThread().getId() % slots.length());
+		for (int i = 0; i < slots.length(); i++) {
+			if (slots.compareAndSet((start + i) % slots.length(), null, buffer)) {
+				return;
+			}
+		}
+	}
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+}
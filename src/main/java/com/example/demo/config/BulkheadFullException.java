@@ -0,0 +1,11 @@
+package com.example.demo.config;
+
+public class BulkheadFullException extends RuntimeException {
+
+	private static final long serialVersionUID = -2630513129440398207L;
+
+	public BulkheadFullException(String message) {
+		super(message);
+	}
+
+}
@@ -0,0 +1,119 @@
+package com.example.demo.config;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Indice de {@link Bulkhead} por handler, construido al arrancar igual que
+ * {@link ContentTypeRuleRegistry}. El permiso adquirido se guarda como
+ * atributo de la peticion para liberarlo en {@code afterCompletion}, tambien
+ * cuando la peticion termina en un dispatch ASYNC.
+ * <p>
+ * Publica los gauges {@code http.server.bulkhead.concurrent} y
+ * {@code http.server.bulkhead.max} con el tag {@code endpoint}.
+ */
+@Component
+public class BulkheadRegistry implements SmartInitializingSingleton {
+
+	static final String PERMIT_ATTRIBUTE = BulkheadRegistry.class.getName() + ".PERMIT";
+
+	private final ApplicationContext applicationContext;
+
+	private final ObjectProvider<MeterRegistry> meterRegistry;
+
+	private volatile Map<Method, EndpointBulkhead> bulkheads = Map.of();
+
+	public BulkheadRegistry(ApplicationContext applicationContext, ObjectProvider<MeterRegistry> meterRegistry) {
+		this.applicationContext = applicationContext;
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		Map<Method, EndpointBulkhead> compiled = new HashMap<>();
+		List<String> errors = new ArrayList<>();
+		for (RequestMappingHandlerMapping mapping : applicationContext
+				.getBeansOfType(RequestMappingHandlerMapping.class).values()) {
+			for (HandlerMethod handlerMethod : mapping.getHandlerMethods().values()) {
+				Bulkhead annotation = handlerMethod.getMethodAnnotation(Bulkhead.class);
+				Method method = handlerMethod.getMethod();
+				if (annotation == null || compiled.containsKey(method)) {
+					continue;
+				}
+				if (annotation.maxConcurrent() <= 0) {
+					errors.add(handlerMethod + ": maxConcurrent debe ser mayor que 0");
+					continue;
+				}
+				String name = method.getDeclaringClass().getSimpleName() + "#" + method.getName();
+				compiled.put(method, new EndpointBulkhead(name, annotation.maxConcurrent()));
+			}
+		}
+		if (!errors.isEmpty()) {
+			throw new IllegalStateException("Declaraciones de @Bulkhead inválidas:\n  " + String.join("\n  ", errors));
+		}
+		meterRegistry.ifAvailable(registry -> compiled.values().forEach(bulkhead -> registerGauges(registry, bulkhead)));
+		// El Method de la peticion es el registrado: HashMap compara la referencia antes de llamar a equals
+		this.bulkheads = Collections.unmodifiableMap(compiled);
+	}
+
+	private static void registerGauges(MeterRegistry registry, EndpointBulkhead bulkhead) {
+		Gauge.builder("http.server.bulkhead.concurrent", bulkhead, EndpointBulkhead::getInFlight)
+				.tag("endpoint", bulkhead.getName())
+				.description("Peticiones en curso del endpoint")
+				.register(registry);
+		Gauge.builder("http.server.bulkhead.max", bulkhead, EndpointBulkhead::getMaxConcurrent)
+				.tag("endpoint", bulkhead.getName())
+				.description("Peticiones concurrentes permitidas en el endpoint")
+				.register(registry);
+	}
+
+	/**
+	 * Adquiere un permiso del bulkhead del metodo, si lo tiene, o lanza
+	 * {@link BulkheadFullException} si esta saturado. No hace nada si la
+	 * peticion ya tiene su permiso (dispatch ASYNC).
+	 */
+	public void acquire(HttpServletRequest request, Method method) {
+		EndpointBulkhead bulkhead = method != null ? bulkheads.get(method) : null;
+		if (bulkhead == null || request.getAttribute(PERMIT_ATTRIBUTE) != null) {
+			return;
+		}
+		if (!bulkhead.tryAcquire()) {
+			throw new BulkheadFullException(bulkhead.getMessage());
+		}
+		request.setAttribute(PERMIT_ATTRIBUTE, bulkhead);
+	}
+
+	/**
+	 * Libera el permiso que la peticion hubiera adquirido.
+	 */
+	public void release(HttpServletRequest request) {
+		if (bulkheads.isEmpty()) {
+			return;
+		}
+		if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof EndpointBulkhead bulkhead) {
+			request.removeAttribute(PERMIT_ATTRIBUTE);
+			bulkhead.release();
+		}
+	}
+
+	public Map<Method, EndpointBulkhead> getBulkheads() {
+		return bulkheads;
+	}
+
+}
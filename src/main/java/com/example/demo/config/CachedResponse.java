@@ -0,0 +1,53 @@
+package com.example.demo.config;
+
+import java.io.IOException;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Respuesta completada de una peticion idempotente, ya serializada para
+ * repetirla tal cual.
+ */
+public final class CachedResponse {
+
+	static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+	private final int status;
+
+	private final String contentType;
+
+	private final byte[] body;
+
+	public CachedResponse(int status, String contentType, byte[] body) {
+		this.status = status;
+		this.contentType = contentType;
+		this.body = body;
+	}
+
+	void writeTo(HttpServletResponse response) throws IOException {
+		response.setStatus(status);
+		if (contentType != null) {
+			response.setContentType(contentType);
+		}
+		response.setHeader(REPLAYED_HEADER, "true");
+		response.setContentLength(body.length);
+		response.getOutputStream().write(body);
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	int getContentTypeLength() {
+		return contentType != null ? 2 * contentType.length() : 0;
+	}
+
+	public byte[] getBody() {
+		return body;
+	}
+
+}
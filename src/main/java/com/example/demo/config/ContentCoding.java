@@ -0,0 +1,56 @@
+package com.example.demo.config;
+
+import java.util.Locale;
+
+/**
+ * Codificaciones de contenido ({@code Content-Encoding}) que se pueden
+ * permitir en {@link ValidContentType#allowedEncodings()}.
+ */
+public enum ContentCoding {
+
+	IDENTITY, GZIP, DEFLATE;
+
+	/**
+	 * Interpreta el valor del header; sin header la codificacion es
+	 * {@link #IDENTITY}. Devuelve {@code null} si no se reconoce o si se
+	 * declara mas de una codificacion.
+	 */
+	static ContentCoding parse(String header) {
+		if (header == null) {
+			return IDENTITY;
+		}
+		String coding = header.trim();
+		if (coding.equalsIgnoreCase("gzip") || coding.equalsIgnoreCase("x-gzip")) {
+			return GZIP;
+		}
+		if (coding.equalsIgnoreCase("deflate")) {
+			return DEFLATE;
+		}
+		if (coding.isEmpty() || coding.equalsIgnoreCase("identity")) {
+			return IDENTITY;
+		}
+		return null;
+	}
+
+	/**
+	 * Convierte una codificacion declarada en la anotacion; falla si no se
+	 * reconoce.
+	 */
+	static ContentCoding compile(String declared) {
+		ContentCoding coding = declared != null && !declared.isBlank() ? parse(declared) : null;
+		if (coding == null) {
+			throw new IllegalArgumentException("El Content-Encoding declarado '" + declared + "' no está soportado");
+		}
+		return coding;
+	}
+
+	int bit() {
+		return 1 << ordinal();
+	}
+
+	@Override
+	public String toString() {
+		return name().toLowerCase(Locale.ROOT);
+	}
+
+}
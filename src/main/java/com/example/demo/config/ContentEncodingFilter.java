@@ -0,0 +1,295 @@
+package com.example.demo.config;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.zip.Inflater;
+
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Descomprime el cuerpo de las peticiones cuyo Content-Encoding ha aceptado
+ * una regla con {@code allowedEncodings}. Las peticiones con Content-Encoding
+ * se envuelven al entrar, pero el cuerpo solo se descomprime si
+ * {@link ContentTypeInterceptor} (o {@link ContentTypeValve}) ha marcado la
+ * peticion con {@link #DECODE_ATTRIBUTE}; el resto se lee tal cual.
+ * <p>
+ * Limites: {@code content-encoding.max-decompressed-size} (10MB) y
+ * {@code content-encoding.max-ratio} (100). Al superarlos la lectura se corta
+ * con {@link DecompressionLimitException} (413).
+ * <p>
+ * Con lectura no bloqueante ({@code setReadListener}) el cuerpo comprimido se
+ * recibe entero, sin bloquear, antes de descomprimirlo: {@code isReady()}
+ * devuelve {@code false} hasta entonces.
+ */
+@Component
+public class ContentEncodingFilter extends OncePerRequestFilter {
+
+	static final String DECODE_ATTRIBUTE = ContentEncodingFilter.class.getName() + ".DECODE";
+
+	private static final int INPUT_BUFFER_SIZE = 8 * 1024;
+
+	private final long maxBytes;
+
+	private final int maxRatio;
+
+	private final InflaterPool gzipInflaters;
+
+	private final InflaterPool deflateInflaters;
+
+	private final BufferPool inputBuffers;
+
+	public ContentEncodingFilter(Environment environment) {
+		this.maxBytes = environment.getProperty("content-encoding.max-decompressed-size", DataSize.class,
+				DataSize.ofMegabytes(10)).toBytes();
+		this.maxRatio = environment.getProperty("content-encoding.max-ratio", Integer.class, 100);
+		int poolSize = Runtime.getRuntime().availableProcessors() * 2;
+		this.gzipInflaters = new InflaterPool(true, poolSize);
+		this.deflateInflaters = new InflaterPool(false, poolSize);
+		this.inputBuffers = new BufferPool(INPUT_BUFFER_SIZE, poolSize);
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		if (request.getHeader(HttpHeaders.CONTENT_ENCODING) == null) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+		DecodingRequest decodingRequest = new DecodingRequest(request);
+		try {
+			filterChain.doFilter(decodingRequest, response);
+		} finally {
+			decodingRequest.release();
+		}
+	}
+
+	InflatingInputStream inflating(InputStream in, ContentCoding coding) {
+		InflaterPool pool = coding == ContentCoding.GZIP ? gzipInflaters : deflateInflaters;
+		Inflater inflater = pool.acquire();
+		byte[] input = inputBuffers.acquire();
+		return new InflatingInputStream(in, coding, inflater, input, maxBytes, maxRatio, () -> {
+			pool.release(inflater);
+			inputBuffers.release(input);
+		});
+	}
+
+	/**
+	 * Peticion que, una vez marcada para descomprimir, devuelve el cuerpo
+	 * descomprimido y oculta los headers Content-Encoding y Content-Length del
+	 * cuerpo original.
+	 */
+	private final class DecodingRequest extends HttpServletRequestWrapper {
+
+		private DecodingInputStream decoded;
+
+		private BufferedReader reader;
+
+		DecodingRequest(HttpServletRequest request) {
+			super(request);
+		}
+
+		private boolean isDecoding() {
+			return getAttribute(DECODE_ATTRIBUTE) != null;
+		}
+
+		@Override
+		public ServletInputStream getInputStream() throws IOException {
+			if (!(getAttribute(DECODE_ATTRIBUTE) instanceof ContentCoding coding)) {
+				return super.getInputStream();
+			}
+			if (decoded == null) {
+				decoded = new DecodingInputStream(super.getInputStream(), coding);
+			}
+			return decoded;
+		}
+
+		@Override
+		public BufferedReader getReader() throws IOException {
+			if (!isDecoding()) {
+				return super.getReader();
+			}
+			if (reader == null) {
+				String encoding = getCharacterEncoding();
+				reader = new BufferedReader(new InputStreamReader(getInputStream(),
+						encoding != null ? encoding : StandardCharsets.ISO_8859_1.name()));
+			}
+			return reader;
+		}
+
+		@Override
+		public String getHeader(String name) {
+			return isDecoding() && isBodyHeader(name) ? null : super.getHeader(name);
+		}
+
+		@Override
+		public Enumeration<String> getHeaders(String name) {
+			return isDecoding() && isBodyHeader(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+		}
+
+		@Override
+		public Enumeration<String> getHeaderNames() {
+			if (!isDecoding()) {
+				return super.getHeaderNames();
+			}
+			return Collections.enumeration(Collections.list(super.getHeaderNames()).stream()
+					.filter(name -> !isBodyHeader(name))
+					.toList());
+		}
+
+		@Override
+		public int getContentLength() {
+			return isDecoding() ? -1 : super.getContentLength();
+		}
+
+		@Override
+		public long getContentLengthLong() {
+			return isDecoding() ? -1 : super.getContentLengthLong();
+		}
+
+		void release() {
+			if (decoded != null) {
+				decoded.release();
+			}
+		}
+
+		private static boolean isBodyHeader(String name) {
+			return HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name)
+					|| HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name);
+		}
+
+	}
+
+	private final class DecodingInputStream extends ServletInputStream {
+
+		private final ServletInputStream raw;
+
+		private final ContentCoding coding;
+
+		private InflatingInputStream inflating;
+
+		/** Cuerpo comprimido recibido en modo no bloqueante, o {@code null}. */
+		private ByteArrayOutputStream compressed;
+
+		private boolean received;
+
+		private boolean finished;
+
+		DecodingInputStream(ServletInputStream raw, ContentCoding coding) {
+			this.raw = raw;
+			this.coding = coding;
+		}
+
+		private InflatingInputStream inflating() {
+			if (inflating == null) {
+				inflating = ContentEncodingFilter.this.inflating(raw, coding);
+			}
+			return inflating;
+		}
+
+		@Override
+		public int read() throws IOException {
+			checkReady();
+			int b = inflating().read();
+			finished = b == -1;
+			return b;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			checkReady();
+			int read = inflating().read(buffer, offset, length);
+			finished = read == -1;
+			return read;
+		}
+
+		private void checkReady() {
+			if (!isReady()) {
+				throw new IllegalStateException("El cuerpo comprimido aun no se ha recibido; consulte isReady()");
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			release();
+			raw.close();
+		}
+
+		@Override
+		public boolean isFinished() {
+			return finished;
+		}
+
+		@Override
+		public boolean isReady() {
+			return compressed == null || received;
+		}
+
+		@Override
+		public void setReadListener(ReadListener readListener) {
+			if (inflating != null || compressed != null) {
+				throw new IllegalStateException("La lectura no bloqueante debe empezar antes de leer el cuerpo");
+			}
+			compressed = new ByteArrayOutputStream();
+			raw.setReadListener(new ReadListener() {
+
+				@Override
+				public void onDataAvailable() throws IOException {
+					byte[] chunk = new byte[INPUT_BUFFER_SIZE];
+					while (raw.isReady()) {
+						int read = raw.read(chunk);
+						if (read == -1) {
+							return;
+						}
+						if (compressed.size() + read > maxBytes) {
+							throw new DecompressionLimitException("El cuerpo comprimido supera el máximo de "
+									+ maxBytes + " bytes");
+						}
+						compressed.write(chunk, 0, read);
+					}
+				}
+
+				@Override
+				public void onAllDataRead() throws IOException {
+					inflating = ContentEncodingFilter.this.inflating(new ByteArrayInputStream(compressed.toByteArray()),
+							coding);
+					received = true;
+					readListener.onDataAvailable();
+					readListener.onAllDataRead();
+				}
+
+				@Override
+				public void onError(Throwable throwable) {
+					readListener.onError(throwable);
+				}
+
+			});
+		}
+
+		void release() {
+			if (inflating != null) {
+				inflating.release();
+			}
+		}
+
+	}
+
+}
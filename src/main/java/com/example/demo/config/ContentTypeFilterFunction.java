@@ -0,0 +1,48 @@
+package com.example.demo.config;
+
+import org.springframework.web.servlet.function.HandlerFilterFunction;
+import org.springframework.web.servlet.function.HandlerFunction;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+/**
+ * Validacion de Content-Type para endpoints funcionales ({@code RouterFunction}),
+ * que no pasan por {@link ContentTypeInterceptor}. Usa la misma
+ * {@link ContentTypeRule} precompilada y responde 400 directamente, sin lanzar
+ * {@link InvalidContentTypeException}.
+ *
+ * <pre>
+ * route().POST("/api/functional/content-type-value", handler)
+ *     .filter(ContentTypeFilterFunction.validContentType("application/custom-type"))
+ * </pre>
+ */
+public final class ContentTypeFilterFunction implements HandlerFilterFunction<ServerResponse, ServerResponse> {
+
+	private final ContentTypeRule rule;
+
+	private ContentTypeFilterFunction(ContentTypeRule rule) {
+		this.rule = rule;
+	}
+
+	public static ContentTypeFilterFunction validContentType(String mediaType) {
+		return new ContentTypeFilterFunction(ContentTypeRule.compile(mediaType));
+	}
+
+	public static ContentTypeFilterFunction validContentType(ContentTypeRule rule) {
+		return new ContentTypeFilterFunction(rule);
+	}
+
+	@Override
+	public ServerResponse filter(ServerRequest request, HandlerFunction<ServerResponse> next) throws Exception {
+		if (rule.appliesTo(request.servletRequest())) {
+			String error = ContentTypeHeaderMatcher.check(rule, request.servletRequest());
+			if (rule.isShadow()) {
+				rule.getShadowStats().record(error, request.servletRequest());
+			} else if (error != null) {
+				return ServerResponse.badRequest().body(error);
+			}
+		}
+		return next.handle(request);
+	}
+
+}
@@ -0,0 +1,45 @@
+package com.example.demo.config;
+
+import org.springframework.http.HttpHeaders;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Punto unico para validar los headers Content-Type y Content-Encoding de una
+ * peticion en la capa de servlets. {@link ContentTypeValve} compara antes los
+ * bytes del header con {@link TomcatContentTypeMatcher}.
+ */
+final class ContentTypeHeaderMatcher {
+
+	private ContentTypeHeaderMatcher() {
+	}
+
+	/**
+	 * Devuelve {@code null} si el header es valido o el mensaje de error de la
+	 * regla en caso contrario.
+	 */
+	static String check(ContentTypeRule rule, HttpServletRequest request) {
+		return rule.check(request.getHeader(HttpHeaders.CONTENT_TYPE));
+	}
+
+	/**
+	 * Valida el header Content-Encoding si la regla declara
+	 * {@code allowedEncodings}. Si la codificacion esta permitida y no es
+	 * {@code identity}, marca la peticion para que {@link ContentEncodingFilter}
+	 * descomprima el cuerpo.
+	 */
+	static String checkEncoding(ContentTypeRule rule, HttpServletRequest request) {
+		if (!rule.validatesEncoding()) {
+			return null;
+		}
+		ContentCoding coding = ContentCoding.parse(request.getHeader(HttpHeaders.CONTENT_ENCODING));
+		if (coding == null || !rule.allows(coding)) {
+			return ContentTypeRule.ENCODING_MESSAGE;
+		}
+		if (coding != ContentCoding.IDENTITY) {
+			request.setAttribute(ContentEncodingFilter.DECODE_ATTRIBUTE, coding);
+		}
+		return null;
+	}
+
+}
@@ -1,48 +1,130 @@
 package com.example.demo.config;
 
-import org.springframework.http.HttpHeaders;
+import java.io.IOException;
+
 import org.springframework.stereotype.Component;
 import org.springframework.web.method.HandlerMethod;
-import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 @Component
-public class ContentTypeInterceptor implements HandlerInterceptor {
+public class ContentTypeInterceptor implements AsyncHandlerInterceptor {
+
+    /**
+     * Marca de peticion ya validada (en el dispatch REQUEST inicial o por
+     * {@link ContentTypeValve}); los dispatch ASYNC y ERROR posteriores de la
+     * misma peticion no se revalidan.
+     */
+    static final String VALIDATED_ATTRIBUTE = ContentTypeInterceptor.class.getName() + ".VALIDATED";
+
+    private final ContentTypeRuleRegistry ruleRegistry;
+
+    private final EndpointLatencyRecorder latencyRecorder;
+
+    private final BulkheadRegistry bulkheadRegistry;
+
+    private final IdempotencyRegistry idempotencyRegistry;
+
+    private final TrafficCaptureLog trafficCapture;
+
+    public ContentTypeInterceptor(ContentTypeRuleRegistry ruleRegistry, EndpointLatencyRecorder latencyRecorder,
+            BulkheadRegistry bulkheadRegistry, IdempotencyRegistry idempotencyRegistry,
+            TrafficCaptureLog trafficCapture) {
+        this.ruleRegistry = ruleRegistry;
+        this.latencyRecorder = latencyRecorder;
+        this.bulkheadRegistry = bulkheadRegistry;
+        this.idempotencyRegistry = idempotencyRegistry;
+        this.trafficCapture = trafficCapture;
+    }
 
-    private static final String EXPECTED_CONTENT_TYPE = "application/custom-type";
-    
     @Override
-    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, 
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
     		Object handler)
-            throws InvalidContentTypeException {
-        
-        if (handler instanceof HandlerMethod method) {
-            ValidContentType annotation = method.getMethodAnnotation(ValidContentType.class);
-
-            String expectedContentType = (annotation != null && !annotation.value().isEmpty()) 
-                    ? annotation.value() 
-                    : EXPECTED_CONTENT_TYPE;
+            throws InvalidContentTypeException, IOException {
 
-            String contentType = request.getHeader(HttpHeaders.CONTENT_TYPE);
-            if(contentType == null) {
-                throw new InvalidContentTypeException("El Content-Type es obligatorio");
+        if (handler instanceof HandlerMethod method) {
+            // El inicio del handler solo se guarda si la peticion llega a el; si preHandle la rechaza o responde
+            // un reintento, Spring no llama a afterCompletion y no debe quedar un inicio antiguo en el hilo
+            latencyRecorder.discardHandlerStart();
+            if (request.getAttribute(VALIDATED_ATTRIBUTE) == null) {
+                validateIfApplies(request, method);
             }
-            
-            String[] contentTypeParts = contentType.split(";");
-            if (contentTypeParts.length == 0 || contentTypeParts[0].trim().isEmpty()) {
-                throw new InvalidContentTypeException("El Content-Type es inválido");
+            // Los reintentos ya completados se responden sin consumir permisos del bulkhead
+            CachedResponse replay = idempotencyRegistry.begin(request, method.getMethod());
+            if (replay != null) {
+                replay.writeTo(response);
+                return false;
             }
-
-            String actualContentType = contentTypeParts[0].trim();
-            
-            if (!actualContentType.equals(expectedContentType)) {
-                throw new InvalidContentTypeException("El Content-Type esperado es " + expectedContentType);
+            // El permiso se adquiere tras validar para no consumirlo con peticiones rechazadas
+            try {
+                bulkheadRegistry.acquire(request, method.getMethod());
+            } catch (BulkheadFullException ex) {
+                idempotencyRegistry.finish(request, ex);
+                throw ex;
             }
-            
+            latencyRecorder.recordHandlerStart(method.getMethod(), System.nanoTime());
         }
         return true;
     }
 
+    private void validateIfApplies(HttpServletRequest request, HandlerMethod method) {
+        ContentTypeRule rule = resolveRule(request, method);
+        if (rule.appliesTo(request)) {
+            trafficCapture.record(request, method.getMethod());
+            long start = System.nanoTime();
+            ContentTypeValidationEvent event = ContentTypeValidationEvent.begin(method.getMethod());
+            String outcome = ContentTypeValidationEvent.REJECTED;
+            try {
+                outcome = validate(request, rule);
+                request.setAttribute(VALIDATED_ATTRIBUTE, Boolean.TRUE);
+            } finally {
+                latencyRecorder.recordPreHandle(method.getMethod(), start, System.nanoTime());
+                if (event != null) {
+                    event.complete(rule, outcome);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        if (handler instanceof HandlerMethod method) {
+            bulkheadRegistry.release(request);
+            idempotencyRegistry.finish(request, ex);
+            latencyRecorder.recordCompletion(request, method.getMethod(), System.nanoTime());
+        }
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+            Object handler) {
+        if (handler instanceof HandlerMethod method) {
+            latencyRecorder.recordAsyncStarted(request, method.getMethod());
+        }
+    }
+
+    private String validate(HttpServletRequest request, ContentTypeRule rule) {
+        String error = ContentTypeHeaderMatcher.check(rule, request);
+        if (error == null) {
+            error = ContentTypeHeaderMatcher.checkEncoding(rule, request);
+        }
+        if (rule.isShadow()) {
+            rule.getShadowStats().record(error, request);
+            return error != null ? ContentTypeValidationEvent.WOULD_REJECT : ContentTypeValidationEvent.ACCEPTED;
+        }
+        if (error != null) {
+            throw new InvalidContentTypeException(error);
+        }
+        return ContentTypeValidationEvent.ACCEPTED;
+    }
+
+    private ContentTypeRule resolveRule(HttpServletRequest request, HandlerMethod method) {
+        String tenant = ruleRegistry.hasTenantRules() ? request.getHeader(ContentTypeRuleRegistry.TENANT_HEADER) : null;
+        ContentTypeRule rule = ruleRegistry.getRule(method.getMethod(), tenant);
+        return rule != null ? rule : ruleRegistry.getLenientRule(method);
+    }
+
 }
@@ -0,0 +1,50 @@
+package com.example.demo.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Endpoint de Actuator ({@code /actuator/contenttypelatency}) con p50, p99 y
+ * maximo en microsegundos de la validacion y del handler por endpoint.
+ */
+@Component
+@Endpoint(id = "contenttypelatency")
+public class ContentTypeLatencyEndpoint {
+
+	private final EndpointLatencyRecorder latencyRecorder;
+
+	public ContentTypeLatencyEndpoint(EndpointLatencyRecorder latencyRecorder) {
+		this.latencyRecorder = latencyRecorder;
+	}
+
+	@ReadOperation
+	public Map<String, Map<String, Map<String, Object>>> latencies() {
+		Map<String, Map<String, Map<String, Object>>> report = new TreeMap<>();
+		for (EndpointLatencyRecorder.EndpointLatency latency : latencyRecorder.getLatencies().values()) {
+			Map<String, Map<String, Object>> phases = new LinkedHashMap<>();
+			phases.put("preHandle", summary(latency.getPreHandle()));
+			phases.put("handler", summary(latency.getHandler()));
+			report.put(latency.getName(), phases);
+		}
+		return report;
+	}
+
+	private static Map<String, Object> summary(LatencyHistogram histogram) {
+		Map<String, Object> summary = new LinkedHashMap<>();
+		summary.put("count", histogram.getCount());
+		summary.put("p50Micros", toMicros(histogram.getValueAtPercentile(50)));
+		summary.put("p99Micros", toMicros(histogram.getValueAtPercentile(99)));
+		summary.put("maxMicros", toMicros(histogram.getMax()));
+		return summary;
+	}
+
+	private static double toMicros(long nanos) {
+		return nanos / 1_000.0;
+	}
+
+}
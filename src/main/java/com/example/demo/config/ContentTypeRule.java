@@ -0,0 +1,479 @@
+package com.example.demo.config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.util.ServletRequestPathUtils;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Regla de Content-Type ya compilada: el media type esperado normalizado, el
+ * mensaje de error precalculado, los metodos HTTP a los que aplica como mascara
+ * de bits y los patrones de ruta ya parseados, de forma que en tiempo de
+ * peticion solo queda comparar.
+ * <p>
+ * Antes de interpretar el header se comprueban su longitud y su numero de
+ * parametros, de modo que el coste de validar un valor esta acotado por
+ * {@link ValidContentType#maxLength()} sea cual sea el valor recibido.
+ */
+public final class ContentTypeRule {
+
+	static final String DEFAULT_CONTENT_TYPE = "application/custom-type";
+
+	static final String MISSING_MESSAGE = "El Content-Type es obligatorio";
+
+	static final String INVALID_MESSAGE = "El Content-Type es inválido";
+
+	static final String ENCODING_MESSAGE = "El Content-Encoding no está permitido";
+
+	static final String PART_MESSAGE = "El Content-Type de una parte no está permitido";
+
+	static final String TOO_LONG_MESSAGE = "El Content-Type supera la longitud máxima";
+
+	static final String TOO_MANY_PARAMETERS_MESSAGE = "El Content-Type tiene demasiados parámetros";
+
+	static final int DEFAULT_MAX_LENGTH = 1024;
+
+	static final int DEFAULT_MAX_PARAMETERS = 8;
+
+	private static final byte[] MISSING_MESSAGE_BYTES = MISSING_MESSAGE.getBytes(StandardCharsets.UTF_8);
+
+	private static final byte[] INVALID_MESSAGE_BYTES = INVALID_MESSAGE.getBytes(StandardCharsets.UTF_8);
+
+	private static final byte[] ENCODING_MESSAGE_BYTES = ENCODING_MESSAGE.getBytes(StandardCharsets.UTF_8);
+
+	private static final byte[] TOO_LONG_MESSAGE_BYTES = TOO_LONG_MESSAGE.getBytes(StandardCharsets.UTF_8);
+
+	private static final byte[] TOO_MANY_PARAMETERS_MESSAGE_BYTES = TOO_MANY_PARAMETERS_MESSAGE
+			.getBytes(StandardCharsets.UTF_8);
+
+	private static final RequestMethod[] BODY_METHODS = { RequestMethod.POST, RequestMethod.PUT,
+			RequestMethod.PATCH };
+
+	private static final PathPattern[] NO_PATTERNS = {};
+
+	private static final String[] NO_PART_TYPES = {};
+
+	static final ContentTypeRule DEFAULT = new ContentTypeRule(DEFAULT_CONTENT_TYPE, methodMask(BODY_METHODS),
+			NO_PATTERNS, NO_PATTERNS, 0, NO_PART_TYPES, DEFAULT_MAX_LENGTH, DEFAULT_MAX_PARAMETERS, null);
+
+	private final String mediaType;
+
+	private final String message;
+
+	private final byte[] mediaTypeBytes;
+
+	private final byte[] messageBytes;
+
+	private final int methodMask;
+
+	private final PathPattern[] includePaths;
+
+	private final PathPattern[] excludePaths;
+
+	private final int encodingMask;
+
+	private final String[] partTypes;
+
+	private final int maxLength;
+
+	private final int maxParameters;
+
+	private final ShadowStats shadowStats;
+
+	private ContentTypeRule(String mediaType, int methodMask, PathPattern[] includePaths,
+			PathPattern[] excludePaths, int encodingMask, String[] partTypes, int maxLength, int maxParameters,
+			ShadowStats shadowStats) {
+		this.mediaType = mediaType;
+		this.message = "El Content-Type esperado es " + mediaType;
+		this.mediaTypeBytes = mediaType.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.US_ASCII);
+		this.messageBytes = message.getBytes(StandardCharsets.UTF_8);
+		this.methodMask = methodMask;
+		this.includePaths = includePaths;
+		this.excludePaths = excludePaths;
+		this.encodingMask = encodingMask;
+		this.partTypes = partTypes;
+		this.maxLength = maxLength;
+		this.maxParameters = maxParameters;
+		this.shadowStats = shadowStats;
+	}
+
+	/**
+	 * Compila una declaracion de {@link ValidContentType} validandola. Se usa al
+	 * arrancar la aplicacion, por lo que cualquier declaracion incorrecta
+	 * provoca un {@link IllegalArgumentException}.
+	 */
+	public static ContentTypeRule compile(ValidContentType annotation) {
+		String mediaType = compileMediaType(annotation.value());
+		if (annotation.maxLength() <= 0) {
+			throw new IllegalArgumentException("maxLength debe ser mayor que 0");
+		}
+		if (annotation.maxParameters() < 0) {
+			throw new IllegalArgumentException("maxParameters no puede ser negativo");
+		}
+		if (annotation.methods().length == 0) {
+			throw new IllegalArgumentException("methods debe incluir al menos un método HTTP");
+		}
+		return new ContentTypeRule(mediaType, methodMask(annotation.methods()),
+				parsePatterns(annotation.includePaths()), parsePatterns(annotation.excludePaths()),
+				encodingMask(annotation.allowedEncodings()), compilePartTypes(mediaType, annotation.partTypes()),
+				annotation.maxLength(), annotation.maxParameters(), shadowStats(annotation.mode()));
+	}
+
+	/**
+	 * Compila solo el media type, aplicable a los metodos HTTP con cuerpo y a
+	 * cualquier ruta.
+	 */
+	public static ContentTypeRule compile(String declared) {
+		return new ContentTypeRule(compileMediaType(declared), methodMask(BODY_METHODS), NO_PATTERNS, NO_PATTERNS, 0,
+				NO_PART_TYPES, DEFAULT_MAX_LENGTH, DEFAULT_MAX_PARAMETERS, null);
+	}
+
+	/**
+	 * Compila una regla con otro media type que conserva los metodos HTTP, las
+	 * rutas y el modo de esta, como las reglas propias de cada tenant. En modo
+	 * shadow comparte los contadores de esta, de modo que se publican como los
+	 * del endpoint.
+	 */
+	public ContentTypeRule withMediaType(String declared) {
+		String mediaType = compileMediaType(declared);
+		return new ContentTypeRule(mediaType, methodMask, includePaths, excludePaths, encodingMask,
+				compilePartTypes(mediaType, partTypes), maxLength, maxParameters, shadowStats);
+	}
+
+	/**
+	 * Igual que {@link #withMediaType(String)} con un media type que ya se
+	 * compilo y normalizo en otra instancia ({@link RuleSnapshotFile}), sin
+	 * volver a parsearlo.
+	 */
+	ContentTypeRule withCompiledMediaType(String mediaType) {
+		return new ContentTypeRule(mediaType, methodMask, includePaths, excludePaths, encodingMask, partTypes,
+				maxLength, maxParameters, shadowStats);
+	}
+
+	private static String compileMediaType(String declared) {
+		if (declared == null || declared.isBlank()) {
+			throw new IllegalArgumentException("El Content-Type declarado no puede estar vacío");
+		}
+		MediaType parsed;
+		try {
+			parsed = MediaType.parseMediaType(declared);
+		} catch (InvalidMediaTypeException ex) {
+			throw new IllegalArgumentException("El Content-Type declarado '" + declared + "' es inválido: "
+					+ ex.getMessage(), ex);
+		}
+		if (parsed.isWildcardType() || parsed.isWildcardSubtype()) {
+			throw new IllegalArgumentException("El Content-Type declarado '" + declared
+					+ "' no puede contener comodines");
+		}
+		if (!parsed.getParameters().isEmpty()) {
+			throw new IllegalArgumentException("El Content-Type declarado '" + declared
+					+ "' no puede contener parámetros");
+		}
+		return normalize(parsed.getType() + "/" + parsed.getSubtype());
+	}
+
+	private static String[] compilePartTypes(String mediaType, String[] declared) {
+		if (declared.length == 0) {
+			return NO_PART_TYPES;
+		}
+		if (!mediaType.startsWith("multipart/")) {
+			throw new IllegalArgumentException("partTypes solo se admite con un Content-Type multipart, no con '"
+					+ mediaType + "'");
+		}
+		String[] compiled = new String[declared.length];
+		for (int i = 0; i < declared.length; i++) {
+			compiled[i] = compileMediaType(declared[i]);
+		}
+		return compiled;
+	}
+
+	/**
+	 * Resuelve la regla de un handler que no se indexo al arrancar, manteniendo
+	 * el comportamiento historico: sin anotacion o con valor vacio se aplica el
+	 * Content-Type por defecto.
+	 */
+	public static ContentTypeRule lenient(ValidContentType annotation) {
+		if (annotation == null || annotation.value().isEmpty()) {
+			return DEFAULT;
+		}
+		int encodingMask = 0;
+		for (String encoding : annotation.allowedEncodings()) {
+			ContentCoding coding = ContentCoding.parse(encoding);
+			if (coding != null) {
+				encodingMask |= ContentCoding.IDENTITY.bit() | coding.bit();
+			}
+		}
+		String[] partTypes = annotation.partTypes();
+		String[] normalizedPartTypes = new String[partTypes.length];
+		for (int i = 0; i < partTypes.length; i++) {
+			normalizedPartTypes[i] = normalize(partTypes[i]);
+		}
+		// Los valores que compile rechazaria se sustituyen por los valores por defecto
+		int maxLength = annotation.maxLength() > 0 ? annotation.maxLength() : DEFAULT_MAX_LENGTH;
+		int maxParameters = annotation.maxParameters() >= 0 ? annotation.maxParameters() : DEFAULT_MAX_PARAMETERS;
+		RequestMethod[] methods = annotation.methods().length != 0 ? annotation.methods() : BODY_METHODS;
+		return new ContentTypeRule(annotation.value(), methodMask(methods), NO_PATTERNS, NO_PATTERNS, encodingMask,
+				normalizedPartTypes, maxLength, maxParameters, shadowStats(annotation.mode()));
+	}
+
+	private static ShadowStats shadowStats(ValidationMode mode) {
+		return mode == ValidationMode.SHADOW ? new ShadowStats() : null;
+	}
+
+	private static String normalize(String mediaType) {
+		return mediaType.trim().toLowerCase(Locale.ROOT);
+	}
+
+	static int methodMask(RequestMethod[] methods) {
+		int mask = 0;
+		for (RequestMethod method : methods) {
+			mask |= 1 << method.ordinal();
+		}
+		return mask;
+	}
+
+	/**
+	 * Mascara de las codificaciones permitidas; sin codificaciones declaradas
+	 * es 0 y el header Content-Encoding no se valida. {@code identity} siempre
+	 * se permite cuando se declara alguna.
+	 */
+	static int encodingMask(String[] encodings) {
+		if (encodings.length == 0) {
+			return 0;
+		}
+		int mask = ContentCoding.IDENTITY.bit();
+		for (String encoding : encodings) {
+			mask |= ContentCoding.compile(encoding).bit();
+		}
+		return mask;
+	}
+
+	/**
+	 * Bit del metodo HTTP; los metodos desconocidos activan todos los bits
+	 * para que la peticion se valide.
+	 */
+	static int methodBit(String method) {
+		if (method == null) {
+			return -1;
+		}
+		return switch (method) {
+			case "GET" -> 1 << RequestMethod.GET.ordinal();
+			case "HEAD" -> 1 << RequestMethod.HEAD.ordinal();
+			case "POST" -> 1 << RequestMethod.POST.ordinal();
+			case "PUT" -> 1 << RequestMethod.PUT.ordinal();
+			case "PATCH" -> 1 << RequestMethod.PATCH.ordinal();
+			case "DELETE" -> 1 << RequestMethod.DELETE.ordinal();
+			case "OPTIONS" -> 1 << RequestMethod.OPTIONS.ordinal();
+			case "TRACE" -> 1 << RequestMethod.TRACE.ordinal();
+			default -> -1;
+		};
+	}
+
+	private static PathPattern[] parsePatterns(String[] patterns) {
+		if (patterns.length == 0) {
+			return NO_PATTERNS;
+		}
+		PathPattern[] parsed = new PathPattern[patterns.length];
+		for (int i = 0; i < patterns.length; i++) {
+			parsed[i] = PathPatternParser.defaultInstance.parse(patterns[i]);
+		}
+		return parsed;
+	}
+
+	/**
+	 * Indica si la peticion debe validarse segun su metodo HTTP y su ruta.
+	 */
+	public boolean appliesTo(HttpServletRequest request) {
+		if ((methodMask & methodBit(request.getMethod())) == 0) {
+			return false;
+		}
+		if (includePaths.length == 0 && excludePaths.length == 0) {
+			return true;
+		}
+		PathContainer path = (ServletRequestPathUtils.hasParsedRequestPath(request)
+				? ServletRequestPathUtils.getParsedRequestPath(request)
+				: ServletRequestPathUtils.parseAndCache(request)).pathWithinApplication();
+		return (includePaths.length == 0 || anyMatch(includePaths, path)) && !anyMatch(excludePaths, path);
+	}
+
+	private static boolean anyMatch(PathPattern[] patterns, PathContainer path) {
+		for (PathPattern pattern : patterns) {
+			if (pattern.matches(path)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Valida el valor del header Content-Type recibido. Devuelve {@code null} si
+	 * es correcto o el mensaje de error en caso contrario.
+	 */
+	public String check(String contentType) {
+		if (contentType == null) {
+			return MISSING_MESSAGE;
+		}
+		int length = contentType.length();
+		if (length > maxLength) {
+			return TOO_LONG_MESSAGE;
+		}
+		int end = contentType.indexOf(';');
+		if (end < 0) {
+			end = length;
+		} else {
+			int parameters = 0;
+			for (int i = end; i >= 0; i = contentType.indexOf(';', i + 1)) {
+				if (++parameters > maxParameters) {
+					return TOO_MANY_PARAMETERS_MESSAGE;
+				}
+			}
+		}
+		// Mismo recorte que String.trim(), sin crear la subcadena
+		int start = 0;
+		while (start < end && contentType.charAt(start) <= ' ') {
+			start++;
+		}
+		while (end > start && contentType.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		if (start == end) {
+			return INVALID_MESSAGE;
+		}
+		return end - start == mediaType.length() && contentType.regionMatches(true, start, mediaType, 0, end - start)
+				? null
+				: message;
+	}
+
+	/**
+	 * Comprueba la longitud y el numero de parametros de un header ya
+	 * delimitado en un buffer de bytes. Devuelve {@code null} si esta dentro de
+	 * los limites o el mensaje de error en caso contrario.
+	 */
+	String checkLimits(byte[] buffer, int start, int end) {
+		if (end - start > maxLength) {
+			return TOO_LONG_MESSAGE;
+		}
+		int parameters = 0;
+		for (int i = start; i < end; i++) {
+			if (buffer[i] == ';' && ++parameters > maxParameters) {
+				return TOO_MANY_PARAMETERS_MESSAGE;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Indica si la regla declara {@code partTypes} y por tanto valida el
+	 * Content-Type de cada parte del cuerpo multipart.
+	 */
+	public boolean validatesParts() {
+		return partTypes.length != 0;
+	}
+
+	/**
+	 * Valida el Content-Type de una parte multipart. Devuelve {@code null} si
+	 * esta permitido, o si la regla no declara {@code partTypes}, y el mensaje
+	 * de error en caso contrario.
+	 */
+	public String checkPart(String contentType) {
+		if (partTypes.length == 0) {
+			return null;
+		}
+		int end = contentType.indexOf(';');
+		String actual = (end >= 0 ? contentType.substring(0, end) : contentType).trim();
+		for (String partType : partTypes) {
+			if (partType.equalsIgnoreCase(actual)) {
+				return null;
+			}
+		}
+		return PART_MESSAGE;
+	}
+
+	/**
+	 * Indica si la regla declara {@code allowedEncodings} y por tanto valida
+	 * el header Content-Encoding.
+	 */
+	public boolean validatesEncoding() {
+		return encodingMask != 0;
+	}
+
+	/**
+	 * Indica si la codificacion esta permitida por la regla.
+	 */
+	public boolean allows(ContentCoding coding) {
+		return encodingMask == 0 ? coding == ContentCoding.IDENTITY : (encodingMask & coding.bit()) != 0;
+	}
+
+	/**
+	 * Compara el media type recibido (ya sin parametros ni espacios) con el
+	 * esperado. Los media types no distinguen mayusculas.
+	 */
+	public boolean matches(String actualContentType) {
+		return mediaType.equalsIgnoreCase(actualContentType);
+	}
+
+	/**
+	 * Media type esperado en minusculas y codificado en ASCII, para comparar
+	 * directamente contra los bytes del header.
+	 */
+	byte[] getMediaTypeBytes() {
+		return mediaTypeBytes;
+	}
+
+	/**
+	 * Mensaje de error ya codificado en UTF-8 para escribirlo como cuerpo de la
+	 * respuesta 400 sin volver a codificarlo.
+	 */
+	byte[] encodedMessage(String error) {
+		if (error == MISSING_MESSAGE) {
+			return MISSING_MESSAGE_BYTES;
+		}
+		if (error == ENCODING_MESSAGE) {
+			return ENCODING_MESSAGE_BYTES;
+		}
+		if (error == TOO_LONG_MESSAGE) {
+			return TOO_LONG_MESSAGE_BYTES;
+		}
+		if (error == TOO_MANY_PARAMETERS_MESSAGE) {
+			return TOO_MANY_PARAMETERS_MESSAGE_BYTES;
+		}
+		return error == INVALID_MESSAGE ? INVALID_MESSAGE_BYTES : messageBytes;
+	}
+
+	/**
+	 * Indica si la regla esta en modo {@link ValidationMode#SHADOW}: se evalua
+	 * y contabiliza pero nunca rechaza.
+	 */
+	public boolean isShadow() {
+		return shadowStats != null;
+	}
+
+	/**
+	 * Contadores del modo shadow, o {@code null} si la regla se aplica.
+	 */
+	public ShadowStats getShadowStats() {
+		return shadowStats;
+	}
+
+	public String getMediaType() {
+		return mediaType;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	@Override
+	public String toString() {
+		return mediaType;
+	}
+
+}
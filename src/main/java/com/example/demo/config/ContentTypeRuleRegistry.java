@@ -0,0 +1,418 @@
+package com.example.demo.config;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.context.properties.bind.BindException;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.env.Environment;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.condition.AbstractRequestCondition;
+import org.springframework.web.servlet.mvc.condition.RequestCondition;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.util.pattern.PathPattern;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Indice de reglas de Content-Type por handler. Se construye una unica vez al
+ * arrancar recorriendo todos los {@link HandlerMethod} registrados y falla el
+ * arranque si alguna declaracion de {@link ValidContentType} es incorrecta.
+ * <p>
+ * Cada tenant (header {@value #TENANT_HEADER}) puede sustituir el media type
+ * de cualquier endpoint con propiedades
+ * {@code content-type.tenants.<tenant>[<Clase>#<metodo>]=<media type>}. Esas
+ * reglas se guardan en una {@link TenantRuleTable} que se sustituye de forma
+ * atomica al recargarlas.
+ * <p>
+ * Con {@code content-type.snapshot.file} las instancias de una misma maquina
+ * comparten las reglas por tenant a traves de un {@link RuleSnapshotFile}: la
+ * que tiene {@code content-type.snapshot.publisher=true} lo escribe en cada
+ * recarga y el resto lo aplican en cuanto cambia su sello de version, sin
+ * leer sus propiedades ni parsear los media types. En esas instancias
+ * {@link #reloadTenantRules()} falla: las reglas se recargan en la que publica.
+ */
+@Component
+@ImportRuntimeHints(ValidContentTypeRuntimeHints.class)
+public class ContentTypeRuleRegistry implements SmartInitializingSingleton {
+
+	public static final String TENANT_HEADER = "X-Tenant-Id";
+
+	static final String TENANTS_PROPERTY = "content-type.tenants";
+
+	static final String TENANTS_FILE_PROPERTY = "content-type.tenants-file";
+
+	static final String SNAPSHOT_PROPERTY = "content-type.snapshot";
+
+	private static final Bindable<Map<String, Map<String, String>>> TENANTS_BINDABLE = Bindable
+			.of(ResolvableType.forClassWithGenerics(Map.class, ResolvableType.forClass(String.class),
+					ResolvableType.forClassWithGenerics(Map.class, String.class, String.class)));
+
+	private final ApplicationContext applicationContext;
+
+	private volatile Map<Method, ContentTypeRule> rules = Map.of();
+
+	private final Map<Method, ContentTypeRule> lenientRules = new ConcurrentHashMap<>();
+
+	private volatile Map<String, Method> endpoints = Map.of();
+
+	private volatile ContentTypeRoute[] routes = {};
+
+	private volatile TenantRuleTable tenantRules = TenantRuleTable.EMPTY;
+
+	private volatile RuleSnapshotFile snapshot;
+
+	private volatile long snapshotVersion;
+
+	public ContentTypeRuleRegistry(ApplicationContext applicationContext) {
+		this.applicationContext = applicationContext;
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		Map<Method, ContentTypeRule> compiled = new HashMap<>();
+		List<ContentTypeRoute> routes = new ArrayList<>();
+		List<String> errors = new ArrayList<>();
+		for (RequestMappingHandlerMapping mapping : applicationContext
+				.getBeansOfType(RequestMappingHandlerMapping.class).values()) {
+			mapping.getHandlerMethods().forEach((info, handlerMethod) -> {
+				Method method = handlerMethod.getMethod();
+				ContentTypeRule rule = compiled.get(method);
+				if (rule == null) {
+					try {
+						rule = compile(handlerMethod);
+					} catch (IllegalArgumentException ex) {
+						errors.add(handlerMethod + ": " + ex.getMessage());
+						return;
+					}
+					compiled.put(method, rule);
+				}
+				if (info.getPathPatternsCondition() != null) {
+					int methodMask = ContentTypeRule.methodMask(
+							info.getMethodsCondition().getMethods().toArray(new RequestMethod[0]));
+					RequestCondition<?>[] conditions = conditions(info);
+					for (PathPattern pattern : info.getPathPatternsCondition().getPatterns()) {
+						routes.add(new ContentTypeRoute(pattern, methodMask != 0 ? methodMask : -1, info, conditions,
+								method, rule));
+					}
+				}
+			});
+		}
+		if (!errors.isEmpty()) {
+			throw new IllegalStateException("Declaraciones de @ValidContentType inválidas:\n  "
+					+ String.join("\n  ", errors));
+		}
+		// Con el mismo patron se prueban antes las rutas mas especificas, en el orden del handler mapping
+		// (params, headers y consumes no dependen de la peticion al compararse); produces solo cuenta
+		routes.sort(Comparator
+				.comparing((ContentTypeRoute route) -> route.pattern, PathPattern.SPECIFICITY_COMPARATOR)
+				.thenComparing((a, b) -> a.info.getParamsCondition().compareTo(b.info.getParamsCondition(), null))
+				.thenComparing((a, b) -> a.info.getHeadersCondition().compareTo(b.info.getHeadersCondition(), null))
+				.thenComparing((a, b) -> a.info.getConsumesCondition().compareTo(b.info.getConsumesCondition(), null))
+				.thenComparing(route -> -route.conditions.length));
+		Map<String, Method> endpoints = new HashMap<>();
+		compiled.keySet().forEach(method -> endpoints.put(endpointName(method), method));
+		// Se consulta con el mismo Method que se registro: HashMap compara la referencia antes de llamar a equals
+		this.rules = Collections.unmodifiableMap(compiled);
+		this.endpoints = Map.copyOf(endpoints);
+		this.routes = routes.toArray(new ContentTypeRoute[0]);
+		openSnapshot();
+		if (snapshot == null || snapshot.isPublisher()) {
+			reloadTenantRules();
+		}
+		tenantRules();
+	}
+
+	private void openSnapshot() {
+		Environment environment = applicationContext.getEnvironment();
+		String file = environment.getProperty(SNAPSHOT_PROPERTY + ".file");
+		if (snapshot != null || file == null || file.isBlank()) {
+			return;
+		}
+		if (environment.getProperty(SNAPSHOT_PROPERTY + ".publisher", Boolean.class, false)) {
+			snapshot = RuleSnapshotFile.create(Path.of(file),
+					(int) DataSize.parse(environment.getProperty(SNAPSHOT_PROPERTY + ".max-size", "1MB")).toBytes());
+		} else {
+			snapshot = RuleSnapshotFile.open(Path.of(file));
+		}
+	}
+
+	private static ContentTypeRule compile(HandlerMethod handlerMethod) {
+		ValidContentType annotation = handlerMethod.getMethodAnnotation(ValidContentType.class);
+		return annotation != null ? ContentTypeRule.compile(annotation) : ContentTypeRule.DEFAULT;
+	}
+
+	private static String endpointName(Method method) {
+		return method.getDeclaringClass().getSimpleName() + "#" + method.getName();
+	}
+
+	/**
+	 * Vuelve a leer las reglas por tenant {@value #TENANTS_PROPERTY} del
+	 * fichero {@value #TENANTS_FILE_PROPERTY} o, si no se declara, de las
+	 * propiedades de la aplicacion. Solo el fichero puede cambiar sin
+	 * reiniciar.
+	 */
+	public void reloadTenantRules() {
+		requireLocalTenantRules();
+		reloadTenantRules(declaredTenantRules());
+	}
+
+	private Map<String, Map<String, String>> declaredTenantRules() {
+		Environment environment = applicationContext.getEnvironment();
+		String file = environment.getProperty(TENANTS_FILE_PROPERTY);
+		Binder binder;
+		if (file == null || file.isBlank()) {
+			binder = Binder.get(environment);
+		} else {
+			Properties properties = new Properties();
+			try (BufferedReader reader = Files.newBufferedReader(Path.of(file))) {
+				properties.load(reader);
+			} catch (IOException ex) {
+				throw new IllegalStateException("No se puede leer el fichero de reglas por tenant " + file + ": "
+						+ ex.getMessage(), ex);
+			}
+			binder = new Binder(new MapConfigurationPropertySource(properties));
+		}
+		try {
+			return binder.bind(TENANTS_PROPERTY, TENANTS_BINDABLE).orElse(Map.of());
+		} catch (BindException ex) {
+			throw new IllegalStateException("Reglas de Content-Type por tenant inválidas:\n  "
+					+ NestedExceptionUtils.getMostSpecificCause(ex).getMessage(), ex);
+		}
+	}
+
+	private void requireLocalTenantRules() {
+		RuleSnapshotFile snapshot = this.snapshot;
+		if (snapshot != null && !snapshot.isPublisher()) {
+			throw new IllegalStateException("Las reglas por tenant de esta instancia vienen del snapshot compartido;"
+					+ " se recargan en la instancia que lo publica");
+		}
+	}
+
+	/**
+	 * Compila las reglas por tenant (tenant, endpoint {@code Clase#metodo} y
+	 * media type) y sustituye la tabla actual de una sola vez. Si alguna
+	 * declaracion es incorrecta se conserva la tabla anterior. En la instancia
+	 * que publica el snapshot compartido, la tabla nueva se publica tambien; en
+	 * las que lo leen lanza {@link IllegalStateException}, porque la siguiente
+	 * version del snapshot la sustituiria. Las recargas se serializan para que
+	 * la tabla vigente y la publicada sean siempre la misma.
+	 */
+	public synchronized void reloadTenantRules(Map<String, Map<String, String>> declared) {
+		requireLocalTenantRules();
+		Map<String, Map<Method, ContentTypeRule>> compiled = new HashMap<>();
+		List<String> errors = new ArrayList<>();
+		declared.forEach((tenant, endpointTypes) -> endpointTypes.forEach((endpoint, mediaType) -> {
+			Method method = endpoints.get(endpoint);
+			if (method == null) {
+				errors.add(tenant + "[" + endpoint + "]: el endpoint no existe");
+				return;
+			}
+			try {
+				compiled.computeIfAbsent(tenant, key -> new HashMap<>())
+						.put(method, rules.get(method).withMediaType(mediaType));
+			} catch (IllegalArgumentException ex) {
+				errors.add(tenant + "[" + endpoint + "]: " + ex.getMessage());
+			}
+		}));
+		if (!errors.isEmpty()) {
+			throw new IllegalStateException("Reglas de Content-Type por tenant inválidas:\n  "
+					+ String.join("\n  ", errors));
+		}
+		if (snapshot != null) {
+			byte[] payload = snapshot.encode(mediaTypes(compiled));
+			this.tenantRules = TenantRuleTable.of(compiled);
+			this.snapshotVersion = snapshot.publish(payload);
+		} else {
+			this.tenantRules = TenantRuleTable.of(compiled);
+		}
+	}
+
+	private static Map<String, Map<String, String>> mediaTypes(Map<String, Map<Method, ContentTypeRule>> compiled) {
+		Map<String, Map<String, String>> mediaTypes = new HashMap<>();
+		compiled.forEach((tenant, methodRules) -> methodRules.forEach((method, rule) -> mediaTypes
+				.computeIfAbsent(tenant, key -> new HashMap<>()).put(endpointName(method), rule.getMediaType())));
+		return mediaTypes;
+	}
+
+	/**
+	 * Tabla de reglas por tenant vigente. Si otra instancia ha publicado una
+	 * version nueva del snapshot, la aplica antes de devolverla.
+	 */
+	private TenantRuleTable tenantRules() {
+		RuleSnapshotFile snapshot = this.snapshot;
+		if (snapshot != null && !snapshot.isPublisher()) {
+			long version = snapshot.version();
+			if (version != snapshotVersion && (version & 1) == 0) {
+				refreshFromSnapshot(snapshot);
+			}
+		}
+		return tenantRules;
+	}
+
+	private synchronized void refreshFromSnapshot(RuleSnapshotFile snapshot) {
+		long version = snapshot.version();
+		if (version == snapshotVersion) {
+			return;
+		}
+		Map<String, Map<String, String>> declared = snapshot.read(version);
+		if (declared == null) {
+			// Se esta escribiendo: se reintenta en la siguiente consulta
+			return;
+		}
+		Map<String, Map<Method, ContentTypeRule>> compiled = new HashMap<>();
+		declared.forEach((tenant, endpointTypes) -> endpointTypes.forEach((endpoint, mediaType) -> {
+			Method method = endpoints.get(endpoint);
+			// Los endpoints que no existen en esta version de la aplicacion se ignoran
+			if (method != null) {
+				compiled.computeIfAbsent(tenant, key -> new HashMap<>())
+						.put(method, rules.get(method).withCompiledMediaType(mediaType));
+			}
+		}));
+		this.tenantRules = TenantRuleTable.of(compiled);
+		this.snapshotVersion = version;
+	}
+
+	/**
+	 * Sello de version del snapshot compartido que refleja la tabla actual, o
+	 * 0 si no se usa.
+	 */
+	long getSnapshotVersion() {
+		return snapshotVersion;
+	}
+
+	/**
+	 * Devuelve la regla compilada del metodo o {@code null} si el metodo no se
+	 * indexo al arrancar.
+	 */
+	public ContentTypeRule getRule(Method method) {
+		return method != null ? rules.get(method) : null;
+	}
+
+	/**
+	 * Igual que {@link #getRule(Method)}, pero devolviendo la regla propia del
+	 * tenant si la tiene.
+	 */
+	public ContentTypeRule getRule(Method method, String tenant) {
+		ContentTypeRule rule = getRule(method);
+		if (rule == null) {
+			return null;
+		}
+		ContentTypeRule tenantRule = tenantRules().find(tenant, method);
+		return tenantRule != null ? tenantRule : rule;
+	}
+
+	public Map<Method, ContentTypeRule> getRules() {
+		return rules;
+	}
+
+	/**
+	 * Regla de un handler que no se indexo al arrancar, por ejemplo uno
+	 * registrado despues en el mapping. Se resuelve una vez por metodo para
+	 * que sus contadores shadow se conserven entre peticiones.
+	 */
+	public ContentTypeRule getLenientRule(HandlerMethod handlerMethod) {
+		Method method = handlerMethod.getMethod();
+		ContentTypeRule rule = lenientRules.get(method);
+		if (rule == null) {
+			rule = lenientRules.computeIfAbsent(method,
+					key -> ContentTypeRule.lenient(handlerMethod.getMethodAnnotation(ValidContentType.class)));
+		}
+		return rule;
+	}
+
+	/**
+	 * Reglas resueltas con {@link #getLenientRule(HandlerMethod)} hasta ahora.
+	 */
+	public Map<Method, ContentTypeRule> getLenientRules() {
+		return Collections.unmodifiableMap(lenientRules);
+	}
+
+	/**
+	 * Indica si hay reglas propias de algun tenant; si no, no hace falta leer
+	 * el header {@value #TENANT_HEADER}.
+	 */
+	public boolean hasTenantRules() {
+		return !tenantRules().isEmpty();
+	}
+
+	/**
+	 * Condiciones del mapping, ademas del metodo HTTP y la ruta, que deciden
+	 * que handler atiende la peticion: {@code params}, {@code headers},
+	 * {@code consumes} y {@code produces}. Solo se guardan las declaradas.
+	 */
+	private static RequestCondition<?>[] conditions(RequestMappingInfo info) {
+		List<RequestCondition<?>> conditions = new ArrayList<>(4);
+		for (AbstractRequestCondition<?> condition : List.of(info.getParamsCondition(), info.getHeadersCondition(),
+				info.getConsumesCondition(), info.getProducesCondition())) {
+			if (!condition.isEmpty()) {
+				conditions.add(condition);
+			}
+		}
+		return conditions.toArray(new RequestCondition<?>[0]);
+	}
+
+	/**
+	 * Busca la regla por metodo HTTP, ruta y el resto de condiciones del
+	 * mapping, igual que haria el handler mapping, para validar antes de llegar
+	 * a la capa de Spring MVC (por ejemplo desde {@link ContentTypeValve}).
+	 * Devuelve {@code null} si ningun handler atiende la peticion.
+	 */
+	public ContentTypeRule findRule(HttpServletRequest request, PathContainer path) {
+		return findRule(request, path, null);
+	}
+
+	/**
+	 * Igual que {@link #findRule(HttpServletRequest, PathContainer)}, pero
+	 * devolviendo la regla propia del tenant si la tiene.
+	 */
+	public ContentTypeRule findRule(HttpServletRequest request, PathContainer path, String tenant) {
+		int methodBit = ContentTypeRule.methodBit(request.getMethod());
+		TenantRuleTable tenantRules = tenantRules();
+		for (ContentTypeRoute route : routes) {
+			if ((route.methodMask & methodBit) != 0 && route.pattern.matches(path) && route.matches(request)) {
+				ContentTypeRule tenantRule = tenantRules.find(tenant, route.method);
+				return tenantRule != null ? tenantRule : route.rule;
+			}
+		}
+		return null;
+	}
+
+	private record ContentTypeRoute(PathPattern pattern, int methodMask, RequestMappingInfo info,
+			RequestCondition<?>[] conditions, Method method, ContentTypeRule rule) {
+
+		boolean matches(HttpServletRequest request) {
+			for (RequestCondition<?> condition : conditions) {
+				if (condition.getMatchingCondition(request) == null) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+	}
+
+}
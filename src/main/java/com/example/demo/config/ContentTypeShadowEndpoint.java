@@ -0,0 +1,53 @@
+package com.example.demo.config;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Endpoint de Actuator ({@code /actuator/contenttypeshadow}) con las reglas en
+ * modo {@link ValidationMode#SHADOW}: peticiones evaluadas, cuantas se habrian
+ * rechazado y una muestra de los Content-Type que las habrian provocado. Las
+ * reglas propias de cada tenant cuentan en las del endpoint.
+ */
+@Component
+@Endpoint(id = "contenttypeshadow")
+public class ContentTypeShadowEndpoint {
+
+	private final ContentTypeRuleRegistry ruleRegistry;
+
+	public ContentTypeShadowEndpoint(ContentTypeRuleRegistry ruleRegistry) {
+		this.ruleRegistry = ruleRegistry;
+	}
+
+	@ReadOperation
+	public Map<String, Map<String, Object>> shadowRules() {
+		Map<String, Map<String, Object>> report = new TreeMap<>();
+		addShadowRules(report, ruleRegistry.getRules());
+		addShadowRules(report, ruleRegistry.getLenientRules());
+		return report;
+	}
+
+	private static void addShadowRules(Map<String, Map<String, Object>> report, Map<Method, ContentTypeRule> rules) {
+		for (Map.Entry<Method, ContentTypeRule> entry : rules.entrySet()) {
+			ContentTypeRule rule = entry.getValue();
+			if (!rule.isShadow()) {
+				continue;
+			}
+			ShadowStats stats = rule.getShadowStats();
+			Map<String, Object> summary = new LinkedHashMap<>();
+			summary.put("rule", rule.getMediaType());
+			summary.put("evaluated", stats.getEvaluated());
+			summary.put("wouldReject", stats.getWouldReject());
+			summary.put("samples", stats.getSamples());
+			Method method = entry.getKey();
+			report.put(method.getDeclaringClass().getSimpleName() + "#" + method.getName(), summary);
+		}
+	}
+
+}
@@ -0,0 +1,37 @@
+package com.example.demo.config;
+
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Endpoint de Actuator ({@code /actuator/contenttypetenants}) que vuelve a
+ * compilar las reglas por tenant. Un POST lee de nuevo el fichero
+ * {@code content-type.tenants-file} (o, si no se declara, las propiedades
+ * {@code content-type.tenants} de la aplicacion, que no cambian sin reiniciar)
+ * y sustituye la tabla de una vez; si alguna regla es incorrecta se mantiene
+ * la tabla anterior y la
+ * respuesta es 400 con los errores. Tambien es 400 en las instancias que leen
+ * las reglas de un snapshot compartido.
+ */
+@Component
+@Endpoint(id = "contenttypetenants")
+public class ContentTypeTenantsEndpoint {
+
+	private final ContentTypeRuleRegistry ruleRegistry;
+
+	public ContentTypeTenantsEndpoint(ContentTypeRuleRegistry ruleRegistry) {
+		this.ruleRegistry = ruleRegistry;
+	}
+
+	@WriteOperation
+	public void reload() {
+		try {
+			ruleRegistry.reloadTenantRules();
+		} catch (IllegalStateException ex) {
+			throw new InvalidEndpointRequestException(ex.getMessage(), ex.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,96 @@
+package com.example.demo.config;
+
+import java.lang.reflect.Method;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento JFR con cada decision de validacion de Content-Type.
+ * <p>
+ * Solo se instancia mientras hay alguna grabacion en curso: {@link #begin(Method)}
+ * devuelve {@code null} en caso contrario, de forma que sin grabaciones el
+ * coste es la lectura de un {@code volatile}.
+ */
+@Name(ContentTypeValidationEvent.NAME)
+@Label("Content-Type Validation")
+@Description("Resultado de la validacion del header Content-Type de una peticion")
+@Category({ "Spring Boot", "Validación de headers" })
+@StackTrace(false)
+public class ContentTypeValidationEvent extends Event {
+
+	public static final String NAME = "com.example.demo.ContentTypeValidation";
+
+	public static final String ACCEPTED = "ACCEPTED";
+
+	public static final String REJECTED = "REJECTED";
+
+	public static final String WOULD_REJECT = "WOULD_REJECT";
+
+	private static volatile boolean recording;
+
+	static {
+		FlightRecorder.addListener(new FlightRecorderListener() {
+
+			@Override
+			public void recorderInitialized(FlightRecorder recorder) {
+				updateRecording(recorder);
+			}
+
+			@Override
+			public void recordingStateChanged(Recording changed) {
+				updateRecording(FlightRecorder.getFlightRecorder());
+			}
+
+		});
+	}
+
+	@Label("Endpoint")
+	String endpoint;
+
+	@Label("Regla")
+	String rule;
+
+	@Label("Resultado")
+	String outcome;
+
+	private static void updateRecording(FlightRecorder recorder) {
+		recording = recorder.getRecordings().stream()
+				.anyMatch(candidate -> candidate.getState() == RecordingState.RUNNING);
+	}
+
+	/**
+	 * Inicia un evento para el metodo indicado o devuelve {@code null} si no
+	 * hay grabaciones o el evento esta deshabilitado.
+	 */
+	static ContentTypeValidationEvent begin(Method method) {
+		if (!recording) {
+			return null;
+		}
+		ContentTypeValidationEvent event = new ContentTypeValidationEvent();
+		if (!event.isEnabled()) {
+			return null;
+		}
+		event.endpoint = method != null ? method.getDeclaringClass().getSimpleName() + "#" + method.getName() : null;
+		event.begin();
+		return event;
+	}
+
+	void complete(ContentTypeRule rule, String outcome) {
+		end();
+		if (shouldCommit()) {
+			this.rule = rule.getMediaType();
+			this.outcome = outcome;
+			commit();
+		}
+	}
+
+}
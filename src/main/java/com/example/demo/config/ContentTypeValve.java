@@ -0,0 +1,87 @@
+package com.example.demo.config;
+
+import java.io.IOException;
+
+import org.apache.catalina.connector.Request;
+import org.apache.catalina.connector.Response;
+import org.apache.catalina.valves.ValveBase;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.ServletRequestPathUtils;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import jakarta.servlet.ServletException;
+
+/**
+ * Valve de Tomcat que aplica las reglas de {@link ValidContentType} antes de
+ * la capa de servlets: localiza la regla por metodo y ruta, valida el header
+ * sobre los bytes de {@code MimeHeaders} y, si no es valido, responde 400 con
+ * el mensaje ya codificado sin crear la cadena de filtros ni el
+ * DispatcherServlet. Las peticiones aceptadas se marcan como validadas para
+ * que {@link ContentTypeInterceptor} no repita la comprobacion.
+ */
+public class ContentTypeValve extends ValveBase {
+
+	private static final String TEXT_PLAIN_UTF8 = "text/plain;charset=UTF-8";
+
+	private final ContentTypeRuleRegistry ruleRegistry;
+
+	private final PathPattern[] excludedPaths;
+
+	public ContentTypeValve(ContentTypeRuleRegistry ruleRegistry, String... excludedPaths) {
+		super(true);
+		this.ruleRegistry = ruleRegistry;
+		this.excludedPaths = new PathPattern[excludedPaths.length];
+		for (int i = 0; i < excludedPaths.length; i++) {
+			this.excludedPaths[i] = PathPatternParser.defaultInstance.parse(excludedPaths[i]);
+		}
+	}
+
+	@Override
+	public void invoke(Request request, Response response) throws IOException, ServletException {
+		ContentTypeRule rule = ruleFor(request);
+		if (rule != null && rule.appliesTo(request)) {
+			String error = TomcatContentTypeMatcher.check(rule,
+					request.getCoyoteRequest().getMimeHeaders().getValue(HttpHeaders.CONTENT_TYPE));
+			if (error == null) {
+				error = ContentTypeHeaderMatcher.checkEncoding(rule, request);
+			}
+			if (rule.isShadow()) {
+				rule.getShadowStats().record(error, request);
+			} else if (error != null) {
+				reject(response, rule.encodedMessage(error));
+				return;
+			}
+			request.setAttribute(ContentTypeInterceptor.VALIDATED_ATTRIBUTE, Boolean.TRUE);
+		}
+		getNext().invoke(request, response);
+	}
+
+	private static void reject(Response response, byte[] body) throws IOException {
+		response.setStatus(HttpStatus.BAD_REQUEST.value());
+		response.setContentType(TEXT_PLAIN_UTF8);
+		response.setContentLength(body.length);
+		response.getOutputStream().write(body);
+	}
+
+	private ContentTypeRule ruleFor(Request request) {
+		PathContainer path = ServletRequestPathUtils.parseAndCache(request).pathWithinApplication();
+		if (isExcluded(path)) {
+			return null;
+		}
+		String tenant = ruleRegistry.hasTenantRules() ? request.getHeader(ContentTypeRuleRegistry.TENANT_HEADER) : null;
+		return ruleRegistry.findRule(request, path, tenant);
+	}
+
+	private boolean isExcluded(PathContainer path) {
+		for (PathPattern pattern : excludedPaths) {
+			if (pattern.matches(path)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,25 @@
+package com.example.demo.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registra {@link ContentTypeValve} en el Tomcat embebido cuando
+ * {@code content-type.validation.valve.enabled=true}.
+ */
+@Configuration
+@ConditionalOnClass(name = "org.apache.catalina.Valve")
+@ConditionalOnProperty(name = "content-type.validation.valve.enabled", havingValue = "true")
+public class ContentTypeValveConfig {
+
+	@Bean
+	public WebServerFactoryCustomizer<TomcatServletWebServerFactory> contentTypeValveCustomizer(
+			ContentTypeRuleRegistry ruleRegistry) {
+		return factory -> factory.addContextValves(new ContentTypeValve(ruleRegistry, WebConfig.EXCLUDED_PATHS));
+	}
+
+}
@@ -0,0 +1,11 @@
+package com.example.demo.config;
+
+public class DecompressionLimitException extends RuntimeException {
+
+	private static final long serialVersionUID = 5520416735927761164L;
+
+	public DecompressionLimitException(String message) {
+		super(message);
+	}
+
+}
@@ -0,0 +1,57 @@
+package com.example.demo.config;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Permisos de concurrencia de un endpoint sobre un contador atomico: adquirir
+ * es un bucle CAS que falla en cuanto se alcanza el limite, sin colas ni
+ * bloqueos.
+ */
+public final class EndpointBulkhead {
+
+	private final String name;
+
+	private final int maxConcurrent;
+
+	private final String message;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	EndpointBulkhead(String name, int maxConcurrent) {
+		this.name = name;
+		this.maxConcurrent = maxConcurrent;
+		this.message = "Demasiadas peticiones concurrentes en " + name;
+	}
+
+	boolean tryAcquire() {
+		int current;
+		do {
+			current = inFlight.get();
+			if (current >= maxConcurrent) {
+				return false;
+			}
+		} while (!inFlight.compareAndSet(current, current + 1));
+		return true;
+	}
+
+	void release() {
+		inFlight.decrementAndGet();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getMaxConcurrent() {
+		return maxConcurrent;
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	String getMessage() {
+		return message;
+	}
+
+}
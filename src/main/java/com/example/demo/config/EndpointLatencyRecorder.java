@@ -0,0 +1,134 @@
+package com.example.demo.config;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Registra por endpoint el tiempo consumido por la validacion en
+ * {@code preHandle} y el tiempo del handler (desde el final de
+ * {@code preHandle} hasta {@code afterCompletion}).
+ * <p>
+ * El inicio del handler se guarda en un holder por hilo reutilizable para no
+ * reservar memoria por peticion. Se toma al final de cada {@code preHandle}
+ * que deja pasar la peticion, se haya validado o no, y se descarta cuando
+ * {@code preHandle} la rechaza: Spring no llama entonces a
+ * {@code afterCompletion} y el holder no debe quedarse con un inicio antiguo
+ * para la siguiente peticion del hilo. Si la peticion pasa a procesarse de forma
+ * asincrona, el inicio se copia al atributo {@link #HANDLER_START_ATTRIBUTE}
+ * y la latencia se registra al completar el dispatch ASYNC, que puede correr
+ * en otro hilo.
+ */
+@Component
+public class EndpointLatencyRecorder {
+
+	static final String HANDLER_START_ATTRIBUTE = EndpointLatencyRecorder.class.getName() + ".HANDLER_START";
+
+	private final Map<Method, EndpointLatency> latencies = new ConcurrentHashMap<>();
+
+	private final ThreadLocal<InFlight> inFlight = ThreadLocal.withInitial(InFlight::new);
+
+	public void recordPreHandle(Method method, long startNanos, long endNanos) {
+		if (method == null) {
+			return;
+		}
+		latencyFor(method).preHandle.record(endNanos - startNanos);
+	}
+
+	/**
+	 * El handler empieza a ejecutarse en este hilo.
+	 */
+	public void recordHandlerStart(Method method, long startNanos) {
+		if (method == null) {
+			return;
+		}
+		InFlight current = inFlight.get();
+		current.method = method;
+		current.handlerStartNanos = startNanos;
+	}
+
+	/**
+	 * La peticion no llega al handler: se olvida el inicio guardado en el hilo.
+	 */
+	public void discardHandlerStart() {
+		inFlight.get().method = null;
+	}
+
+	/**
+	 * El handler sigue en curso en otro hilo: el inicio pasa del holder del hilo
+	 * a la peticion.
+	 */
+	public void recordAsyncStarted(HttpServletRequest request, Method method) {
+		InFlight current = inFlight.get();
+		if (method == null || current.method != method) {
+			return;
+		}
+		current.method = null;
+		request.setAttribute(HANDLER_START_ATTRIBUTE, current.handlerStartNanos);
+	}
+
+	public void recordCompletion(HttpServletRequest request, Method method, long nowNanos) {
+		if (method == null) {
+			return;
+		}
+		if (request.getAttribute(HANDLER_START_ATTRIBUTE) instanceof Long startNanos) {
+			request.removeAttribute(HANDLER_START_ATTRIBUTE);
+			latencyFor(method).handler.record(nowNanos - startNanos);
+			return;
+		}
+		InFlight current = inFlight.get();
+		if (current.method != method) {
+			return;
+		}
+		current.method = null;
+		latencyFor(method).handler.record(nowNanos - current.handlerStartNanos);
+	}
+
+	private EndpointLatency latencyFor(Method method) {
+		EndpointLatency latency = latencies.get(method);
+		return latency != null ? latency : latencies.computeIfAbsent(method, EndpointLatency::new);
+	}
+
+	public Map<Method, EndpointLatency> getLatencies() {
+		return latencies;
+	}
+
+	public static final class EndpointLatency {
+
+		private final String name;
+
+		private final LatencyHistogram preHandle = new LatencyHistogram();
+
+		private final LatencyHistogram handler = new LatencyHistogram();
+
+		EndpointLatency(Method method) {
+			this.name = method.getDeclaringClass().getSimpleName() + "#" + method.getName();
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public LatencyHistogram getPreHandle() {
+			return preHandle;
+		}
+
+		public LatencyHistogram getHandler() {
+			return handler;
+		}
+
+	}
+
+	private static final class InFlight {
+
+		private Method method;
+
+		private long handlerStartNanos;
+
+	}
+
+}
@@ -0,0 +1,284 @@
+package com.example.demo.config;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache acotada de respuestas por clave de idempotencia. Esta dividida en
+ * segmentos con su propio cerrojo para repartir la contencion; cada segmento
+ * tiene un numero fijo de huecos y un presupuesto de bytes, y cuando se llena
+ * expulsa entradas con el algoritmo CLOCK (una segunda oportunidad para las
+ * entradas leidas desde la ultima vuelta). Las entradas caducan a los
+ * {@code ttlNanos} y se descartan al encontrarlas.
+ * <p>
+ * Una clave se reserva ({@link #reserve}) al empezar la peticion y se
+ * completa con la respuesta ({@link #complete}) o se libera
+ * ({@link #release}) al terminar. Las reservas se guardan aparte, fuera de los
+ * huecos y del presupuesto de bytes, para que CLOCK no las expulse mientras la
+ * peticion sigue en curso; su numero lo limita la concurrencia.
+ */
+public final class IdempotencyCache {
+
+	private static final int SEGMENTS = 16;
+
+	/** Coste fijo estimado de una entrada (objetos, cabeceras y mapa). */
+	static final int ENTRY_OVERHEAD = 96;
+
+	private final Segment[] segments = new Segment[SEGMENTS];
+
+	private final long ttlNanos;
+
+	private final int maxBodyBytes;
+
+	private final LongSupplier clock;
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	private final LongAdder expirations = new LongAdder();
+
+	public IdempotencyCache(int maxEntries, long maxBytes, int maxBodyBytes, long ttlNanos) {
+		this(maxEntries, maxBytes, maxBodyBytes, ttlNanos, System::nanoTime);
+	}
+
+	IdempotencyCache(int maxEntries, long maxBytes, int maxBodyBytes, long ttlNanos, LongSupplier clock) {
+		int slots = Math.max(1, (maxEntries + SEGMENTS - 1) / SEGMENTS);
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment(slots, Math.max(1, maxBytes / SEGMENTS));
+		}
+		this.ttlNanos = ttlNanos;
+		this.maxBodyBytes = maxBodyBytes;
+		this.clock = clock;
+	}
+
+	/**
+	 * Busca la clave. Devuelve la respuesta guardada si existe, reserva la
+	 * clave y devuelve {@code null} si no, o lanza
+	 * {@link IdempotencyConflictException} si otra peticion con la misma
+	 * clave esta en curso.
+	 */
+	public CachedResponse reserve(Object key) {
+		return segmentFor(key).reserve(key);
+	}
+
+	/**
+	 * Guarda la respuesta de una clave reservada. Las respuestas mayores que
+	 * el limite por cuerpo no se guardan y la clave se libera.
+	 */
+	public void complete(Object key, CachedResponse response) {
+		Segment segment = segmentFor(key);
+		if (response.getBody().length > maxBodyBytes) {
+			segment.remove(key);
+		} else {
+			segment.complete(key, response);
+		}
+	}
+
+	/**
+	 * Libera la reserva de una clave cuya peticion no termino con una
+	 * respuesta que se pueda guardar.
+	 */
+	public void release(Object key) {
+		segmentFor(key).remove(key);
+	}
+
+	private Segment segmentFor(Object key) {
+		int hash = key.hashCode();
+		return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	public long getExpirations() {
+		return expirations.sum();
+	}
+
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.index.size();
+			}
+		}
+		return size;
+	}
+
+	public long bytes() {
+		long bytes = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				bytes += segment.bytes;
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Tamano estimado de una entrada; el de la clave se toma de su
+	 * {@code toString()}.
+	 */
+	static long weight(Object key, CachedResponse response) {
+		return ENTRY_OVERHEAD + 2L * key.toString().length() + response.getBody().length
+				+ response.getContentTypeLength();
+	}
+
+	private final class Segment {
+
+		private final Map<Object, Integer> index = new HashMap<>();
+
+		/** Claves reservadas por peticiones en curso y cuando caduca la reserva. */
+		private final Map<Object, Long> pending = new HashMap<>();
+
+		private final Object[] keys;
+
+		private final CachedResponse[] responses;
+
+		private final long[] expiresAt;
+
+		private final long[] weights;
+
+		private final boolean[] referenced;
+
+		private final long maxBytes;
+
+		private long bytes;
+
+		private int hand;
+
+		Segment(int slots, long maxBytes) {
+			this.keys = new Object[slots];
+			this.responses = new CachedResponse[slots];
+			this.expiresAt = new long[slots];
+			this.weights = new long[slots];
+			this.referenced = new boolean[slots];
+			this.maxBytes = maxBytes;
+		}
+
+		synchronized CachedResponse reserve(Object key) {
+			long now = clock.getAsLong();
+			Integer slot = index.get(key);
+			if (slot != null) {
+				if (now - expiresAt[slot] < 0) {
+					referenced[slot] = true;
+					hits.increment();
+					return responses[slot];
+				}
+				clear(slot);
+				expirations.increment();
+			}
+			Long reservedUntil = pending.get(key);
+			if (reservedUntil != null) {
+				if (now - reservedUntil < 0) {
+					throw new IdempotencyConflictException("Ya hay una petición en curso con la misma Idempotency-Key");
+				}
+				expirations.increment();
+			} else if (pending.size() >= keys.length) {
+				// Reservas de peticiones que no llegaron a completarse ni liberarse
+				pending.values().removeIf(until -> now - until >= 0);
+			}
+			misses.increment();
+			pending.put(key, now + ttlNanos);
+			return null;
+		}
+
+		synchronized void complete(Object key, CachedResponse response) {
+			pending.remove(key);
+			Integer slot = index.get(key);
+			if (slot != null) {
+				clear(slot);
+			}
+			insert(key, response, clock.getAsLong());
+		}
+
+		synchronized void remove(Object key) {
+			pending.remove(key);
+			Integer slot = index.get(key);
+			if (slot != null) {
+				clear(slot);
+			}
+		}
+
+		private void insert(Object key, CachedResponse response, long now) {
+			long weight = weight(key, response);
+			if (weight > maxBytes) {
+				return;
+			}
+			int slot = freeSlot(now);
+			while (bytes + weight > maxBytes) {
+				evict(now);
+			}
+			keys[slot] = key;
+			responses[slot] = response;
+			expiresAt[slot] = now + ttlNanos;
+			weights[slot] = weight;
+			referenced[slot] = false;
+			bytes += weight;
+			index.put(key, slot);
+		}
+
+		private int freeSlot(long now) {
+			if (index.size() == keys.length) {
+				evict(now);
+			}
+			for (int i = 0; i < keys.length; i++) {
+				int slot = (hand + i) % keys.length;
+				if (keys[slot] == null) {
+					return slot;
+				}
+			}
+			throw new IllegalStateException("Segmento sin huecos tras expulsar");
+		}
+
+		/**
+		 * Avanza la manecilla hasta encontrar una respuesta caducada o sin leer
+		 * desde la ultima vuelta y la expulsa.
+		 */
+		private void evict(long now) {
+			while (true) {
+				int slot = hand;
+				hand = (hand + 1) % keys.length;
+				if (keys[slot] == null) {
+					continue;
+				}
+				if (now - expiresAt[slot] >= 0) {
+					clear(slot);
+					expirations.increment();
+					return;
+				}
+				if (referenced[slot]) {
+					referenced[slot] = false;
+					continue;
+				}
+				clear(slot);
+				evictions.increment();
+				return;
+			}
+		}
+
+		private void clear(int slot) {
+			index.remove(keys[slot]);
+			bytes -= weights[slot];
+			keys[slot] = null;
+			responses[slot] = null;
+			weights[slot] = 0;
+			referenced[slot] = false;
+		}
+
+	}
+
+}
@@ -0,0 +1,11 @@
+package com.example.demo.config;
+
+public class IdempotencyConflictException extends RuntimeException {
+
+	private static final long serialVersionUID = -4186403542871395870L;
+
+	public IdempotencyConflictException(String message) {
+		super(message);
+	}
+
+}
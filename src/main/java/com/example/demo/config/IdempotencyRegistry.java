@@ -0,0 +1,157 @@
+package com.example.demo.config;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Deduplicacion de peticiones POST con {@value #IDEMPOTENCY_KEY_HEADER} en los
+ * handlers anotados con {@link Idempotent}. {@link ContentTypeInterceptor}
+ * consulta la cache despues de validar la peticion; la respuesta la captura
+ * {@link IdempotencyResponseAdvice} y se guarda en {@code afterCompletion} si
+ * la peticion termino sin error.
+ * <p>
+ * Limites configurables: {@code idempotency.max-entries} (10000),
+ * {@code idempotency.max-bytes} (16MB), {@code idempotency.max-body-bytes}
+ * (64KB) e {@code idempotency.ttl} (10m). Las claves de mas de
+ * {@value #MAX_KEY_LENGTH} caracteres no se deduplican.
+ */
+@Component
+public class IdempotencyRegistry implements SmartInitializingSingleton {
+
+	public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+	static final int MAX_KEY_LENGTH = 255;
+
+	static final String KEY_ATTRIBUTE = IdempotencyRegistry.class.getName() + ".KEY";
+
+	static final String RESPONSE_ATTRIBUTE = IdempotencyRegistry.class.getName() + ".RESPONSE";
+
+	private final ApplicationContext applicationContext;
+
+	private final ObjectProvider<MeterRegistry> meterRegistry;
+
+	private final IdempotencyCache cache;
+
+	private volatile Set<Method> idempotentMethods = Set.of();
+
+	public IdempotencyRegistry(ApplicationContext applicationContext, Environment environment,
+			ObjectProvider<MeterRegistry> meterRegistry) {
+		this.applicationContext = applicationContext;
+		this.meterRegistry = meterRegistry;
+		this.cache = new IdempotencyCache(
+				environment.getProperty("idempotency.max-entries", Integer.class, 10_000),
+				environment.getProperty("idempotency.max-bytes", DataSize.class, DataSize.ofMegabytes(16)).toBytes(),
+				(int) environment.getProperty("idempotency.max-body-bytes", DataSize.class, DataSize.ofKilobytes(64))
+						.toBytes(),
+				environment.getProperty("idempotency.ttl", Duration.class, Duration.ofMinutes(10)).toNanos());
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		Set<Method> methods = new HashSet<>();
+		for (RequestMappingHandlerMapping mapping : applicationContext
+				.getBeansOfType(RequestMappingHandlerMapping.class).values()) {
+			for (HandlerMethod handlerMethod : mapping.getHandlerMethods().values()) {
+				if (handlerMethod.hasMethodAnnotation(Idempotent.class)) {
+					methods.add(handlerMethod.getMethod());
+				}
+			}
+		}
+		// HashSet compara la referencia antes de llamar a equals; Set.copyOf llama siempre a equals
+		this.idempotentMethods = Collections.unmodifiableSet(methods);
+		meterRegistry.ifAvailable(this::registerMeters);
+	}
+
+	private void registerMeters(MeterRegistry registry) {
+		FunctionCounter.builder("http.server.idempotency.requests", cache, IdempotencyCache::getHits)
+				.tag("result", "hit").register(registry);
+		FunctionCounter.builder("http.server.idempotency.requests", cache, IdempotencyCache::getMisses)
+				.tag("result", "miss").register(registry);
+		FunctionCounter.builder("http.server.idempotency.evictions", cache, IdempotencyCache::getEvictions)
+				.tag("cause", "size").register(registry);
+		FunctionCounter.builder("http.server.idempotency.evictions", cache, IdempotencyCache::getExpirations)
+				.tag("cause", "expired").register(registry);
+		Gauge.builder("http.server.idempotency.entries", cache, IdempotencyCache::size).register(registry);
+		Gauge.builder("http.server.idempotency.bytes", cache, IdempotencyCache::bytes).register(registry);
+	}
+
+	/**
+	 * Devuelve la respuesta guardada para la clave de la peticion, o
+	 * {@code null} si hay que invocar el handler (en cuyo caso la clave queda
+	 * reservada hasta {@link #finish}).
+	 */
+	public CachedResponse begin(HttpServletRequest request, Method method) {
+		if (method == null || !idempotentMethods.contains(method) || !"POST".equals(request.getMethod())
+				|| request.getAttribute(KEY_ATTRIBUTE) != null) {
+			return null;
+		}
+		String header = request.getHeader(IDEMPOTENCY_KEY_HEADER);
+		if (header == null || header.isEmpty() || header.length() > MAX_KEY_LENGTH) {
+			return null;
+		}
+		// La firma forma parte de la clave: un reintento solo se responde desde la cache si trae la
+		// misma firma que la peticion original, que ya se verifico contra el cuerpo
+		Key key = new Key(method, header, request.getHeader(SignatureBodyAdvice.SIGNATURE_HEADER));
+		CachedResponse cached = cache.reserve(key);
+		if (cached == null) {
+			request.setAttribute(KEY_ATTRIBUTE, key);
+		}
+		return cached;
+	}
+
+	/**
+	 * Indica si la respuesta de la peticion debe capturarse.
+	 */
+	boolean isReserved(HttpServletRequest request) {
+		return request.getAttribute(KEY_ATTRIBUTE) != null;
+	}
+
+	/**
+	 * Guarda la respuesta capturada o libera la clave si no la hay o la
+	 * peticion termino con error.
+	 */
+	public void finish(HttpServletRequest request, Exception ex) {
+		if (!(request.getAttribute(KEY_ATTRIBUTE) instanceof Key key)) {
+			return;
+		}
+		request.removeAttribute(KEY_ATTRIBUTE);
+		if (ex == null && request.getAttribute(RESPONSE_ATTRIBUTE) instanceof CachedResponse response
+				&& response.getStatus() >= 200 && response.getStatus() < 300) {
+			cache.complete(key, response);
+		} else {
+			cache.release(key);
+		}
+	}
+
+	public IdempotencyCache getCache() {
+		return cache;
+	}
+
+	private record Key(Method method, String value, String signature) {
+
+		@Override
+		public String toString() {
+			return signature != null ? value + signature : value;
+		}
+
+	}
+
+}
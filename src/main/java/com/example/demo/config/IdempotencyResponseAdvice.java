@@ -0,0 +1,60 @@
+package com.example.demo.config;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Captura el cuerpo de las respuestas de los handlers {@link Idempotent} con
+ * una clave reservada para que {@link IdempotencyRegistry} pueda guardarlo.
+ */
+@ControllerAdvice
+public class IdempotencyResponseAdvice implements ResponseBodyAdvice<Object> {
+
+	private final IdempotencyRegistry idempotencyRegistry;
+
+	public IdempotencyResponseAdvice(IdempotencyRegistry idempotencyRegistry) {
+		this.idempotencyRegistry = idempotencyRegistry;
+	}
+
+	@Override
+	public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+		return returnType.hasMethodAnnotation(Idempotent.class);
+	}
+
+	@Override
+	public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+			Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request,
+			ServerHttpResponse response) {
+		if (request instanceof ServletServerHttpRequest servletRequest
+				&& response instanceof ServletServerHttpResponse servletResponse
+				&& idempotencyRegistry.isReserved(servletRequest.getServletRequest())) {
+			capture(servletRequest.getServletRequest(), servletResponse.getServletResponse().getStatus(), body,
+					selectedContentType);
+		}
+		return body;
+	}
+
+	private static void capture(HttpServletRequest request, int status, Object body, MediaType contentType) {
+		if (body instanceof String text) {
+			Charset charset = contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+			request.setAttribute(IdempotencyRegistry.RESPONSE_ATTRIBUTE,
+					new CachedResponse(status, new MediaType(contentType, charset).toString(), text.getBytes(charset)));
+		} else if (body instanceof byte[] bytes) {
+			request.setAttribute(IdempotencyRegistry.RESPONSE_ATTRIBUTE,
+					new CachedResponse(status, contentType.toString(), bytes));
+		}
+	}
+
+}
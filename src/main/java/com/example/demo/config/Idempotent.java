@@ -0,0 +1,20 @@
+package com.example.demo.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Las peticiones con header {@value IdempotencyRegistry#IDEMPOTENCY_KEY_HEADER}
+ * que repiten una clave ya completada reciben la respuesta guardada sin
+ * invocar el handler. Solo se guardan respuestas 2xx con cuerpo
+ * {@code String} o {@code byte[]}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Idempotent {
+
+}
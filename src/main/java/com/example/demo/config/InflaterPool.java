@@ -0,0 +1,45 @@
+package com.example.demo.config;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.Inflater;
+
+/**
+ * Pool de {@link Inflater} con el mismo esquema que {@link BufferPool}. Cada
+ * {@code Inflater} reserva memoria nativa al crearse, asi que los que no caben
+ * al devolverlos se liberan con {@link Inflater#end()} en lugar de esperar al
+ * GC.
+ */
+final class InflaterPool {
+
+	private final boolean nowrap;
+
+	private final AtomicReferenceArray<Inflater> slots;
+
+	InflaterPool(boolean nowrap, int size) {
+		this.nowrap = nowrap;
+		this.slots = new AtomicReferenceArray<>(size);
+	}
+
+	Inflater acquire() {
+		int start = (int) (Thread.currentThread().getId() % slots.length());
+		for (int i = 0; i < slots.length(); i++) {
+			Inflater inflater = slots.getAndSet((start + i) % slots.length(), null);
+			if (inflater != null) {
+				return inflater;
+			}
+		}
+		return new Inflater(nowrap);
+	}
+
+	void release(Inflater inflater) {
+		inflater.reset();
+		int start = (int) (Thread.currentThread().getId() % slots.length());
+		for (int i = 0; i < slots.length(); i++) {
+			if (slots.compareAndSet((start + i) % slots.length(), null, inflater)) {
+				return;
+			}
+		}
+		inflater.end();
+	}
+
+}
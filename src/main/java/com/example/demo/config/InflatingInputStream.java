@@ -0,0 +1,220 @@
+package com.example.demo.config;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Descomprime un cuerpo {@code gzip} o {@code deflate} (zlib) a medida que se
+ * lee, con un {@link Inflater} y un buffer de entrada prestados. A diferencia
+ * de {@code GZIPInputStream} permite reutilizar el {@code Inflater} y corta la
+ * lectura en cuanto los bytes descomprimidos superan el maximo o la relacion
+ * de compresion es sospechosa (zip bomb), sin llegar a descomprimir el resto.
+ */
+final class InflatingInputStream extends InputStream {
+
+	/**
+	 * Por debajo de este tamano no se comprueba la relacion de compresion:
+	 * cuerpos pequenos y repetitivos comprimen mucho sin ser peligrosos.
+	 */
+	static final long RATIO_CHECK_THRESHOLD = 64 * 1024;
+
+	private static final int FHCRC = 2;
+
+	private static final int FEXTRA = 4;
+
+	private static final int FNAME = 8;
+
+	private static final int FCOMMENT = 16;
+
+	private final InputStream in;
+
+	private final ContentCoding coding;
+
+	private final Inflater inflater;
+
+	private final byte[] input;
+
+	private final long maxBytes;
+
+	private final int maxRatio;
+
+	private final Runnable onRelease;
+
+	private final CRC32 crc;
+
+	private final byte[] single = new byte[1];
+
+	private int inputLength;
+
+	private long produced;
+
+	private boolean headerRead;
+
+	private boolean finished;
+
+	private boolean released;
+
+	InflatingInputStream(InputStream in, ContentCoding coding, Inflater inflater, byte[] input, long maxBytes,
+			int maxRatio, Runnable onRelease) {
+		this.in = in;
+		this.coding = coding;
+		this.inflater = inflater;
+		this.input = input;
+		this.maxBytes = maxBytes;
+		this.maxRatio = maxRatio;
+		this.onRelease = onRelease;
+		this.crc = coding == ContentCoding.GZIP ? new CRC32() : null;
+		this.headerRead = coding != ContentCoding.GZIP;
+	}
+
+	@Override
+	public int read() throws IOException {
+		return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+		if (finished) {
+			return -1;
+		}
+		if (length == 0) {
+			return 0;
+		}
+		if (!headerRead) {
+			readGzipHeader();
+			headerRead = true;
+		}
+		try {
+			while (true) {
+				int inflated = inflater.inflate(buffer, offset, length);
+				if (inflated > 0) {
+					produced += inflated;
+					checkLimits();
+					if (crc != null) {
+						crc.update(buffer, offset, inflated);
+					}
+					return inflated;
+				}
+				if (inflater.finished()) {
+					if (crc != null) {
+						readGzipTrailer();
+					}
+					finished = true;
+					release();
+					return -1;
+				}
+				if (inflater.needsDictionary()) {
+					throw new ZipException("El cuerpo comprimido requiere un diccionario");
+				}
+				if (inflater.needsInput()) {
+					inputLength = in.read(input, 0, input.length);
+					if (inputLength == -1) {
+						throw new EOFException("El cuerpo comprimido está truncado");
+					}
+					inflater.setInput(input, 0, inputLength);
+				}
+			}
+		} catch (DataFormatException ex) {
+			throw new ZipException("El cuerpo comprimido es inválido: " + ex.getMessage());
+		}
+	}
+
+	private void checkLimits() {
+		if (produced > maxBytes) {
+			throw new DecompressionLimitException("El cuerpo descomprimido supera el máximo de " + maxBytes
+					+ " bytes");
+		}
+		if (produced > RATIO_CHECK_THRESHOLD && produced > Math.max(1, inflater.getBytesRead()) * maxRatio) {
+			throw new DecompressionLimitException("La relación de compresión del cuerpo supera " + maxRatio + ":1");
+		}
+	}
+
+	private void readGzipHeader() throws IOException {
+		if (readRaw() != 0x1f || readRaw() != 0x8b) {
+			throw new ZipException("El cuerpo no está en formato gzip");
+		}
+		if (readRaw() != 8) {
+			throw new ZipException("Método de compresión gzip no soportado");
+		}
+		int flags = readRaw();
+		for (int i = 0; i < 6; i++) {
+			readRaw();
+		}
+		if ((flags & FEXTRA) != 0) {
+			int extraLength = readRaw() | (readRaw() << 8);
+			for (int i = 0; i < extraLength; i++) {
+				readRaw();
+			}
+		}
+		if ((flags & FNAME) != 0) {
+			while (readRaw() != 0) {
+				// nombre del fichero original
+			}
+		}
+		if ((flags & FCOMMENT) != 0) {
+			while (readRaw() != 0) {
+				// comentario
+			}
+		}
+		if ((flags & FHCRC) != 0) {
+			readRaw();
+			readRaw();
+		}
+	}
+
+	/**
+	 * Lee el CRC32 y el tamano (modulo 2^32) del final del miembro gzip; los
+	 * primeros bytes pueden haber quedado ya en el buffer de entrada.
+	 */
+	private void readGzipTrailer() throws IOException {
+		int remaining = inflater.getRemaining();
+		int position = inputLength - remaining;
+		long trailer = 0;
+		for (int i = 0; i < 8; i++) {
+			int b = remaining > 0 ? input[position++] & 0xff : readRaw();
+			remaining--;
+			trailer |= (long) b << (8 * i);
+		}
+		if ((trailer & 0xffffffffL) != crc.getValue()) {
+			throw new ZipException("El CRC del cuerpo gzip no coincide");
+		}
+		if ((trailer >>> 32) != (produced & 0xffffffffL)) {
+			throw new ZipException("El tamaño del cuerpo gzip no coincide");
+		}
+	}
+
+	private int readRaw() throws IOException {
+		int b = in.read();
+		if (b == -1) {
+			throw new EOFException("El cuerpo comprimido está truncado");
+		}
+		return b;
+	}
+
+	@Override
+	public void close() throws IOException {
+		release();
+		in.close();
+	}
+
+	/**
+	 * Devuelve el {@code Inflater} y el buffer a sus pools; se llama al llegar
+	 * al final, al cerrar o al terminar la peticion.
+	 */
+	void release() {
+		if (!released) {
+			released = true;
+			onRelease.run();
+		}
+	}
+
+	long getProduced() {
+		return produced;
+	}
+
+}
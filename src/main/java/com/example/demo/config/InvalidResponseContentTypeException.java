@@ -0,0 +1,11 @@
+package com.example.demo.config;
+
+public class InvalidResponseContentTypeException extends RuntimeException {
+
+	private static final long serialVersionUID = -3190472385513742680L;
+
+	public InvalidResponseContentTypeException(String message) {
+		super(message);
+	}
+
+}
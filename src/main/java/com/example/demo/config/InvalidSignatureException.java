@@ -0,0 +1,11 @@
+package com.example.demo.config;
+
+public class InvalidSignatureException extends RuntimeException {
+
+	private static final long serialVersionUID = 3170954436829580121L;
+
+	public InvalidSignatureException(String message) {
+		super(message);
+	}
+
+}
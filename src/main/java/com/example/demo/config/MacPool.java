@@ -0,0 +1,123 @@
+package com.example.demo.config;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Pool de instancias de {@link Mac} ya inicializadas con la clave. Crear un
+ * {@code Mac} con {@code Mac.getInstance} e inicializarlo es mucho mas caro
+ * que calcular el HMAC de un cuerpo pequeno, asi que las instancias se
+ * reutilizan. El pool no depende del hilo (vale igual con hilos virtuales):
+ * cada hueco se toma con {@code getAndSet} y, si estan todos ocupados, se
+ * clona el prototipo; las instancias que no caben al devolverlas se
+ * descartan.
+ */
+public final class MacPool {
+
+	private final SecretKeySpec key;
+
+	private final Mac prototype;
+
+	private final AtomicReferenceArray<PooledMac> slots;
+
+	public MacPool(String algorithm, byte[] key, int size) {
+		try {
+			this.key = new SecretKeySpec(key, algorithm);
+			this.prototype = Mac.getInstance(algorithm);
+			this.prototype.init(this.key);
+		} catch (GeneralSecurityException ex) {
+			throw new IllegalArgumentException("No se puede inicializar " + algorithm + ": " + ex.getMessage(), ex);
+		}
+		this.slots = new AtomicReferenceArray<>(size);
+	}
+
+	public PooledMac acquire() {
+		int start = (int) (Thread.currentThread().getId() % slots.length());
+		for (int i = 0; i < slots.length(); i++) {
+			PooledMac mac = slots.getAndSet((start + i) % slots.length(), null);
+			if (mac != null) {
+				return mac;
+			}
+		}
+		return new PooledMac(newMac());
+	}
+
+	public void release(PooledMac mac) {
+		mac.mac.reset();
+		int start = (int) (Thread.currentThread().getId() % slots.length());
+		for (int i = 0; i < slots.length(); i++) {
+			if (slots.compareAndSet((start + i) % slots.length(), null, mac)) {
+				return;
+			}
+		}
+	}
+
+	public int getMacLength() {
+		return prototype.getMacLength();
+	}
+
+	/**
+	 * Clonar el prototipo evita volver a buscar el proveedor y a procesar la
+	 * clave; si el proveedor no lo permite se crea con la clave ya cacheada.
+	 */
+	private Mac newMac() {
+		try {
+			synchronized (prototype) {
+				return (Mac) prototype.clone();
+			}
+		} catch (CloneNotSupportedException ex) {
+			try {
+				Mac mac = Mac.getInstance(key.getAlgorithm());
+				mac.init(key);
+				return mac;
+			} catch (GeneralSecurityException cause) {
+				throw new IllegalStateException(cause);
+			}
+		}
+	}
+
+	/**
+	 * {@link Mac} del pool con buffers propios para el resultado y para
+	 * descartar bytes, de forma que verificar una firma no reserva memoria.
+	 */
+	public static final class PooledMac {
+
+		private final Mac mac;
+
+		private final byte[] result;
+
+		final byte[] scratch = new byte[512];
+
+		private PooledMac(Mac mac) {
+			this.mac = mac;
+			this.result = new byte[mac.getMacLength()];
+		}
+
+		public void update(int b) {
+			mac.update((byte) b);
+		}
+
+		public void update(byte[] bytes, int offset, int length) {
+			mac.update(bytes, offset, length);
+		}
+
+		/**
+		 * Termina el calculo y compara en tiempo constante con la firma
+		 * recibida. Deja el {@code Mac} listo para otra peticion.
+		 */
+		public boolean matches(byte[] expected) {
+			try {
+				mac.doFinal(result, 0);
+			} catch (GeneralSecurityException ex) {
+				throw new IllegalStateException(ex);
+			}
+			return MessageDigest.isEqual(result, expected);
+		}
+
+	}
+
+}
@@ -0,0 +1,358 @@
+package com.example.demo.config;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+/**
+ * Lector de un cuerpo {@code multipart/*} en streaming: cada parte se entrega
+ * en cuanto llegan sus headers y su contenido se lee directamente del cuerpo
+ * de la peticion, sin volcarlo antes a disco ni a memoria como hace el
+ * {@code MultipartResolver}.
+ * <p>
+ * El Content-Type de cada parte se valida contra {@code partTypes} de la regla
+ * antes de entregarla; la primera parte no permitida lanza
+ * {@link InvalidContentTypeException} sin leer su contenido. Las partes sin
+ * Content-Type son {@code text/plain} (RFC 7578). En modo
+ * {@link ValidationMode#SHADOW} no se rechazan, solo se guarda una muestra de
+ * su Content-Type.
+ * <p>
+ * El buffer se toma de un {@link BufferPool} y se devuelve al llegar al final
+ * del cuerpo, al rechazar una parte o con {@link #close()}. Los headers de
+ * cada parte deben caber en el buffer.
+ */
+public final class MultipartStream implements Closeable {
+
+	static final String MALFORMED_MESSAGE = "El cuerpo multipart está mal formado";
+
+	static final int MAX_BOUNDARY_LENGTH = 70;
+
+	private static final byte[] HEADERS_END = { '\r', '\n', '\r', '\n' };
+
+	private final InputStream body;
+
+	private final ContentTypeRule rule;
+
+	private final BufferPool bufferPool;
+
+	// "\r\n--" + boundary: el CRLF previo forma parte del delimitador
+	private final byte[] delimiter;
+
+	private byte[] buffer;
+
+	private int pos;
+
+	private int end;
+
+	private boolean partEnded;
+
+	private boolean finished;
+
+	private Part current;
+
+	MultipartStream(InputStream body, String boundary, ContentTypeRule rule, BufferPool bufferPool) {
+		this.body = body;
+		this.rule = rule;
+		this.bufferPool = bufferPool;
+		this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.US_ASCII);
+		this.buffer = bufferPool.acquire();
+		// CRLF ficticio para que el primer delimitador tambien vaya precedido de CRLF
+		this.buffer[0] = '\r';
+		this.buffer[1] = '\n';
+		this.end = 2;
+	}
+
+	/**
+	 * Extrae el parametro {@code boundary} del Content-Type de la peticion.
+	 */
+	static String boundary(String contentType) {
+		String boundary;
+		try {
+			boundary = contentType != null ? MediaType.parseMediaType(contentType).getParameter("boundary") : null;
+		} catch (IllegalArgumentException ex) {
+			boundary = null;
+		}
+		if (boundary != null && boundary.length() > 1 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+			boundary = boundary.substring(1, boundary.length() - 1);
+		}
+		if (boundary == null || boundary.isEmpty() || boundary.length() > MAX_BOUNDARY_LENGTH) {
+			throw new InvalidContentTypeException(MALFORMED_MESSAGE);
+		}
+		return boundary;
+	}
+
+	/**
+	 * Avanza hasta la siguiente parte, descartando lo que quede sin leer de la
+	 * actual. Devuelve {@code null} al llegar al delimitador de cierre.
+	 */
+	public Part next() throws IOException {
+		if (finished) {
+			return null;
+		}
+		try {
+			return readNext();
+		} catch (InvalidContentTypeException | IOException ex) {
+			close();
+			throw ex;
+		}
+	}
+
+	private Part readNext() throws IOException {
+		// Antes de la primera parte se descarta el preambulo
+		while (!partEnded) {
+			int available = contentAvailable();
+			if (available > 0) {
+				pos += available;
+			}
+		}
+		if (!ensure(2)) {
+			throw malformed();
+		}
+		if (buffer[pos] == '-' && buffer[pos + 1] == '-') {
+			close();
+			return null;
+		}
+		while (ensure(1) && (buffer[pos] == ' ' || buffer[pos] == '\t')) {
+			pos++;
+		}
+		if (!ensure(2) || buffer[pos] != '\r' || buffer[pos + 1] != '\n') {
+			throw malformed();
+		}
+		pos += 2;
+		Part part = readHeaders();
+		String error = rule.checkPart(part.contentType);
+		if (error != null) {
+			if (!rule.isShadow()) {
+				throw new InvalidContentTypeException(error);
+			}
+			rule.getShadowStats().sample(part.contentType);
+		}
+		partEnded = false;
+		current = part;
+		return part;
+	}
+
+	private Part readHeaders() throws IOException {
+		if (ensure(2) && buffer[pos] == '\r' && buffer[pos + 1] == '\n') {
+			pos += 2;
+			return new Part(null, null, MediaType.TEXT_PLAIN_VALUE);
+		}
+		int headersEnd;
+		while ((headersEnd = indexOf(HEADERS_END, pos, end)) < 0) {
+			// Los headers de la parte no caben en el buffer
+			if (end - pos == buffer.length || !fill()) {
+				throw malformed();
+			}
+		}
+		String contentType = MediaType.TEXT_PLAIN_VALUE;
+		ContentDisposition disposition = null;
+		int lineStart = pos;
+		while (lineStart < headersEnd + 2) {
+			int lineEnd = indexOf(HEADERS_END, 2, lineStart, headersEnd + 2);
+			int colon = indexOf(':', lineStart, lineEnd);
+			if (colon < 0) {
+				throw malformed();
+			}
+			String name = new String(buffer, lineStart, colon - lineStart, StandardCharsets.ISO_8859_1).trim();
+			if (name.equalsIgnoreCase(HttpHeaders.CONTENT_TYPE)) {
+				contentType = headerValue(colon + 1, lineEnd);
+			} else if (name.equalsIgnoreCase(HttpHeaders.CONTENT_DISPOSITION)) {
+				try {
+					disposition = ContentDisposition.parse(headerValue(colon + 1, lineEnd));
+				} catch (IllegalArgumentException ex) {
+					throw malformed();
+				}
+			}
+			lineStart = lineEnd + 2;
+		}
+		pos = headersEnd + HEADERS_END.length;
+		return disposition != null ? new Part(disposition.getName(), disposition.getFilename(), contentType)
+				: new Part(null, null, contentType);
+	}
+
+	private String headerValue(int from, int to) {
+		// Los headers de las partes pueden llevar UTF-8 (nombres de fichero)
+		return new String(buffer, from, to - from, StandardCharsets.UTF_8).trim();
+	}
+
+	/**
+	 * Bytes del contenido de la parte actual disponibles en el buffer a partir
+	 * de {@code pos}, o -1 si la parte ha terminado (el delimitador ya se ha
+	 * consumido). Se reserva la cola que podria ser el inicio del delimitador.
+	 */
+	private int contentAvailable() throws IOException {
+		while (true) {
+			int found = indexOf(delimiter, delimiter.length, pos, end);
+			if (found == pos) {
+				pos += delimiter.length;
+				partEnded = true;
+				return -1;
+			}
+			if (found > pos) {
+				return found - pos;
+			}
+			int safe = end - pos - (delimiter.length - 1);
+			if (safe > 0) {
+				return safe;
+			}
+			if (!fill()) {
+				throw malformed();
+			}
+		}
+	}
+
+	private boolean ensure(int count) throws IOException {
+		while (end - pos < count) {
+			if (!fill()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Compacta el buffer y lee mas bytes del cuerpo. Devuelve {@code false} al
+	 * final del cuerpo.
+	 */
+	private boolean fill() throws IOException {
+		if (pos > 0) {
+			System.arraycopy(buffer, pos, buffer, 0, end - pos);
+			end -= pos;
+			pos = 0;
+		}
+		int read = body.read(buffer, end, buffer.length - end);
+		if (read == -1) {
+			return false;
+		}
+		end += read;
+		return true;
+	}
+
+	private int indexOf(byte[] pattern, int length, int from, int to) {
+		int last = to - length;
+		for (int i = from; i <= last; i++) {
+			if (buffer[i] == pattern[0] && regionMatches(pattern, length, i)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private int indexOf(byte[] pattern, int from, int to) {
+		return indexOf(pattern, pattern.length, from, to);
+	}
+
+	private int indexOf(char value, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (buffer[i] == value) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private boolean regionMatches(byte[] pattern, int length, int offset) {
+		for (int i = 1; i < length; i++) {
+			if (buffer[offset + i] != pattern[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private InvalidContentTypeException malformed() {
+		return new InvalidContentTypeException(MALFORMED_MESSAGE);
+	}
+
+	/**
+	 * Devuelve el buffer al pool; las lecturas posteriores terminan como si
+	 * el cuerpo se hubiera acabado.
+	 */
+	@Override
+	public void close() {
+		if (buffer != null) {
+			bufferPool.release(buffer);
+			buffer = null;
+			finished = true;
+			current = null;
+		}
+	}
+
+	/**
+	 * Parte del cuerpo multipart. Su contenido solo se puede leer hasta que se
+	 * pide la siguiente parte.
+	 */
+	public final class Part {
+
+		private final String name;
+
+		private final String filename;
+
+		private final String contentType;
+
+		private final InputStream inputStream = new PartInputStream();
+
+		private Part(String name, String filename, String contentType) {
+			this.name = name;
+			this.filename = filename;
+			this.contentType = contentType;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getFilename() {
+			return filename;
+		}
+
+		public String getContentType() {
+			return contentType;
+		}
+
+		public InputStream getInputStream() {
+			return inputStream;
+		}
+
+		private final class PartInputStream extends InputStream {
+
+			@Override
+			public int read() throws IOException {
+				byte[] single = new byte[1];
+				return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+			}
+
+			@Override
+			public int read(byte[] target, int offset, int length) throws IOException {
+				if (current != Part.this || partEnded) {
+					return -1;
+				}
+				if (length == 0) {
+					return 0;
+				}
+				int available;
+				try {
+					available = contentAvailable();
+				} catch (InvalidContentTypeException | IOException ex) {
+					close();
+					throw ex;
+				}
+				if (available == -1) {
+					return -1;
+				}
+				int count = Math.min(available, length);
+				System.arraycopy(buffer, pos, target, offset, count);
+				pos += count;
+				return count;
+			}
+
+		}
+
+	}
+
+}
@@ -0,0 +1,48 @@
+package com.example.demo.config;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Resuelve los argumentos {@link MultipartStream} de los handlers con la regla
+ * compilada del endpoint (y del tenant, si tiene una propia), de forma que el
+ * Content-Type de cada parte se valide contra sus {@code partTypes} mientras
+ * se lee el cuerpo.
+ */
+@Component
+public class MultipartStreamArgumentResolver implements HandlerMethodArgumentResolver {
+
+	static final int BUFFER_SIZE = 8 * 1024;
+
+	private final ContentTypeRuleRegistry ruleRegistry;
+
+	private final BufferPool bufferPool = new BufferPool(BUFFER_SIZE, Runtime.getRuntime().availableProcessors() * 2);
+
+	public MultipartStreamArgumentResolver(ContentTypeRuleRegistry ruleRegistry) {
+		this.ruleRegistry = ruleRegistry;
+	}
+
+	@Override
+	public boolean supportsParameter(MethodParameter parameter) {
+		return parameter.getParameterType() == MultipartStream.class;
+	}
+
+	@Override
+	public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+			NativeWebRequest webRequest, WebDataBinderFactory binderFactory) throws Exception {
+		HttpServletRequest request = webRequest.getNativeRequest(HttpServletRequest.class);
+		String tenant = ruleRegistry.hasTenantRules() ? request.getHeader(ContentTypeRuleRegistry.TENANT_HEADER) : null;
+		ContentTypeRule rule = ruleRegistry.getRule(parameter.getMethod(), tenant);
+		String boundary = MultipartStream.boundary(request.getHeader(HttpHeaders.CONTENT_TYPE));
+		return new MultipartStream(request.getInputStream(), boundary, rule != null ? rule : ContentTypeRule.DEFAULT,
+				bufferPool);
+	}
+
+}
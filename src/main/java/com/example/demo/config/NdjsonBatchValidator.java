@@ -0,0 +1,157 @@
+package com.example.demo.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Valida un lote NDJSON ({@code application/x-ndjson}) registro a registro
+ * mientras se lee el cuerpo. Las lineas se buscan sobre un buffer del pool,
+ * sin crear un {@code String} por linea, y cada registro se comprueba con el
+ * parser de streaming de Jackson sin construir el arbol.
+ * <p>
+ * El estado de cada registro se devuelve como un caracter:
+ * {@value #ACCEPTED} aceptado, {@value #INVALID} no es un objeto JSON valido,
+ * {@value #TOO_LONG} supera {@value #MAX_RECORD_LENGTH} bytes. Las lineas
+ * vacias no cuentan como registros.
+ */
+@Component
+public class NdjsonBatchValidator {
+
+	public static final String NDJSON = "application/x-ndjson";
+
+	static final int MAX_RECORD_LENGTH = 16 * 1024;
+
+	static final char ACCEPTED = 'A';
+
+	static final char INVALID = 'I';
+
+	static final char TOO_LONG = 'L';
+
+	private final JsonFactory jsonFactory;
+
+	/**
+	 * Cabe un registro del tamano maximo con su {@code "\r\n"}, de modo que
+	 * el buffer solo se llena sin salto de linea si el registro es mas largo.
+	 */
+	private final BufferPool bufferPool = new BufferPool(MAX_RECORD_LENGTH + 2,
+			Runtime.getRuntime().availableProcessors() * 2);
+
+	public NdjsonBatchValidator(ObjectMapper objectMapper) {
+		this.jsonFactory = objectMapper.getFactory();
+	}
+
+	public BatchResult validate(InputStream body) throws IOException {
+		byte[] buffer = bufferPool.acquire();
+		try {
+			return validate(body, buffer);
+		} finally {
+			bufferPool.release(buffer);
+		}
+	}
+
+	private BatchResult validate(InputStream body, byte[] buffer) throws IOException {
+		StringBuilder status = new StringBuilder();
+		int accepted = 0;
+		int start = 0;
+		int end = 0;
+		boolean discarding = false;
+		while (true) {
+			int newline = indexOf(buffer, (byte) '\n', start, end);
+			if (newline >= 0) {
+				if (discarding) {
+					discarding = false;
+				} else if (record(buffer, start, newline, status)) {
+					accepted++;
+				}
+				start = newline + 1;
+				continue;
+			}
+			if (start > 0) {
+				System.arraycopy(buffer, start, buffer, 0, end - start);
+				end -= start;
+				start = 0;
+			}
+			if (end == buffer.length) {
+				// La linea no cabe en el buffer: se marca y se descarta hasta el siguiente salto
+				if (!discarding) {
+					status.append(TOO_LONG);
+					discarding = true;
+				}
+				end = 0;
+			}
+			int read = body.read(buffer, end, buffer.length - end);
+			if (read == -1) {
+				if (!discarding && record(buffer, start, end, status)) {
+					accepted++;
+				}
+				return new BatchResult(accepted, status.length() - accepted, status.toString());
+			}
+			end += read;
+		}
+	}
+
+	/**
+	 * Valida la linea {@code [from, to)} y anota su estado. Devuelve si se
+	 * acepto; las lineas vacias se ignoran.
+	 */
+	private boolean record(byte[] buffer, int from, int to, StringBuilder status) {
+		if (to > from && buffer[to - 1] == '\r') {
+			to--;
+		}
+		if (isBlank(buffer, from, to)) {
+			return false;
+		}
+		if (to - from > MAX_RECORD_LENGTH) {
+			status.append(TOO_LONG);
+			return false;
+		}
+		boolean valid = isJsonObject(buffer, from, to - from);
+		status.append(valid ? ACCEPTED : INVALID);
+		return valid;
+	}
+
+	private boolean isJsonObject(byte[] buffer, int offset, int length) {
+		try (JsonParser parser = jsonFactory.createParser(buffer, offset, length)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				return false;
+			}
+			parser.skipChildren();
+			return parser.nextToken() == null;
+		} catch (IOException ex) {
+			return false;
+		}
+	}
+
+	private static int indexOf(byte[] buffer, byte value, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (buffer[i] == value) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean isBlank(byte[] buffer, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (buffer[i] != ' ' && buffer[i] != '\t') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Resultado del lote: totales y un caracter de estado por registro, en
+	 * el mismo orden en que se recibieron.
+	 */
+	public record BatchResult(int accepted, int rejected, String status) {
+	}
+
+}
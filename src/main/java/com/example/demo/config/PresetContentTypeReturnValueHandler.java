@@ -0,0 +1,74 @@
+package com.example.demo.config;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.HandlerMapping;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Envuelve los {@link HandlerMethodReturnValueHandler} que escriben el cuerpo
+ * con conversores para fijar antes el Content-Type declarado con
+ * {@link ResponseContentType}. Solo actua cuando el handler ha terminado sin
+ * excepcion; las respuestas de error negocian su propio Content-Type.
+ */
+final class PresetContentTypeReturnValueHandler implements HandlerMethodReturnValueHandler {
+
+	private final HandlerMethodReturnValueHandler delegate;
+
+	private final ResponseContentTypeRegistry responseContentTypeRegistry;
+
+	PresetContentTypeReturnValueHandler(HandlerMethodReturnValueHandler delegate,
+			ResponseContentTypeRegistry responseContentTypeRegistry) {
+		this.delegate = delegate;
+		this.responseContentTypeRegistry = responseContentTypeRegistry;
+	}
+
+	@Override
+	public boolean supportsReturnType(MethodParameter returnType) {
+		return delegate.supportsReturnType(returnType);
+	}
+
+	@Override
+	public void handleReturnValue(Object returnValue, MethodParameter returnType,
+			ModelAndViewContainer mavContainer, NativeWebRequest webRequest) throws Exception {
+		HttpServletResponse response = webRequest.getNativeResponse(HttpServletResponse.class);
+		// El handler original, tambien cuando el valor llega en un dispatch ASYNC
+		if (webRequest.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE,
+				NativeWebRequest.SCOPE_REQUEST) instanceof HandlerMethod handlerMethod
+				&& responseContentTypeRegistry.preset(response, handlerMethod.getMethod())) {
+			webRequest = new ServletWebRequest(webRequest.getNativeRequest(HttpServletRequest.class),
+					new PresetContentTypeResponse(response));
+		}
+		delegate.handleReturnValue(returnValue, returnType, mavContainer, webRequest);
+	}
+
+	HandlerMethodReturnValueHandler getDelegate() {
+		return delegate;
+	}
+
+	/**
+	 * Spring MVC busca el Content-Type ya fijado con {@code getHeader}, pero
+	 * Tomcat solo lo devuelve con {@code getContentType}.
+	 */
+	private static final class PresetContentTypeResponse extends HttpServletResponseWrapper {
+
+		PresetContentTypeResponse(HttpServletResponse response) {
+			super(response);
+		}
+
+		@Override
+		public String getHeader(String name) {
+			return HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name) ? getContentType() : super.getHeader(name);
+		}
+
+	}
+
+}
@@ -0,0 +1,25 @@
+package com.example.demo.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Content-Type que produce un handler. Cuando el handler devuelve su valor, y
+ * antes de escribir la respuesta, el header se fija con un valor precalculado,
+ * de forma que Spring MVC no negocia el tipo con el header Accept en cada
+ * respuesta, y una respuesta con otro Content-Type se rechaza con 500.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ResponseContentType {
+
+	/**
+	 * Media type concreto, con parametros como {@code charset} si hacen falta.
+	 */
+	String value();
+
+}
@@ -0,0 +1,38 @@
+package com.example.demo.config;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Rechaza las respuestas de los handlers {@link ResponseContentType} que se
+ * van a escribir con otro Content-Type, por ejemplo un {@code ResponseEntity}
+ * que fija el suyo.
+ */
+@ControllerAdvice
+public class ResponseContentTypeAdvice implements ResponseBodyAdvice<Object> {
+
+	private final ResponseContentTypeRegistry responseContentTypeRegistry;
+
+	public ResponseContentTypeAdvice(ResponseContentTypeRegistry responseContentTypeRegistry) {
+		this.responseContentTypeRegistry = responseContentTypeRegistry;
+	}
+
+	@Override
+	public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+		return returnType.hasMethodAnnotation(ResponseContentType.class);
+	}
+
+	@Override
+	public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+			Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request,
+			ServerHttpResponse response) {
+		responseContentTypeRegistry.check(returnType.getMethod(), selectedContentType);
+		return body;
+	}
+
+}
@@ -0,0 +1,163 @@
+package com.example.demo.config;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.servlet.mvc.method.annotation.HttpEntityMethodProcessor;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.RequestResponseBodyMethodProcessor;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Indice de {@link ResponseContentType} por handler, construido al arrancar
+ * igual que {@link ContentTypeRuleRegistry}. Guarda el media type ya parseado
+ * y el valor del header ya formateado, que se fija en la respuesta antes de
+ * escribir el cuerpo ({@link PresetContentTypeReturnValueHandler}): con el
+ * Content-Type ya presente Spring MVC no lee el header Accept ni recorre los
+ * conversores para negociarlo.
+ */
+@Component
+public class ResponseContentTypeRegistry implements SmartInitializingSingleton {
+
+	static final String MISMATCH_MESSAGE = "El Content-Type de la respuesta no es el declarado";
+
+	private final ApplicationContext applicationContext;
+
+	private volatile Map<Method, ProducedType> producedTypes = Map.of();
+
+	public ResponseContentTypeRegistry(ApplicationContext applicationContext) {
+		this.applicationContext = applicationContext;
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		Map<Method, ProducedType> compiled = new HashMap<>();
+		List<String> errors = new ArrayList<>();
+		for (RequestMappingHandlerMapping mapping : applicationContext
+				.getBeansOfType(RequestMappingHandlerMapping.class).values()) {
+			mapping.getHandlerMethods().forEach((info, handlerMethod) -> {
+				ResponseContentType annotation = handlerMethod.getMethodAnnotation(ResponseContentType.class);
+				Method method = handlerMethod.getMethod();
+				if (annotation == null || compiled.containsKey(method)) {
+					return;
+				}
+				try {
+					ProducedType producedType = ProducedType.compile(annotation.value());
+					checkProduces(producedType, info.getProducesCondition().getProducibleMediaTypes());
+					compiled.put(method, producedType);
+				} catch (IllegalArgumentException ex) {
+					errors.add(handlerMethod + ": " + ex.getMessage());
+				}
+			});
+		}
+		if (!errors.isEmpty()) {
+			throw new IllegalStateException("Declaraciones de @ResponseContentType inválidas:\n  "
+					+ String.join("\n  ", errors));
+		}
+		this.producedTypes = Map.copyOf(compiled);
+		if (!compiled.isEmpty()) {
+			applicationContext.getBeansOfType(RequestMappingHandlerAdapter.class).values()
+					.forEach(this::decorateReturnValueHandlers);
+		}
+	}
+
+	private void decorateReturnValueHandlers(RequestMappingHandlerAdapter adapter) {
+		List<HandlerMethodReturnValueHandler> handlers = adapter.getReturnValueHandlers();
+		if (handlers == null) {
+			return;
+		}
+		adapter.setReturnValueHandlers(handlers.stream()
+				.map(handler -> handler instanceof RequestResponseBodyMethodProcessor
+						|| handler instanceof HttpEntityMethodProcessor
+								? new PresetContentTypeReturnValueHandler(handler, this)
+								: handler)
+				.collect(Collectors.toList()));
+	}
+
+	private static void checkProduces(ProducedType producedType, Set<MediaType> produces) {
+		if (produces.isEmpty()) {
+			return;
+		}
+		for (MediaType candidate : produces) {
+			if (candidate.includes(producedType.mediaType())) {
+				return;
+			}
+		}
+		throw new IllegalArgumentException("el Content-Type '" + producedType.headerValue()
+				+ "' no está entre los de produces " + produces);
+	}
+
+	/**
+	 * Fija el Content-Type declarado del metodo, si lo tiene. Devuelve
+	 * {@code false} si el metodo no lo declara.
+	 */
+	public boolean preset(HttpServletResponse response, Method method) {
+		ProducedType producedType = method != null ? producedTypes.get(method) : null;
+		if (producedType == null) {
+			return false;
+		}
+		response.setContentType(producedType.headerValue());
+		return true;
+	}
+
+	/**
+	 * Comprueba que el Content-Type con el que se va a escribir la respuesta
+	 * es el declarado, o lanza {@link InvalidResponseContentTypeException}.
+	 */
+	public void check(Method method, MediaType selected) {
+		ProducedType producedType = method != null ? producedTypes.get(method) : null;
+		if (producedType != null && !producedType.matches(selected)) {
+			throw new InvalidResponseContentTypeException(MISMATCH_MESSAGE);
+		}
+	}
+
+	public Map<Method, ProducedType> getProducedTypes() {
+		return producedTypes;
+	}
+
+	/**
+	 * Content-Type declarado: media type parseado y valor del header ya
+	 * formateado.
+	 */
+	public record ProducedType(MediaType mediaType, String headerValue) {
+
+		static ProducedType compile(String declared) {
+			MediaType mediaType;
+			try {
+				mediaType = MediaType.parseMediaType(declared);
+			} catch (InvalidMediaTypeException ex) {
+				throw new IllegalArgumentException("el Content-Type declarado '" + declared + "' es inválido: "
+						+ ex.getMessage(), ex);
+			}
+			if (!mediaType.isConcrete()) {
+				throw new IllegalArgumentException("el Content-Type declarado '" + declared
+						+ "' no puede contener comodines");
+			}
+			return new ProducedType(mediaType, mediaType.toString());
+		}
+
+		/**
+		 * Compara tipo, subtipo y charset; el resto de parametros no se
+		 * tienen en cuenta.
+		 */
+		boolean matches(MediaType selected) {
+			return selected != null && mediaType.equalsTypeAndSubtype(selected)
+					&& (mediaType.getCharset() == null || mediaType.getCharset().equals(selected.getCharset()));
+		}
+
+	}
+
+}
@@ -0,0 +1,235 @@
+package com.example.demo.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fichero mapeado en memoria con la tabla de reglas por tenant ya compilada,
+ * compartido por varias instancias de la aplicacion en la misma maquina. Una
+ * instancia lo publica y el resto lo mapean en solo lectura, asi que solo hay
+ * una copia en la cache de paginas.
+ * <p>
+ * La cabecera lleva un sello de version que funciona como un seqlock: es
+ * impar mientras se escribe y par al terminar. Los lectores comparan el sello
+ * con el ultimo que aplicaron y solo copian el contenido cuando cambia; si
+ * cambia durante la copia la descartan y lo reintentan en la siguiente
+ * consulta. El fichero nunca se trunca porque otras instancias lo tienen
+ * mapeado.
+ * <p>
+ * Los lectores nunca crean ni amplian el fichero. Si la instancia que publica
+ * lo amplia, el contenido deja de caber en su mapeo y lo vuelven a mapear con
+ * el tamano nuevo; si la cabecera deja de ser la de un snapshot fallan.
+ */
+final class RuleSnapshotFile {
+
+	static final int MAGIC = 0x43545253;
+
+	static final short FORMAT = 1;
+
+	static final int HEADER_SIZE = 32;
+
+	private static final int VERSION_OFFSET = 8;
+
+	private static final int LENGTH_OFFSET = 16;
+
+	private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+	private final Path file;
+
+	private volatile MappedByteBuffer buffer;
+
+	private final boolean publisher;
+
+	private RuleSnapshotFile(Path file, MappedByteBuffer buffer, boolean publisher) {
+		this.file = file;
+		this.buffer = buffer;
+		this.publisher = publisher;
+	}
+
+	/**
+	 * Mapea en lectura y escritura el fichero de la instancia que publica,
+	 * creandolo o ampliandolo hasta {@code capacity} bytes.
+	 */
+	static RuleSnapshotFile create(Path file, int capacity) {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			ByteBuffer header = ByteBuffer.allocate(6);
+			channel.read(header, 0);
+			int magic = header.getInt(0);
+			if (magic != 0) {
+				checkHeader(file, magic, header.getShort(4));
+			}
+			if (channel.size() < capacity) {
+				channel.write(ByteBuffer.allocate(1), capacity - 1);
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+			if (magic == 0) {
+				buffer.putShort(4, FORMAT);
+				buffer.putInt(0, MAGIC);
+			}
+			return new RuleSnapshotFile(file, buffer, true);
+		} catch (IOException ex) {
+			throw new UncheckedIOException("No se puede mapear el snapshot de reglas " + file, ex);
+		}
+	}
+
+	/**
+	 * Mapea en solo lectura el fichero que ya ha creado la instancia que
+	 * publica. Falla si no existe o no es un snapshot.
+	 */
+	static RuleSnapshotFile open(Path file) {
+		return new RuleSnapshotFile(file, mapReadOnly(file), false);
+	}
+
+	private static MappedByteBuffer mapReadOnly(Path file) {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_SIZE) {
+				throw new IllegalStateException("El snapshot de reglas " + file
+						+ " esta incompleto; la instancia que publica debe crearlo antes");
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			checkHeader(file, buffer.getInt(0), buffer.getShort(4));
+			return buffer;
+		} catch (NoSuchFileException ex) {
+			throw new IllegalStateException("El snapshot de reglas " + file
+					+ " no existe; la instancia que publica debe crearlo antes", ex);
+		} catch (IOException ex) {
+			throw new UncheckedIOException("No se puede mapear el snapshot de reglas " + file, ex);
+		}
+	}
+
+	private static void checkHeader(Path file, int magic, short format) {
+		if (magic != MAGIC || format != FORMAT) {
+			throw new IllegalStateException("El fichero " + file + " no es un snapshot de reglas de Content-Type");
+		}
+	}
+
+	boolean isPublisher() {
+		return publisher;
+	}
+
+	/**
+	 * Sello de version actual: 0 si nunca se ha publicado, impar mientras se
+	 * esta escribiendo.
+	 */
+	long version() {
+		return (long) LONG.getAcquire(buffer, VERSION_OFFSET);
+	}
+
+	/**
+	 * Codifica las reglas (tenant, endpoint {@code Clase#metodo} y media type
+	 * ya normalizado). Falla si no caben en el fichero.
+	 */
+	byte[] encode(Map<String, Map<String, String>> tenantRules) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(tenantRules.size());
+			for (Map.Entry<String, Map<String, String>> tenant : tenantRules.entrySet()) {
+				out.writeUTF(tenant.getKey());
+				out.writeInt(tenant.getValue().size());
+				for (Map.Entry<String, String> rule : tenant.getValue().entrySet()) {
+					out.writeUTF(rule.getKey());
+					out.writeUTF(rule.getValue());
+				}
+			}
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		if (bytes.size() > buffer.capacity() - HEADER_SIZE) {
+			throw new IllegalStateException("Las reglas por tenant ocupan " + bytes.size()
+					+ " bytes y no caben en el snapshot " + file);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Escribe el contenido ya codificado con {@link #encode(Map)} y publica un
+	 * sello de version nuevo. Devuelve ese sello.
+	 */
+	synchronized long publish(byte[] payload) {
+		long current = version();
+		// Una escritura interrumpida deja el sello impar; se continua a partir de el
+		long writing = (current & 1) == 0 ? current + 1 : current + 2;
+		LONG.setRelease(buffer, VERSION_OFFSET, writing);
+		// El contenido no puede adelantarse al sello impar
+		VarHandle.storeStoreFence();
+		buffer.putInt(LENGTH_OFFSET, payload.length);
+		buffer.put(HEADER_SIZE, payload);
+		LONG.setRelease(buffer, VERSION_OFFSET, writing + 1);
+		return writing + 1;
+	}
+
+	/**
+	 * Lee las reglas publicadas con el sello {@code version}. Devuelve
+	 * {@code null} si se esta escribiendo o si el sello cambia durante la
+	 * lectura. Un lector vuelve a mapear el fichero si el contenido ya no cabe
+	 * en su mapeo y falla si la cabecera ha cambiado.
+	 */
+	Map<String, Map<String, String>> read(long version) {
+		if (version == 0 || (version & 1) != 0) {
+			return null;
+		}
+		MappedByteBuffer buffer = this.buffer;
+		checkHeader(file, buffer.getInt(0), buffer.getShort(4));
+		int length = buffer.getInt(LENGTH_OFFSET);
+		if (length > buffer.capacity() - HEADER_SIZE && !publisher && version() == version) {
+			// La instancia que publica ha ampliado el fichero
+			buffer = remap();
+			if (length > buffer.capacity() - HEADER_SIZE && version() == version) {
+				throw new IllegalStateException("El snapshot de reglas " + file + " declara " + length
+						+ " bytes de contenido y el fichero es menor");
+			}
+		}
+		if (length < 0 || length > buffer.capacity() - HEADER_SIZE) {
+			return null;
+		}
+		byte[] payload = new byte[length];
+		buffer.get(HEADER_SIZE, payload);
+		VarHandle.loadLoadFence();
+		if (version() != version) {
+			return null;
+		}
+		return decode(payload);
+	}
+
+	private synchronized MappedByteBuffer remap() {
+		MappedByteBuffer remapped = mapReadOnly(file);
+		this.buffer = remapped;
+		return remapped;
+	}
+
+	private Map<String, Map<String, String>> decode(byte[] payload) {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+			int tenants = in.readInt();
+			Map<String, Map<String, String>> tenantRules = new HashMap<>();
+			for (int i = 0; i < tenants; i++) {
+				String tenant = in.readUTF();
+				int rules = in.readInt();
+				Map<String, String> endpointTypes = new HashMap<>();
+				for (int j = 0; j < rules; j++) {
+					endpointTypes.put(in.readUTF(), in.readUTF());
+				}
+				tenantRules.put(tenant, endpointTypes);
+			}
+			return tenantRules;
+		} catch (IOException ex) {
+			throw new UncheckedIOException("Snapshot de reglas corrupto en " + file, ex);
+		}
+	}
+
+}
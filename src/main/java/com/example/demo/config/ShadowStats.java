@@ -0,0 +1,81 @@
+package com.example.demo.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.http.HttpHeaders;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Contadores de una regla en modo {@link ValidationMode#SHADOW}. Las
+ * evaluaciones y los rechazos potenciales se cuentan con {@link LongAdder}
+ * (contadores repartidos por celdas, sin contencion entre hilos) y los valores
+ * del header que se habrian rechazado se muestrean en un reservorio de tamano
+ * fijo (algoritmo R), de modo que la memoria no crece con el trafico.
+ */
+public final class ShadowStats {
+
+	static final int RESERVOIR_SIZE = 16;
+
+	static final int MAX_SAMPLE_LENGTH = 128;
+
+	private final LongAdder evaluated = new LongAdder();
+
+	private final LongAdder wouldReject = new LongAdder();
+
+	private final AtomicLong offered = new AtomicLong();
+
+	private final AtomicReferenceArray<String> samples = new AtomicReferenceArray<>(RESERVOIR_SIZE);
+
+	/**
+	 * Registra la evaluacion de una peticion; {@code error} es el resultado de
+	 * la validacion ({@code null} si habria sido aceptada).
+	 */
+	void record(String error, HttpServletRequest request) {
+		evaluated.increment();
+		if (error != null) {
+			wouldReject.increment();
+			sample(request.getHeader(HttpHeaders.CONTENT_TYPE));
+		}
+	}
+
+	void sample(String headerValue) {
+		long seen = offered.incrementAndGet();
+		int slot = seen <= RESERVOIR_SIZE ? (int) (seen - 1) : (int) ThreadLocalRandom.current().nextLong(seen);
+		if (slot < RESERVOIR_SIZE) {
+			samples.set(slot, truncate(headerValue));
+		}
+	}
+
+	private static String truncate(String headerValue) {
+		if (headerValue == null) {
+			return "<ausente>";
+		}
+		return headerValue.length() <= MAX_SAMPLE_LENGTH ? headerValue : headerValue.substring(0, MAX_SAMPLE_LENGTH);
+	}
+
+	public long getEvaluated() {
+		return evaluated.sum();
+	}
+
+	public long getWouldReject() {
+		return wouldReject.sum();
+	}
+
+	public List<String> getSamples() {
+		List<String> values = new ArrayList<>(RESERVOIR_SIZE);
+		for (int i = 0; i < RESERVOIR_SIZE; i++) {
+			String value = samples.get(i);
+			if (value != null) {
+				values.add(value);
+			}
+		}
+		return values;
+	}
+
+}
@@ -0,0 +1,246 @@
+package com.example.demo.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+/**
+ * Verifica la firma HMAC del cuerpo de los handlers anotados con
+ * {@link ValidSignature}. El cuerpo se firma a medida que el conversor de
+ * mensajes lo lee ({@link SigningInputStream}) y la firma se comprueba en
+ * {@code afterBodyRead}, antes de invocar el handler, asi que el cuerpo no se
+ * lee dos veces ni se copia. Si el conversor falla antes, el {@code Mac} se
+ * devuelve al pool al terminar la peticion.
+ * <p>
+ * La clave se configura con {@code request.signature.secret} y el algoritmo
+ * con {@code request.signature.algorithm} (por defecto HmacSHA256). Al
+ * arrancar se comprueba, igual que en {@link BulkheadRegistry}, que cada
+ * handler anotado tiene un cuerpo leido por un conversor de mensajes y que
+ * hay clave; si no, la anotacion no tendria efecto.
+ */
+@ControllerAdvice
+public class SignatureBodyAdvice extends RequestBodyAdviceAdapter implements SmartInitializingSingleton {
+
+	public static final String SIGNATURE_HEADER = "X-Signature";
+
+	static final String MISSING_MESSAGE = "El header " + SIGNATURE_HEADER + " es obligatorio";
+
+	static final String INVALID_MESSAGE = "La firma es inválida";
+
+	static final String SECRET_PROPERTY = "request.signature.secret";
+
+	private static final String RELEASE_ATTRIBUTE = SignatureBodyAdvice.class.getName() + ".RELEASE";
+
+	private final ApplicationContext applicationContext;
+
+	private final MacPool macPool;
+
+	public SignatureBodyAdvice(ApplicationContext applicationContext) {
+		this.applicationContext = applicationContext;
+		this.macPool = macPool(applicationContext.getEnvironment());
+	}
+
+	private static MacPool macPool(Environment environment) {
+		String secret = environment.getProperty(SECRET_PROPERTY);
+		if (secret == null || secret.isEmpty()) {
+			return null;
+		}
+		return new MacPool(environment.getProperty("request.signature.algorithm", "HmacSHA256"),
+				secret.getBytes(StandardCharsets.UTF_8), Runtime.getRuntime().availableProcessors() * 2);
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		List<String> errors = new ArrayList<>();
+		for (RequestMappingHandlerMapping mapping : applicationContext
+				.getBeansOfType(RequestMappingHandlerMapping.class).values()) {
+			for (HandlerMethod handlerMethod : mapping.getHandlerMethods().values()) {
+				if (!handlerMethod.hasMethodAnnotation(ValidSignature.class)) {
+					continue;
+				}
+				if (!hasConvertedBody(handlerMethod)) {
+					errors.add(handlerMethod
+							+ ": necesita un parametro @RequestBody o HttpEntity leido por un conversor de mensajes");
+				}
+				if (macPool == null) {
+					errors.add(handlerMethod + ": falta la propiedad " + SECRET_PROPERTY);
+				}
+			}
+		}
+		if (!errors.isEmpty()) {
+			throw new IllegalStateException("Declaraciones de @ValidSignature inválidas:\n  "
+					+ String.join("\n  ", errors));
+		}
+	}
+
+	/**
+	 * Este advice solo interviene en los parametros que resuelve un conversor
+	 * de mensajes; un {@code InputStream} o un {@code MultipartStream} leen el
+	 * cuerpo sin pasar por el.
+	 */
+	private static boolean hasConvertedBody(HandlerMethod handlerMethod) {
+		for (MethodParameter parameter : handlerMethod.getMethodParameters()) {
+			if (parameter.hasParameterAnnotation(RequestBody.class)
+					|| HttpEntity.class.isAssignableFrom(parameter.getParameterType())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	MacPool getMacPool() {
+		return macPool;
+	}
+
+	@Override
+	public boolean supports(MethodParameter methodParameter, Type targetType,
+			Class<? extends HttpMessageConverter<?>> converterType) {
+		return methodParameter.hasMethodAnnotation(ValidSignature.class);
+	}
+
+	@Override
+	public HttpInputMessage beforeBodyRead(HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+			Class<? extends HttpMessageConverter<?>> converterType) throws IOException {
+		SignedInputMessage signed = new SignedInputMessage(inputMessage, expectedSignature(inputMessage.getHeaders()),
+				macPool.acquire());
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if (attributes != null) {
+			attributes.registerDestructionCallback(RELEASE_ATTRIBUTE, () -> signed.release(macPool),
+					RequestAttributes.SCOPE_REQUEST);
+		}
+		return signed;
+	}
+
+	@Override
+	public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter,
+			Type targetType, Class<? extends HttpMessageConverter<?>> converterType) {
+		if (inputMessage instanceof SignedInputMessage signed) {
+			try {
+				signed.verify(macPool);
+			} catch (IOException ex) {
+				throw new HttpMessageNotReadableException("Error de E/S al leer el cuerpo: " + ex.getMessage(), ex,
+						inputMessage);
+			}
+		}
+		return body;
+	}
+
+	@Override
+	public Object handleEmptyBody(Object body, HttpInputMessage inputMessage, MethodParameter parameter,
+			Type targetType, Class<? extends HttpMessageConverter<?>> converterType) {
+		byte[] expected = expectedSignature(inputMessage.getHeaders());
+		MacPool.PooledMac mac = macPool.acquire();
+		try {
+			if (!mac.matches(expected)) {
+				throw new InvalidSignatureException(INVALID_MESSAGE);
+			}
+		} finally {
+			macPool.release(mac);
+		}
+		return body;
+	}
+
+	private byte[] expectedSignature(HttpHeaders headers) {
+		String signature = headers.getFirst(SIGNATURE_HEADER);
+		if (signature == null) {
+			throw new InvalidSignatureException(MISSING_MESSAGE);
+		}
+		byte[] decoded = decodeHex(signature.trim(), macPool.getMacLength());
+		if (decoded == null) {
+			throw new InvalidSignatureException(INVALID_MESSAGE);
+		}
+		return decoded;
+	}
+
+	static byte[] decodeHex(String hex, int length) {
+		if (hex.length() != length * 2) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			int high = Character.digit(hex.charAt(2 * i), 16);
+			int low = Character.digit(hex.charAt(2 * i + 1), 16);
+			if (high < 0 || low < 0) {
+				return null;
+			}
+			bytes[i] = (byte) ((high << 4) | low);
+		}
+		return bytes;
+	}
+
+	private static final class SignedInputMessage implements HttpInputMessage {
+
+		private final HttpInputMessage delegate;
+
+		private final byte[] expected;
+
+		private final MacPool.PooledMac mac;
+
+		private SigningInputStream body;
+
+		private boolean released;
+
+		private SignedInputMessage(HttpInputMessage delegate, byte[] expected, MacPool.PooledMac mac) {
+			this.delegate = delegate;
+			this.expected = expected;
+			this.mac = mac;
+		}
+
+		@Override
+		public InputStream getBody() throws IOException {
+			if (body == null) {
+				body = new SigningInputStream(delegate.getBody(), mac);
+			}
+			return body;
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return delegate.getHeaders();
+		}
+
+		void verify(MacPool macPool) throws IOException {
+			try {
+				((SigningInputStream) getBody()).drain();
+				if (!mac.matches(expected)) {
+					throw new InvalidSignatureException(INVALID_MESSAGE);
+				}
+			} finally {
+				release(macPool);
+			}
+		}
+
+		/**
+		 * Devuelve el {@code Mac} al pool una sola vez: tras verificar o, si el
+		 * conversor fallo antes, al terminar la peticion.
+		 */
+		void release(MacPool macPool) {
+			if (!released) {
+				released = true;
+				macPool.release(mac);
+			}
+		}
+
+	}
+
+}
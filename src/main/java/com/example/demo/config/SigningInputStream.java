@@ -0,0 +1,74 @@
+package com.example.demo.config;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Pasa al {@link MacPool.PooledMac} cada byte que se lee del cuerpo, de modo
+ * que la firma se calcula mientras el conversor de mensajes consume el
+ * stream, sin copiar el cuerpo a un buffer aparte.
+ */
+public class SigningInputStream extends FilterInputStream {
+
+	private final MacPool.PooledMac mac;
+
+	public SigningInputStream(InputStream in, MacPool.PooledMac mac) {
+		super(in);
+		this.mac = mac;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = super.read();
+		if (b != -1) {
+			mac.update(b);
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+		int read = super.read(buffer, offset, length);
+		if (read > 0) {
+			mac.update(buffer, offset, read);
+		}
+		return read;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		byte[] buffer = mac.scratch;
+		long skipped = 0;
+		int read;
+		while (skipped < n && (read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped))) != -1) {
+			skipped += read;
+		}
+		return skipped;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	@Override
+	public synchronized void mark(int readlimit) {
+	}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		throw new IOException("mark/reset no soportado");
+	}
+
+	/**
+	 * Consume lo que quede del cuerpo para que la firma cubra todos los bytes
+	 * aunque el conversor no haya leido hasta el final.
+	 */
+	void drain() throws IOException {
+		while (read(mac.scratch, 0, mac.scratch.length) != -1) {
+			// solo se calcula el HMAC
+		}
+	}
+
+}
@@ -0,0 +1,45 @@
+package com.example.demo.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.support.StandardServletMultipartResolver;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.util.ServletRequestPathUtils;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * {@code MultipartResolver} que sustituye al de Spring Boot y deja sin
+ * resolver las peticiones de los endpoints que declaran {@code partTypes}:
+ * el resolver estandar lee todas las partes (a disco o a memoria) antes de
+ * llegar al interceptor, mientras que esos endpoints leen el cuerpo con
+ * {@link MultipartStream} y lo validan parte a parte.
+ */
+@Component(DispatcherServlet.MULTIPART_RESOLVER_BEAN_NAME)
+@ConditionalOnProperty(prefix = "spring.servlet.multipart", name = "enabled", matchIfMissing = true)
+public class StreamingMultipartResolver extends StandardServletMultipartResolver {
+
+	private final ContentTypeRuleRegistry ruleRegistry;
+
+	public StreamingMultipartResolver(ContentTypeRuleRegistry ruleRegistry, MultipartProperties properties) {
+		this.ruleRegistry = ruleRegistry;
+		setResolveLazily(properties.isResolveLazily());
+	}
+
+	@Override
+	public boolean isMultipart(HttpServletRequest request) {
+		return super.isMultipart(request) && !isStreamed(request);
+	}
+
+	private boolean isStreamed(HttpServletRequest request) {
+		String tenant = ruleRegistry.hasTenantRules() ? request.getHeader(ContentTypeRuleRegistry.TENANT_HEADER) : null;
+		ContentTypeRule rule = ruleRegistry.findRule(request,
+				(ServletRequestPathUtils.hasParsedRequestPath(request)
+						? ServletRequestPathUtils.getParsedRequestPath(request)
+						: ServletRequestPathUtils.parseAndCache(request)).pathWithinApplication(),
+				tenant);
+		return rule != null && rule.validatesParts();
+	}
+
+}
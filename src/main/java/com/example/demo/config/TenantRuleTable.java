@@ -0,0 +1,83 @@
+package com.example.demo.config;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tabla inmutable de reglas de Content-Type por tenant. Cada tenant y cada
+ * endpoint con alguna regla propia tiene un ordinal, y las reglas se guardan
+ * en un unico array plano indexado por {@code tenant * endpoints + endpoint},
+ * por lo que la busqueda son dos accesos a mapa y uno al array, sin
+ * reservar memoria. Las celdas vacias indican que el tenant usa la regla del
+ * metodo.
+ */
+final class TenantRuleTable {
+
+	static final TenantRuleTable EMPTY = new TenantRuleTable(Map.of(), Map.of(), new ContentTypeRule[0]);
+
+	private final Map<String, Integer> tenantOrdinals;
+
+	private final Map<Method, Integer> endpointOrdinals;
+
+	private final ContentTypeRule[] rules;
+
+	private final int width;
+
+	private TenantRuleTable(Map<String, Integer> tenantOrdinals, Map<Method, Integer> endpointOrdinals,
+			ContentTypeRule[] rules) {
+		this.tenantOrdinals = tenantOrdinals;
+		this.endpointOrdinals = endpointOrdinals;
+		this.rules = rules;
+		this.width = endpointOrdinals.size();
+	}
+
+	/**
+	 * Construye la tabla a partir de las reglas de cada tenant por metodo.
+	 */
+	static TenantRuleTable of(Map<String, Map<Method, ContentTypeRule>> tenantRules) {
+		if (tenantRules.isEmpty()) {
+			return EMPTY;
+		}
+		Map<String, Integer> tenantOrdinals = new HashMap<>();
+		Map<Method, Integer> endpointOrdinals = new HashMap<>();
+		for (Map.Entry<String, Map<Method, ContentTypeRule>> tenant : tenantRules.entrySet()) {
+			tenantOrdinals.put(tenant.getKey(), tenantOrdinals.size());
+			for (Method method : tenant.getValue().keySet()) {
+				endpointOrdinals.putIfAbsent(method, endpointOrdinals.size());
+			}
+		}
+		ContentTypeRule[] rules = new ContentTypeRule[tenantOrdinals.size() * endpointOrdinals.size()];
+		tenantRules.forEach((tenant, methodRules) -> {
+			int row = tenantOrdinals.get(tenant) * endpointOrdinals.size();
+			methodRules.forEach((method, rule) -> rules[row + endpointOrdinals.get(method)] = rule);
+		});
+		return new TenantRuleTable(Map.copyOf(tenantOrdinals), Collections.unmodifiableMap(endpointOrdinals), rules);
+	}
+
+	/**
+	 * Devuelve la regla propia del tenant para el metodo o {@code null} si usa
+	 * la regla general.
+	 */
+	ContentTypeRule find(String tenant, Method method) {
+		if (tenant == null || width == 0) {
+			return null;
+		}
+		Integer endpoint = endpointOrdinals.get(method);
+		if (endpoint == null) {
+			return null;
+		}
+		Integer row = tenantOrdinals.get(tenant);
+		return row != null ? rules[row * width + endpoint] : null;
+	}
+
+	boolean isEmpty() {
+		return width == 0;
+	}
+
+	int getTenantCount() {
+		return tenantOrdinals.size();
+	}
+
+}
@@ -0,0 +1,75 @@
+package com.example.demo.config;
+
+import org.apache.tomcat.util.buf.ByteChunk;
+import org.apache.tomcat.util.buf.MessageBytes;
+
+/**
+ * Validacion del header Content-Type directamente sobre los bytes que Tomcat
+ * ha leido de la conexion, sin decodificarlos a {@code String}. Aplica las
+ * mismas reglas que {@link ContentTypeRule#check(String)}: se comprueban la
+ * longitud y el numero de parametros, se toma lo anterior al primer
+ * {@code ';'}, se recortan los caracteres de control y espacios y se compara
+ * sin distinguir mayusculas.
+ * <p>
+ * Solo lo usa {@link ContentTypeValve}, que recibe la {@code Request} del
+ * conector y lee el header de sus {@code MimeHeaders}.
+ */
+final class TomcatContentTypeMatcher {
+
+	private TomcatContentTypeMatcher() {
+	}
+
+	/**
+	 * Devuelve {@code null} si el header es valido o el mensaje de error de la
+	 * regla en caso contrario.
+	 */
+	static String check(ContentTypeRule rule, MessageBytes header) {
+		if (header == null || header.isNull()) {
+			return ContentTypeRule.MISSING_MESSAGE;
+		}
+		if (header.getType() != MessageBytes.T_BYTES) {
+			return rule.check(header.toString());
+		}
+		ByteChunk chunk = header.getByteChunk();
+		byte[] buffer = chunk.getBuffer();
+		int start = chunk.getStart();
+		int end = chunk.getEnd();
+		String error = rule.checkLimits(buffer, start, end);
+		if (error != null) {
+			return error;
+		}
+		for (int i = start; i < end; i++) {
+			if (buffer[i] == ';') {
+				end = i;
+				break;
+			}
+		}
+		while (start < end && (buffer[start] & 0xff) <= ' ') {
+			start++;
+		}
+		while (end > start && (buffer[end - 1] & 0xff) <= ' ') {
+			end--;
+		}
+		if (start == end) {
+			return ContentTypeRule.INVALID_MESSAGE;
+		}
+		return equalsIgnoreCase(rule.getMediaTypeBytes(), buffer, start, end) ? null : rule.getMessage();
+	}
+
+	private static boolean equalsIgnoreCase(byte[] expectedLowerCase, byte[] buffer, int start, int end) {
+		if (end - start != expectedLowerCase.length) {
+			return false;
+		}
+		for (int i = 0; i < expectedLowerCase.length; i++) {
+			int actual = buffer[start + i];
+			if (actual >= 'A' && actual <= 'Z') {
+				actual += 'a' - 'A';
+			}
+			if (actual != expectedLowerCase[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
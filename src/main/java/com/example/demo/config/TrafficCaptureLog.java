@@ -0,0 +1,268 @@
+package com.example.demo.config;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Captura opcional de una muestra de las peticiones que valida
+ * {@link ContentTypeInterceptor} (metodo HTTP, endpoint {@code Clase#metodo},
+ * Content-Type y Content-Encoding) para repetirlas despues en los benchmarks
+ * con la distribucion real de valores.
+ * <p>
+ * Se activa con {@code content-type.capture.file}; se guarda una de cada
+ * {@code content-type.capture.sample-rate} peticiones (100) hasta llenar
+ * {@code content-type.capture.max-size} (64MB). Los registros se escriben en
+ * un fichero mapeado en memoria: cada hilo reserva su hueco con un contador
+ * atomico, sin bloqueos ni llamadas al sistema por peticion.
+ * <p>
+ * Los valores se anonimizan: se conservan tipo, subtipo, nombres de
+ * parametros y el charset, y el resto de valores de parametros (como
+ * {@code boundary}) se sustituyen por {@code x} con la misma longitud. Se
+ * conservan tambien las mayusculas y los espacios.
+ */
+@Component
+public class TrafficCaptureLog implements DisposableBean {
+
+	static final int MAGIC = 0x43544350;
+
+	static final short VERSION = 1;
+
+	static final int HEADER_SIZE = 16;
+
+	static final int MAX_VALUE_LENGTH = 1024;
+
+	private static final int ABSENT = 0xFFFF;
+
+	private static final byte[] NO_ENDPOINT = {};
+
+	private final MappedByteBuffer buffer;
+
+	private final int sampleRate;
+
+	private final AtomicInteger position = new AtomicInteger(HEADER_SIZE);
+
+	private final AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * Se marca la primera vez que un registro no cabe; la posicion sola no
+	 * basta porque con ficheros cercanos a 2GB cualquier valor centinela puede
+	 * caer dentro del buffer.
+	 */
+	private volatile boolean full;
+
+	private final Map<Method, byte[]> endpoints = new ConcurrentHashMap<>();
+
+	public TrafficCaptureLog(Environment environment) {
+		String file = environment.getProperty("content-type.capture.file");
+		this.sampleRate = Math.max(1, environment.getProperty("content-type.capture.sample-rate", Integer.class, 100));
+		this.buffer = file != null && !file.isBlank() ? map(Path.of(file),
+				DataSize.parse(environment.getProperty("content-type.capture.max-size", "64MB")).toBytes())
+				: null;
+	}
+
+	private static MappedByteBuffer map(Path file, long maxSize) {
+		int size = (int) Math.min(Math.max(maxSize, HEADER_SIZE), Integer.MAX_VALUE);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			mapped.putInt(0, MAGIC);
+			mapped.putShort(4, VERSION);
+			return mapped;
+		} catch (IOException ex) {
+			throw new UncheckedIOException("No se puede crear el fichero de captura " + file, ex);
+		}
+	}
+
+	public boolean isEnabled() {
+		return buffer != null;
+	}
+
+	/**
+	 * Guarda la peticion si entra en la muestra y queda sitio en el fichero.
+	 */
+	public void record(HttpServletRequest request, Method method) {
+		if (buffer == null || (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0)) {
+			return;
+		}
+		if (full) {
+			dropped.incrementAndGet();
+			return;
+		}
+		String httpMethod = request.getMethod();
+		byte[] endpoint = method != null ? endpoints.computeIfAbsent(method, TrafficCaptureLog::endpointBytes)
+				: NO_ENDPOINT;
+		String contentType = truncate(request.getHeader(HttpHeaders.CONTENT_TYPE));
+		String contentEncoding = truncate(request.getHeader(HttpHeaders.CONTENT_ENCODING));
+		int length = fieldLength(truncate(httpMethod)) + 2 + endpoint.length + fieldLength(contentType)
+				+ fieldLength(contentEncoding);
+		int start = position.getAndAdd(2 + length);
+		if (start < 0 || start > buffer.capacity() - 2 - length) {
+			// Fichero lleno: no se escribe mas aunque un registro mas corto cupiera
+			full = true;
+			dropped.incrementAndGet();
+			return;
+		}
+		int offset = start + 2;
+		offset = putRaw(offset, truncate(httpMethod));
+		buffer.putShort(offset, (short) endpoint.length);
+		buffer.put(offset + 2, endpoint);
+		offset += 2 + endpoint.length;
+		offset = putAnonymized(offset, contentType);
+		putRaw(offset, contentEncoding);
+		// La longitud se escribe al final: un registro con longitud 0 aun no esta completo
+		buffer.putShort(start, (short) length);
+	}
+
+	private static byte[] endpointBytes(Method method) {
+		return (method.getDeclaringClass().getSimpleName() + "#" + method.getName())
+				.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String truncate(String value) {
+		return value != null && value.length() > MAX_VALUE_LENGTH ? value.substring(0, MAX_VALUE_LENGTH) : value;
+	}
+
+	private static int fieldLength(String value) {
+		return 2 + (value != null ? value.length() : 0);
+	}
+
+	private int putRaw(int offset, String value) {
+		if (value == null) {
+			buffer.putShort(offset, (short) ABSENT);
+			return offset + 2;
+		}
+		buffer.putShort(offset, (short) value.length());
+		for (int i = 0; i < value.length(); i++) {
+			buffer.put(offset + 2 + i, latin1(value.charAt(i)));
+		}
+		return offset + 2 + value.length();
+	}
+
+	private int putAnonymized(int offset, String value) {
+		if (value == null) {
+			return putRaw(offset, null);
+		}
+		buffer.putShort(offset, (short) value.length());
+		int out = offset + 2;
+		int nameStart = -1;
+		boolean inValue = false;
+		boolean keepValue = false;
+		boolean quoted = false;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			byte written = latin1(c);
+			if (inValue) {
+				if (c == '"') {
+					quoted = !quoted;
+				} else if (c == ';' && !quoted) {
+					inValue = false;
+					nameStart = i + 1;
+				} else if (!keepValue && c != ' ' && c != '\t') {
+					written = 'x';
+				}
+			} else if (c == ';') {
+				nameStart = i + 1;
+			} else if (c == '=' && nameStart >= 0) {
+				inValue = true;
+				keepValue = isCharset(value, nameStart, i);
+			}
+			buffer.put(out++, written);
+		}
+		return out;
+	}
+
+	private static boolean isCharset(String value, int from, int to) {
+		while (from < to && (value.charAt(from) == ' ' || value.charAt(from) == '\t')) {
+			from++;
+		}
+		while (to > from && (value.charAt(to - 1) == ' ' || value.charAt(to - 1) == '\t')) {
+			to--;
+		}
+		return to - from == 7 && value.regionMatches(true, from, "charset", 0, 7);
+	}
+
+	private static byte latin1(char c) {
+		return c <= 0xFF ? (byte) c : (byte) '?';
+	}
+
+	/**
+	 * Peticiones descartadas por falta de sitio en el fichero.
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	@Override
+	public void destroy() {
+		if (buffer != null) {
+			buffer.force();
+		}
+	}
+
+	/**
+	 * Lee los registros completos de un fichero de captura, en el orden en que
+	 * se escribieron.
+	 */
+	public static List<CapturedRequest> read(Path file) throws IOException {
+		ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+		if (data.remaining() < HEADER_SIZE || data.getInt(0) != MAGIC || data.getShort(4) != VERSION) {
+			throw new IOException("El fichero " + file + " no es una captura de Content-Type");
+		}
+		List<CapturedRequest> requests = new ArrayList<>();
+		data.position(HEADER_SIZE);
+		while (data.remaining() >= 2) {
+			int length = Short.toUnsignedInt(data.getShort());
+			if (length == 0 || length > data.remaining()) {
+				break;
+			}
+			String httpMethod = readField(data, StandardCharsets.ISO_8859_1);
+			String endpoint = readField(data, StandardCharsets.UTF_8);
+			String contentType = readField(data, StandardCharsets.ISO_8859_1);
+			String contentEncoding = readField(data, StandardCharsets.ISO_8859_1);
+			requests.add(new CapturedRequest(httpMethod, endpoint, contentType, contentEncoding));
+		}
+		return requests;
+	}
+
+	private static String readField(ByteBuffer data, Charset charset) {
+		int length = Short.toUnsignedInt(data.getShort());
+		if (length == ABSENT) {
+			return null;
+		}
+		String value = new String(data.array(), data.position(), length, charset);
+		data.position(data.position() + length);
+		return value;
+	}
+
+	/**
+	 * Peticion capturada. El endpoint es {@code Clase#metodo} y los headers
+	 * ausentes son {@code null}.
+	 */
+	public record CapturedRequest(String httpMethod, String endpoint, String contentType, String contentEncoding) {
+	}
+
+}
@@ -7,6 +7,7 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.RequestMethod;
 
 @Target({ElementType.METHOD, ElementType.TYPE})
 @Retention(RetentionPolicy.RUNTIME)
@@ -15,4 +16,56 @@ public @interface ValidContentType {
 	
     String value() default MediaType.APPLICATION_JSON_VALUE;
 
-}
\ No newline at end of file
+    /**
+     * Metodos HTTP a los que se aplica la validacion. Por defecto solo los que
+     * llevan cuerpo; el resto de peticiones no se validan. No puede estar
+     * vacio.
+     */
+    RequestMethod[] methods() default { RequestMethod.POST, RequestMethod.PUT, RequestMethod.PATCH };
+
+    /**
+     * Patrones de ruta ({@code PathPattern}) a los que se limita la validacion.
+     * Vacio significa todas las rutas del handler.
+     */
+    String[] includePaths() default {};
+
+    /**
+     * Patrones de ruta ({@code PathPattern}) excluidos de la validacion.
+     */
+    String[] excludePaths() default {};
+
+    /**
+     * Codificaciones de {@code Content-Encoding} aceptadas ({@code gzip},
+     * {@code deflate}); el cuerpo se descomprime al leerlo con los limites de
+     * {@code ContentEncodingFilter}. Vacio significa que el header no se
+     * valida ni se descomprime el cuerpo.
+     */
+    String[] allowedEncodings() default {};
+
+    /**
+     * Content-Type aceptados en cada parte de un cuerpo multipart; solo se
+     * admite si {@link #value()} es {@code multipart/*}. Las partes se validan
+     * a medida que llegan al leerlas con un argumento {@code MultipartStream}.
+     * Vacio significa que las partes no se validan.
+     */
+    String[] partTypes() default {};
+
+    /**
+     * Longitud maxima del header Content-Type. Se comprueba, junto con
+     * {@link #maxParameters()}, antes de interpretar el valor.
+     */
+    int maxLength() default 1024;
+
+    /**
+     * Numero maximo de parametros ({@code ;}) del header Content-Type.
+     */
+    int maxParameters() default 8;
+
+    /**
+     * {@link ValidationMode#SHADOW} permite desplegar una regla nueva sin
+     * rechazar peticiones: solo se contabilizan los rechazos que se habrian
+     * producido ({@code /actuator/contenttypeshadow}).
+     */
+    ValidationMode mode() default ValidationMode.ENFORCE;
+
+}
@@ -0,0 +1,49 @@
+package com.example.demo.config;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.aot.hint.ExecutableMode;
+import org.springframework.beans.factory.aot.BeanRegistrationAotContribution;
+import org.springframework.beans.factory.aot.BeanRegistrationAotProcessor;
+import org.springframework.beans.factory.support.RegisteredBean;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+
+/**
+ * Procesa en tiempo de build (Spring AOT) los beans con metodos anotados con
+ * {@link ValidContentType}: compila cada declaracion para que un valor
+ * incorrecto rompa el build en lugar del arranque, y registra los metodos
+ * para introspeccion en la imagen nativa.
+ */
+class ValidContentTypeAotProcessor implements BeanRegistrationAotProcessor {
+
+	@Override
+	public BeanRegistrationAotContribution processAheadOfTime(RegisteredBean registeredBean) {
+		Class<?> beanClass = registeredBean.getBeanClass();
+		Map<Method, ValidContentType> annotated = MethodIntrospector.selectMethods(beanClass,
+				(MethodIntrospector.MetadataLookup<ValidContentType>) method -> AnnotatedElementUtils
+						.findMergedAnnotation(method, ValidContentType.class));
+		if (annotated.isEmpty()) {
+			return null;
+		}
+		List<String> errors = new ArrayList<>();
+		annotated.forEach((method, annotation) -> {
+			try {
+				ContentTypeRule.compile(annotation);
+			} catch (IllegalArgumentException ex) {
+				errors.add(method + ": " + ex.getMessage());
+			}
+		});
+		if (!errors.isEmpty()) {
+			throw new IllegalStateException("Declaraciones de @ValidContentType inválidas:\n  "
+					+ String.join("\n  ", errors));
+		}
+		return (generationContext, beanRegistrationCode) -> annotated.keySet()
+				.forEach(method -> generationContext.getRuntimeHints().reflection()
+						.registerMethod(method, ExecutableMode.INTROSPECT));
+	}
+
+}
@@ -0,0 +1,18 @@
+package com.example.demo.config;
+
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Hints para la imagen nativa: la anotacion {@link ValidContentType} se lee por
+ * reflexion al construir el indice de reglas en el arranque.
+ */
+public class ValidContentTypeRuntimeHints implements RuntimeHintsRegistrar {
+
+	@Override
+	public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+		hints.reflection().registerType(ValidContentType.class, MemberCategory.INVOKE_PUBLIC_METHODS);
+	}
+
+}
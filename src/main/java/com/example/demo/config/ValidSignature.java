@@ -0,0 +1,21 @@
+package com.example.demo.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Exige que el cuerpo de la peticion venga firmado con HMAC en el header
+ * {@value SignatureBodyAdvice#SIGNATURE_HEADER} (en hexadecimal). El handler
+ * debe recibir el cuerpo en un parametro {@code @RequestBody} o
+ * {@code HttpEntity} y debe estar configurado
+ * {@code request.signature.secret}; si no, la aplicacion no arranca.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ValidSignature {
+
+}
@@ -0,0 +1,19 @@
+package com.example.demo.config;
+
+/**
+ * Modo de aplicacion de una regla de {@link ValidContentType}.
+ */
+public enum ValidationMode {
+
+	/**
+	 * Las peticiones que no cumplen la regla se rechazan con 400.
+	 */
+	ENFORCE,
+
+	/**
+	 * La regla se evalua pero no rechaza: solo contabiliza las peticiones que
+	 * se habrian rechazado y guarda una muestra de sus headers.
+	 */
+	SHADOW
+
+}
@@ -1,24 +1,38 @@
 package com.example.demo.config;
 
+import java.util.List;
+
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+	static final String[] EXCLUDED_PATHS = { "/error", "/actuator/**" };
+
 //    @Autowired
 //    private ContentTypeInterceptor contentTypeInterceptor;
 
 	private final ContentTypeInterceptor contentTypeInterceptor;
 
-	public WebConfig(ContentTypeInterceptor contentTypeInterceptor) {
+	private final MultipartStreamArgumentResolver multipartStreamArgumentResolver;
+
+	public WebConfig(ContentTypeInterceptor contentTypeInterceptor,
+			MultipartStreamArgumentResolver multipartStreamArgumentResolver) {
 		this.contentTypeInterceptor = contentTypeInterceptor;
+		this.multipartStreamArgumentResolver = multipartStreamArgumentResolver;
 	}
 
 	@Override
 	public void addInterceptors(InterceptorRegistry registry) {
-		registry.addInterceptor(contentTypeInterceptor);
+		registry.addInterceptor(contentTypeInterceptor).excludePathPatterns(EXCLUDED_PATHS);
+	}
+
+	@Override
+	public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+		resolvers.add(multipartStreamArgumentResolver);
 	}
 
-}
\ No newline at end of file
+}
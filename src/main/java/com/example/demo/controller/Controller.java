@@ -1,11 +1,24 @@
 package com.example.demo.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.demo.config.Bulkhead;
+import com.example.demo.config.Idempotent;
+import com.example.demo.config.MultipartStream;
+import com.example.demo.config.NdjsonBatchValidator;
+import com.example.demo.config.NdjsonBatchValidator.BatchResult;
+import com.example.demo.config.ResponseContentType;
 import com.example.demo.config.ValidContentType;
 
 @RestController
@@ -14,6 +27,17 @@ public class Controller {
 
 	private static final String EXPECTED_CONTENT_TYPE = "application/custom-type";
 
+	private static final String TEXT_RESPONSE = "text/plain;charset=UTF-8";
+
+	// Los endpoints asincronos mantienen la peticion abierta mientras se procesan
+	private static final int ASYNC_MAX_CONCURRENT = 64;
+
+	private final NdjsonBatchValidator batchValidator;
+
+	public Controller(NdjsonBatchValidator batchValidator) {
+		this.batchValidator = batchValidator;
+	}
+
 	/**
 	 * Llamada valida:
 	 	curl --location 'http://localhost:8080/api/content-type-value' \
@@ -26,6 +50,8 @@ public class Controller {
 	 	--data '{"dato":"ejemplo"}'	 	
 	 */
 	@ValidContentType(EXPECTED_CONTENT_TYPE) // Sustituye "application/custom-type" por el valor deseado
+	@Idempotent
+	@ResponseContentType(TEXT_RESPONSE)
 	@PostMapping("/content-type-value")
 	public ResponseEntity<String> contentTypeValue(@RequestBody String datos) {
 		return ResponseEntity.ok("Datos procesados correctamente");
@@ -43,9 +69,84 @@ public class Controller {
 	 	--data '{"dato":"ejemplo"}' }'
 	 */
 	@ValidContentType
+	@ResponseContentType(TEXT_RESPONSE)
 	@PostMapping("/content-type-not-value")
 	public ResponseEntity<String> contentTypNotValue(@RequestBody String datos) {
 		return ResponseEntity.ok("Datos procesados correctamente");
 	}
 
+	/**
+	 * Variante asincrona (Callable) de /content-type-value. El Content-Type se
+	 * valida solo en el dispatch inicial, no en el dispatch ASYNC.
+	 	curl --location 'http://localhost:8080/api/async/content-type-value' \
+	  	--header 'Content-Type: application/custom-type' \
+	  	--data '{"dato":"ejemplo"}'
+	 */
+	@ValidContentType(EXPECTED_CONTENT_TYPE)
+	@Bulkhead(maxConcurrent = ASYNC_MAX_CONCURRENT)
+	@ResponseContentType(TEXT_RESPONSE)
+	@PostMapping("/async/content-type-value")
+	public Callable<ResponseEntity<String>> asyncContentTypeValue(@RequestBody String datos) {
+		return () -> ResponseEntity.ok("Datos procesados correctamente");
+	}
+
+	/**
+	 * Variante asincrona (CompletableFuture) de /content-type-not-value.
+	 	curl --location 'http://localhost:8080/api/async/content-type-not-value' \
+	 	--header 'Content-Type: application/json' \
+	 	--data '{"dato":"ejemplo"}'
+	 */
+	@ValidContentType
+	@Bulkhead(maxConcurrent = ASYNC_MAX_CONCURRENT)
+	@ResponseContentType(TEXT_RESPONSE)
+	@PostMapping("/async/content-type-not-value")
+	public CompletableFuture<ResponseEntity<String>> asyncContentTypNotValue(@RequestBody String datos) {
+		return CompletableFuture.supplyAsync(() -> ResponseEntity.ok("Datos procesados correctamente"));
+	}
+
+	/**
+	 * Lote de registros JSON, uno por linea, validados uno a uno. Responde con
+	 * los totales y un caracter de estado por registro (A aceptado, I invalido,
+	 * L demasiado largo). Admite el cuerpo comprimido con gzip.
+	 	curl --location 'http://localhost:8080/api/batch' \
+	 	--header 'Content-Type: application/x-ndjson' \
+	 	--data-binary $'{"dato":"uno"}\n{"dato":"dos"}\n'
+
+	 	printf '{"dato":"uno"}\n' | gzip | curl --location 'http://localhost:8080/api/batch' \
+	 	--header 'Content-Type: application/x-ndjson' --header 'Content-Encoding: gzip' \
+	 	--data-binary @-
+	 */
+	@ValidContentType(value = NdjsonBatchValidator.NDJSON, allowedEncodings = "gzip")
+	@ResponseContentType(MediaType.APPLICATION_JSON_VALUE)
+	@PostMapping("/batch")
+	public ResponseEntity<BatchResult> batch(InputStream body) throws IOException {
+		return ResponseEntity.ok(batchValidator.validate(body));
+	}
+
+	/**
+	 * Subida multipart de imagenes PNG. Cada parte se valida al llegar y la
+	 * primera que no sea image/png corta la subida con 400 sin leer su
+	 * contenido; nada se escribe a disco.
+	 	curl --location 'http://localhost:8080/api/upload' \
+	 	--form 'imagen=@foto.png;type=image/png'
+	 */
+	@ValidContentType(value = MediaType.MULTIPART_FORM_DATA_VALUE, partTypes = MediaType.IMAGE_PNG_VALUE)
+	@ResponseContentType(MediaType.APPLICATION_JSON_VALUE)
+	@PostMapping("/upload")
+	public ResponseEntity<UploadResult> upload(MultipartStream parts) throws IOException {
+		int count = 0;
+		long bytes = 0;
+		for (MultipartStream.Part part = parts.next(); part != null; part = parts.next()) {
+			count++;
+			bytes += part.getInputStream().transferTo(OutputStream.nullOutputStream());
+		}
+		return ResponseEntity.ok(new UploadResult(count, bytes));
+	}
+
+	/**
+	 * Partes recibidas y bytes leidos de su contenido.
+	 */
+	public record UploadResult(int parts, long bytes) {
+	}
+
 }
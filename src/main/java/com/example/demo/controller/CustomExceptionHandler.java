@@ -1,6 +1,12 @@
 package com.example.demo.controller;
 
+import com.example.demo.config.BulkheadFullException;
+import com.example.demo.config.DecompressionLimitException;
+import com.example.demo.config.IdempotencyConflictException;
 import com.example.demo.config.InvalidContentTypeException;
+import com.example.demo.config.InvalidResponseContentTypeException;
+import com.example.demo.config.InvalidSignatureException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -12,5 +18,30 @@ public class CustomExceptionHandler {
     public ResponseEntity<String> handleInvalidContentTypeException(InvalidContentTypeException ex) {
         return ResponseEntity.badRequest().body(ex.getMessage());
     }
+
+    @ExceptionHandler(InvalidResponseContentTypeException.class)
+    public ResponseEntity<String> handleInvalidResponseContentTypeException(InvalidResponseContentTypeException ex) {
+        return ResponseEntity.internalServerError().body(ex.getMessage());
+    }
+
+    @ExceptionHandler(InvalidSignatureException.class)
+    public ResponseEntity<String> handleInvalidSignatureException(InvalidSignatureException ex) {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<String> handleIdempotencyConflictException(IdempotencyConflictException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(DecompressionLimitException.class)
+    public ResponseEntity<String> handleDecompressionLimitException(DecompressionLimitException ex) {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(BulkheadFullException.class)
+    public ResponseEntity<String> handleBulkheadFullException(BulkheadFullException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(ex.getMessage());
+    }
  
 }
\ No newline at end of file
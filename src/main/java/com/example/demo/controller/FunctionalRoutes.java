@@ -0,0 +1,41 @@
+package com.example.demo.controller;
+
+import static com.example.demo.config.ContentTypeFilterFunction.validContentType;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.function.RouterFunction;
+import org.springframework.web.servlet.function.RouterFunctions;
+import org.springframework.web.servlet.function.ServerResponse;
+
+/**
+ * Endpoints funcionales equivalentes a los de {@link Controller}, con la
+ * validacion de Content-Type aplicada como filtro de la ruta.
+ */
+@Configuration
+public class FunctionalRoutes {
+
+	private static final String EXPECTED_CONTENT_TYPE = "application/custom-type";
+
+	/**
+	 * Llamada valida:
+	 	curl --location 'http://localhost:8080/api/functional/content-type-value' \
+	  	--header 'Content-Type: application/custom-type' \
+	  	--data '{"dato":"ejemplo"}'
+	 */
+	@Bean
+	public RouterFunction<ServerResponse> contentTypeRoutes() {
+		return RouterFunctions.route()
+				.POST("/api/functional/content-type-value",
+						request -> ServerResponse.ok().body("Datos procesados correctamente"))
+				.filter(validContentType(EXPECTED_CONTENT_TYPE))
+				.build()
+				.and(RouterFunctions.route()
+						.POST("/api/functional/content-type-not-value",
+								request -> ServerResponse.ok().body("Datos procesados correctamente"))
+						.filter(validContentType(MediaType.APPLICATION_JSON_VALUE))
+						.build());
+	}
+
+}
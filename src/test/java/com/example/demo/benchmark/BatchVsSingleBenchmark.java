@@ -0,0 +1,81 @@
+package com.example.demo.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.example.demo.SpringBootValidHeadContentTypeApplication;
+
+/**
+ * Registros por segundo enviando {@value #RECORDS} registros como POST
+ * individuales a {@code /api/content-type-not-value} frente a un unico lote
+ * NDJSON a {@code /api/batch}, ambos por MockMvc sobre el mismo
+ * DispatcherServlet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BatchVsSingleBenchmark {
+
+	private static final int RECORDS = 100;
+
+	private static final String RECORD = "{\"dato\":\"ejemplo\"}";
+
+	private ConfigurableApplicationContext context;
+
+	private MockMvc mockMvc;
+
+	private RequestBuilder single;
+
+	private RequestBuilder batch;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = new SpringApplicationBuilder(SpringBootValidHeadContentTypeApplication.class)
+				.properties("server.port=0", "logging.level.root=warn", "spring.main.banner-mode=off")
+				.run();
+		mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+		single = MockMvcRequestBuilders.post("/api/content-type-not-value")
+				.header(HttpHeaders.CONTENT_TYPE, "application/json").content(RECORD);
+		batch = MockMvcRequestBuilders.post("/api/batch")
+				.header(HttpHeaders.CONTENT_TYPE, "application/x-ndjson").content((RECORD + "\n").repeat(RECORDS));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(RECORDS)
+	public void singleRecordPosts(Blackhole blackhole) throws Exception {
+		for (int i = 0; i < RECORDS; i++) {
+			blackhole.consume(mockMvc.perform(single).andReturn());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(RECORDS)
+	public void ndjsonBatch(Blackhole blackhole) throws Exception {
+		blackhole.consume(mockMvc.perform(batch).andReturn());
+	}
+
+}
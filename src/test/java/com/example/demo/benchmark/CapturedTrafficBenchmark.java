@@ -0,0 +1,230 @@
+package com.example.demo.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import com.example.demo.SpringBootValidHeadContentTypeApplication;
+import com.example.demo.config.ContentTypeRule;
+import com.example.demo.config.ContentTypeRuleRegistry;
+import com.example.demo.config.TrafficCaptureLog;
+import com.example.demo.config.TrafficCaptureLog.CapturedRequest;
+
+/**
+ * Repite una captura de {@link TrafficCaptureLog}
+ * ({@code -p capture=<fichero>}) en orden y en bucle: {@code validate} solo
+ * comprueba el Content-Type con la regla de cada endpoint y
+ * {@code replayHttp} envia las peticiones a Tomcat con sus headers y un cuerpo
+ * acorde a ellos: JSON, o un multipart con el boundary capturado y una parte
+ * que acepta la regla, comprimido si hay Content-Encoding. Se descartan los
+ * registros de endpoints que ya no existen o cuya ruta tiene variables.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CapturedTrafficBenchmark {
+
+	@Param("")
+	public String capture;
+
+	private ConfigurableApplicationContext context;
+
+	private HttpClient client;
+
+	private ContentTypeRule[] rules;
+
+	private String[] contentTypes;
+
+	private HttpRequest[] requests;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		if (capture.isBlank()) {
+			throw new IllegalStateException("Falta el fichero de captura: -p capture=<fichero>");
+		}
+		List<CapturedRequest> captured = TrafficCaptureLog.read(Path.of(capture));
+		context = new SpringApplicationBuilder(SpringBootValidHeadContentTypeApplication.class)
+				.properties("server.port=0", "logging.level.root=warn", "spring.main.banner-mode=off")
+				.run();
+		int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+		Map<String, Endpoint> endpoints = endpoints(context, "http://localhost:" + port);
+		List<ContentTypeRule> rules = new ArrayList<>();
+		List<String> contentTypes = new ArrayList<>();
+		List<HttpRequest> requests = new ArrayList<>();
+		for (CapturedRequest request : captured) {
+			Endpoint endpoint = endpoints.get(request.endpoint());
+			if (endpoint == null) {
+				continue;
+			}
+			rules.add(endpoint.rule());
+			contentTypes.add(request.contentType());
+			requests.add(httpRequest(endpoint, request));
+		}
+		if (rules.isEmpty()) {
+			throw new IllegalStateException("La captura " + capture + " no tiene peticiones a endpoints actuales");
+		}
+		this.rules = rules.toArray(new ContentTypeRule[0]);
+		this.contentTypes = contentTypes.toArray(new String[0]);
+		this.requests = requests.toArray(new HttpRequest[0]);
+		client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+	}
+
+	private static Map<String, Endpoint> endpoints(ConfigurableApplicationContext context, String baseUrl) {
+		ContentTypeRuleRegistry registry = context.getBean(ContentTypeRuleRegistry.class);
+		Map<String, Endpoint> endpoints = new HashMap<>();
+		context.getBeansOfType(RequestMappingHandlerMapping.class).values()
+				.forEach(mapping -> mapping.getHandlerMethods().forEach((info, handlerMethod) -> {
+					Method method = handlerMethod.getMethod();
+					info.getPatternValues().stream().filter(pattern -> !pattern.contains("{")).findFirst()
+							.ifPresent(pattern -> endpoints.putIfAbsent(
+									method.getDeclaringClass().getSimpleName() + "#" + method.getName(),
+									new Endpoint(URI.create(baseUrl + pattern), registry.getRule(method))));
+				}));
+		return endpoints;
+	}
+
+	private static HttpRequest httpRequest(Endpoint endpoint, CapturedRequest request) {
+		byte[] body = encode(body(endpoint.rule(), request.contentType()), request.contentEncoding());
+		HttpRequest.Builder builder = HttpRequest.newBuilder(endpoint.uri())
+				.method(request.httpMethod(), HttpRequest.BodyPublishers.ofByteArray(body));
+		if (request.contentType() != null) {
+			builder.header(HttpHeaders.CONTENT_TYPE, request.contentType());
+		}
+		if (request.contentEncoding() != null) {
+			builder.header(HttpHeaders.CONTENT_ENCODING, request.contentEncoding());
+		}
+		return builder.build();
+	}
+
+	private static byte[] body(ContentTypeRule rule, String contentType) {
+		String boundary = boundary(contentType);
+		if (boundary == null) {
+			return "{}".getBytes(StandardCharsets.UTF_8);
+		}
+		String part = "--" + boundary + "\r\n"
+				+ "Content-Disposition: form-data; name=\"file\"; filename=\"captura\"\r\n"
+				+ "Content-Type: " + partType(rule) + "\r\n\r\n"
+				+ "contenido\r\n"
+				+ "--" + boundary + "--\r\n";
+		return part.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * El boundary anonimizado conserva su longitud y sigue siendo valido.
+	 */
+	private static String boundary(String contentType) {
+		if (contentType == null) {
+			return null;
+		}
+		try {
+			MediaType mediaType = MediaType.parseMediaType(contentType);
+			String boundary = mediaType.getParameter("boundary");
+			if (!"multipart".equalsIgnoreCase(mediaType.getType()) || boundary == null) {
+				return null;
+			}
+			return boundary.length() > 1 && boundary.startsWith("\"") && boundary.endsWith("\"")
+					? boundary.substring(1, boundary.length() - 1) : boundary;
+		} catch (IllegalArgumentException ex) {
+			return null;
+		}
+	}
+
+	private static String partType(ContentTypeRule rule) {
+		for (String candidate : new String[] { MediaType.IMAGE_PNG_VALUE, MediaType.APPLICATION_JSON_VALUE,
+				MediaType.TEXT_PLAIN_VALUE }) {
+			if (rule == null || rule.checkPart(candidate) == null) {
+				return candidate;
+			}
+		}
+		return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+	}
+
+	private static byte[] encode(byte[] body, String contentEncoding) {
+		String coding = contentEncoding != null ? contentEncoding.trim() : "";
+		ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+		try {
+			if (coding.equalsIgnoreCase("gzip") || coding.equalsIgnoreCase("x-gzip")) {
+				try (OutputStream out = new GZIPOutputStream(encoded)) {
+					out.write(body);
+				}
+			} else if (coding.equalsIgnoreCase("deflate")) {
+				try (OutputStream out = new DeflaterOutputStream(encoded)) {
+					out.write(body);
+				}
+			} else {
+				return body;
+			}
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		return encoded.toByteArray();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@State(Scope.Thread)
+	public static class Cursor {
+
+		private int next;
+
+		int next(int length) {
+			int current = next;
+			next = current + 1 == length ? 0 : current + 1;
+			return current;
+		}
+
+	}
+
+	@Benchmark
+	public String validate(Cursor cursor) {
+		int index = cursor.next(rules.length);
+		return rules[index].check(contentTypes[index]);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public int replayHttp(Cursor cursor) throws Exception {
+		return client.send(requests[cursor.next(requests.length)], HttpResponse.BodyHandlers.discarding())
+				.statusCode();
+	}
+
+	private record Endpoint(URI uri, ContentTypeRule rule) {
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.example.demo.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.example.demo.SpringBootValidHeadContentTypeApplication;
+
+/**
+ * Compara el coste de una peticion valida por el endpoint anotado de
+ * {@code Controller} (interceptor + HandlerMethod) frente al endpoint
+ * funcional con {@code ContentTypeFilterFunction}, ambos sobre el mismo
+ * DispatcherServlet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ControllerVsFunctionalBenchmark {
+
+	private ConfigurableApplicationContext context;
+
+	private MockMvc mockMvc;
+
+	private RequestBuilder annotated;
+
+	private RequestBuilder functional;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = new SpringApplicationBuilder(SpringBootValidHeadContentTypeApplication.class)
+				.properties("server.port=0", "logging.level.root=warn", "spring.main.banner-mode=off")
+				.run();
+		mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+		annotated = MockMvcRequestBuilders.post("/api/content-type-value")
+				.header(HttpHeaders.CONTENT_TYPE, "application/custom-type").content("{}");
+		functional = MockMvcRequestBuilders.post("/api/functional/content-type-value")
+				.header(HttpHeaders.CONTENT_TYPE, "application/custom-type").content("{}");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public MvcResult annotatedController() throws Exception {
+		return mockMvc.perform(annotated).andReturn();
+	}
+
+	@Benchmark
+	public MvcResult functionalRoute() throws Exception {
+		return mockMvc.perform(functional).andReturn();
+	}
+
+}
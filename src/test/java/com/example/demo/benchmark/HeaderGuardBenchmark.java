@@ -0,0 +1,73 @@
+package com.example.demo.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.example.demo.config.ContentTypeRule;
+
+/**
+ * Coste de validar el header Content-Type segun su forma: un valor normal,
+ * uno con el maximo de parametros permitido, el mas largo que admiten los
+ * limites y dos valores de 8KB pensados para provocar el peor caso ({@code ;}
+ * repetidos o un unico token). Compara
+ * {@link ContentTypeRule#check(String)}, que comprueba antes longitud y
+ * numero de parametros, con la version anterior basada en
+ * {@code split(";")}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HeaderGuardBenchmark {
+
+	@Param({ "valid", "maxParameters", "atLimits", "semicolons", "longToken" })
+	public String header;
+
+	private final ContentTypeRule rule = ContentTypeRule.compile("application/json");
+
+	private String value;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		value = switch (header) {
+			case "valid" -> "application/json; charset=UTF-8";
+			case "maxParameters" -> "application/json" + "; a=b".repeat(8);
+			case "atLimits" -> atLimits();
+			case "semicolons" -> ";".repeat(8192);
+			case "longToken" -> "a".repeat(8192);
+			default -> throw new IllegalArgumentException(header);
+		};
+	}
+
+	/**
+	 * El peor valor aceptado por los limites por defecto: 1024 caracteres y
+	 * 8 parametros.
+	 */
+	private static String atLimits() {
+		StringBuilder value = new StringBuilder("application/json").append("; a=b".repeat(7)).append("; a=");
+		return value.append("b".repeat(1024 - value.length())).toString();
+	}
+
+	@Benchmark
+	public String guarded() {
+		return rule.check(value);
+	}
+
+	@Benchmark
+	public String split() {
+		String[] parts = value.split(";");
+		if (parts.length == 0 || parts[0].trim().isEmpty()) {
+			return "invalido";
+		}
+		return rule.getMediaType().equalsIgnoreCase(parts[0].trim()) ? null : rule.getMessage();
+	}
+
+}
@@ -0,0 +1,86 @@
+package com.example.demo.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.example.demo.config.MacPool;
+import com.example.demo.config.SigningInputStream;
+
+/**
+ * Coste de verificar la firma HMAC-SHA256 del cuerpo segun su tamano:
+ * {@code Mac.getInstance} por peticion leyendo antes el cuerpo entero frente
+ * a {@link MacPool} firmando mientras se lee el stream por bloques.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SignatureBenchmark {
+
+	private static final byte[] KEY = "clave-de-benchmark".getBytes(StandardCharsets.UTF_8);
+
+	@Param({ "64", "1024", "16384", "262144" })
+	public int payloadSize;
+
+	private byte[] body;
+
+	private byte[] signature;
+
+	private MacPool pool;
+
+	@Setup(Level.Trial)
+	public void setUp() throws GeneralSecurityException {
+		body = new byte[payloadSize];
+		Arrays.fill(body, (byte) 'x');
+		Mac mac = Mac.getInstance("HmacSHA256");
+		mac.init(new SecretKeySpec(KEY, "HmacSHA256"));
+		signature = mac.doFinal(body);
+		pool = new MacPool("HmacSHA256", KEY, 8);
+	}
+
+	@State(Scope.Thread)
+	public static class ReadBuffer {
+
+		final byte[] bytes = new byte[8192];
+
+	}
+
+	@Benchmark
+	public boolean macPerRequest() throws IOException, GeneralSecurityException {
+		byte[] read = new ByteArrayInputStream(body).readAllBytes();
+		Mac mac = Mac.getInstance("HmacSHA256");
+		mac.init(new SecretKeySpec(KEY, "HmacSHA256"));
+		return MessageDigest.isEqual(mac.doFinal(read), signature);
+	}
+
+	@Benchmark
+	public boolean pooledStreaming(ReadBuffer buffer) throws IOException {
+		MacPool.PooledMac mac = pool.acquire();
+		try (SigningInputStream in = new SigningInputStream(new ByteArrayInputStream(body), mac)) {
+			while (in.read(buffer.bytes, 0, buffer.bytes.length) != -1) {
+				// el conversor consumiria aqui el cuerpo
+			}
+			return mac.matches(signature);
+		} finally {
+			pool.release(mac);
+		}
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.example.demo.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+
+import com.example.demo.SpringBootValidHeadContentTypeApplication;
+
+/**
+ * Throughput de peticiones HTTP reales contra Tomcat rechazadas por
+ * Content-Type invalido, con la validacion en {@code ContentTypeValve}
+ * ({@code valve=true}) o en {@code ContentTypeInterceptor}
+ * ({@code valve=false}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+public class ValveVsInterceptorBenchmark {
+
+	@Param({ "true", "false" })
+	private boolean valve;
+
+	private ConfigurableApplicationContext context;
+
+	private HttpClient client;
+
+	private HttpRequest rejected;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = new SpringApplicationBuilder(SpringBootValidHeadContentTypeApplication.class)
+				.properties("server.port=0", "logging.level.root=warn", "spring.main.banner-mode=off",
+						"content-type.validation.valve.enabled=" + valve)
+				.run();
+		int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+		client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+		rejected = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/content-type-value"))
+				.header(HttpHeaders.CONTENT_TYPE, "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString("{\"dato\":\"ejemplo\"}"))
+				.build();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public int rejectInvalidContentType() throws Exception {
+		return client.send(rejected, HttpResponse.BodyHandlers.discarding()).statusCode();
+	}
+
+}
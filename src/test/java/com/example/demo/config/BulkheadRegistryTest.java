@@ -0,0 +1,141 @@
+package com.example.demo.config;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BulkheadRegistryTest {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void rejectsOnceLimitIsReached() throws Exception {
+		BulkheadRegistry registry = registryFor(new ValidHandlers());
+		registry.afterSingletonsInstantiated();
+		Method limited = ValidHandlers.class.getMethod("limited");
+
+		registry.acquire(new MockHttpServletRequest(), limited);
+		registry.acquire(new MockHttpServletRequest(), limited);
+		BulkheadFullException exception = assertThrows(BulkheadFullException.class,
+				() -> registry.acquire(new MockHttpServletRequest(), limited));
+
+		assertEquals("Demasiadas peticiones concurrentes en ValidHandlers#limited", exception.getMessage());
+	}
+
+	@Test
+	void releasesPermitOnCompletion() throws Exception {
+		BulkheadRegistry registry = registryFor(new ValidHandlers());
+		registry.afterSingletonsInstantiated();
+		Method limited = ValidHandlers.class.getMethod("limited");
+		EndpointBulkhead bulkhead = registry.getBulkheads().get(limited);
+		MockHttpServletRequest request = new MockHttpServletRequest();
+
+		registry.acquire(request, limited);
+		assertEquals(1, bulkhead.getInFlight());
+
+		registry.release(request);
+		registry.release(request);
+		assertEquals(0, bulkhead.getInFlight());
+	}
+
+	@Test
+	void acquiresOncePerRequestAcrossDispatches() throws Exception {
+		BulkheadRegistry registry = registryFor(new ValidHandlers());
+		registry.afterSingletonsInstantiated();
+		Method limited = ValidHandlers.class.getMethod("limited");
+		MockHttpServletRequest request = new MockHttpServletRequest();
+
+		registry.acquire(request, limited);
+		registry.acquire(request, limited);
+
+		assertEquals(1, registry.getBulkheads().get(limited).getInFlight());
+	}
+
+	@Test
+	void ignoresMethodsWithoutBulkhead() throws Exception {
+		BulkheadRegistry registry = registryFor(new ValidHandlers());
+		registry.afterSingletonsInstantiated();
+		MockHttpServletRequest request = new MockHttpServletRequest();
+
+		assertDoesNotThrow(() -> registry.acquire(request, ValidHandlers.class.getMethod("unlimited")));
+		assertDoesNotThrow(() -> registry.acquire(request, null));
+		assertEquals(1, registry.getBulkheads().size());
+	}
+
+	@Test
+	void exportsConcurrencyGauges() throws Exception {
+		BulkheadRegistry registry = registryFor(new ValidHandlers());
+		registry.afterSingletonsInstantiated();
+
+		registry.acquire(new MockHttpServletRequest(), ValidHandlers.class.getMethod("limited"));
+
+		assertEquals(1, meterRegistry.get("http.server.bulkhead.concurrent")
+				.tag("endpoint", "ValidHandlers#limited").gauge().value());
+		assertEquals(2, meterRegistry.get("http.server.bulkhead.max")
+				.tag("endpoint", "ValidHandlers#limited").gauge().value());
+	}
+
+	@Test
+	void failsOnInvalidDeclarations() {
+		BulkheadRegistry registry = registryFor(new InvalidHandlers());
+
+		IllegalStateException exception = assertThrows(IllegalStateException.class,
+				registry::afterSingletonsInstantiated);
+
+		assertTrue(exception.getMessage().contains("zero"));
+	}
+
+	private BulkheadRegistry registryFor(Object bean) {
+		RequestMappingHandlerMapping mapping = mock(RequestMappingHandlerMapping.class);
+		Map<RequestMappingInfo, HandlerMethod> handlerMethods = new HashMap<>();
+		for (Method method : bean.getClass().getDeclaredMethods()) {
+			handlerMethods.put(RequestMappingInfo.paths("/" + method.getName()).build(),
+					new HandlerMethod(bean, method));
+		}
+		when(mapping.getHandlerMethods()).thenReturn(handlerMethods);
+
+		ApplicationContext context = mock(ApplicationContext.class);
+		when(context.getBeansOfType(RequestMappingHandlerMapping.class)).thenReturn(Map.of("mapping", mapping));
+		DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+		beanFactory.registerSingleton("meterRegistry", meterRegistry);
+		return new BulkheadRegistry(context, beanFactory.getBeanProvider(MeterRegistry.class));
+	}
+
+	static class ValidHandlers {
+
+		@Bulkhead(maxConcurrent = 2)
+		public void limited() {
+		}
+
+		public void unlimited() {
+		}
+
+	}
+
+	static class InvalidHandlers {
+
+		@Bulkhead(maxConcurrent = 0)
+		public void zero() {
+		}
+
+	}
+
+}
@@ -0,0 +1,152 @@
+package com.example.demo.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContentEncodingFilterTest {
+
+	private static final String BODY = "{\"dato\":\"ejemplo\"}";
+
+	private final ContentEncodingFilter filter = new ContentEncodingFilter(new MockEnvironment());
+
+	@Test
+	void readerReturnsDecodedBody() throws Exception {
+		MockHttpServletRequest request = gzipRequest();
+		String[] line = new String[1];
+
+		filter.doFilter(request, new MockHttpServletResponse(),
+				(req, res) -> line[0] = ((HttpServletRequest) req).getReader().readLine());
+
+		assertEquals(BODY, line[0]);
+	}
+
+	@Test
+	void nonBlockingReadWaitsForTheWholeCompressedBody() throws Exception {
+		ListenableInputStream raw = new ListenableInputStream(gzip(BODY));
+		MockHttpServletRequest request = new MockHttpServletRequest() {
+
+			@Override
+			public ServletInputStream getInputStream() {
+				return raw;
+			}
+
+		};
+		markForDecoding(request);
+		ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+		boolean[] allRead = new boolean[1];
+
+		filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+			ServletInputStream in = req.getInputStream();
+			in.setReadListener(new ReadListener() {
+
+				@Override
+				public void onDataAvailable() throws IOException {
+					byte[] buffer = new byte[64];
+					while (in.isReady() && !in.isFinished()) {
+						int read = in.read(buffer);
+						if (read > 0) {
+							decoded.write(buffer, 0, read);
+						}
+					}
+				}
+
+				@Override
+				public void onAllDataRead() {
+					allRead[0] = true;
+				}
+
+				@Override
+				public void onError(Throwable throwable) {
+				}
+
+			});
+			assertFalse(in.isReady());
+			assertThrows(IllegalStateException.class, in::read);
+			raw.deliver();
+			assertTrue(in.isFinished());
+		});
+
+		assertEquals(BODY, decoded.toString(StandardCharsets.UTF_8));
+		assertTrue(allRead[0]);
+	}
+
+	private static MockHttpServletRequest gzipRequest() throws IOException {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/");
+		request.setContent(gzip(BODY));
+		markForDecoding(request);
+		return request;
+	}
+
+	private static void markForDecoding(MockHttpServletRequest request) {
+		request.addHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+		request.setAttribute(ContentEncodingFilter.DECODE_ATTRIBUTE, ContentCoding.GZIP);
+	}
+
+	private static byte[] gzip(String body) throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+			out.write(body.getBytes(StandardCharsets.UTF_8));
+		}
+		return compressed.toByteArray();
+	}
+
+	/**
+	 * Cuerpo que solo se entrega al llamar a {@link #deliver()}, como haria el
+	 * contenedor al recibir los datos de la red.
+	 */
+	private static final class ListenableInputStream extends ServletInputStream {
+
+		private final ByteArrayInputStream body;
+
+		private ReadListener listener;
+
+		ListenableInputStream(byte[] body) {
+			this.body = new ByteArrayInputStream(body);
+		}
+
+		void deliver() throws IOException {
+			listener.onDataAvailable();
+			listener.onAllDataRead();
+		}
+
+		@Override
+		public int read() {
+			return body.read();
+		}
+
+		@Override
+		public boolean isFinished() {
+			return body.available() == 0;
+		}
+
+		@Override
+		public boolean isReady() {
+			return !isFinished();
+		}
+
+		@Override
+		public void setReadListener(ReadListener readListener) {
+			this.listener = readListener;
+		}
+
+	}
+
+}
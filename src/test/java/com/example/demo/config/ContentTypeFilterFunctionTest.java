@@ -0,0 +1,50 @@
+package com.example.demo.config;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.function.HandlerFunction;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ContentTypeFilterFunctionTest {
+
+	private final ContentTypeFilterFunction filter = ContentTypeFilterFunction.validContentType("application/custom-type");
+
+	private final ServerResponse ok = ServerResponse.ok().build();
+
+	private final HandlerFunction<ServerResponse> next = request -> ok;
+
+	@Test
+	void givenExpectedContentType_invokesHandler() throws Exception {
+		assertSame(ok, filter.filter(request("POST", "application/custom-type; charset=UTF-8"), next));
+	}
+
+	@Test
+	void givenInvalidContentType_returnsBadRequest() throws Exception {
+		ServerResponse response = filter.filter(request("POST", "application/json"), next);
+
+		assertEquals(HttpStatus.BAD_REQUEST, response.statusCode());
+	}
+
+	@Test
+	void givenBodilessRequest_skipsValidation() throws Exception {
+		assertSame(ok, filter.filter(request("GET", null), next));
+	}
+
+	private static ServerRequest request(String method, String contentType) {
+		MockHttpServletRequest servletRequest = new MockHttpServletRequest(method, "/api/functional");
+		if (contentType != null) {
+			servletRequest.addHeader(HttpHeaders.CONTENT_TYPE, contentType);
+		}
+		return ServerRequest.create(servletRequest, List.of(new StringHttpMessageConverter()));
+	}
+
+}
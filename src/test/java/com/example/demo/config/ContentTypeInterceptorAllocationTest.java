@@ -0,0 +1,268 @@
+package com.example.demo.config;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import com.sun.management.ThreadMXBean;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Bytes reservados por cada {@code preHandle} de {@link ContentTypeInterceptor}
+ * con colaboradores reales, medidos con
+ * {@link ThreadMXBean#getCurrentThreadAllocatedBytes()}. La peticion aceptada
+ * sin {@code Idempotency-Key} no debe reservar memoria; con clave solo la
+ * reserva en la cache, y la rechazada solo la excepcion.
+ * <p>
+ * Se mide tras calentar el JIT, en varias rondas, y se toma la mejor: lo que
+ * no elimina el analisis de escape aparece en todas. La peticion es un stub
+ * que no reserva memoria al leer headers ni atributos, a diferencia de
+ * {@link MockHttpServletRequest}. Se ejecuta en su propia JVM (ejecucion
+ * {@code allocation-tests} de surefire): las clases que Mockito instrumenta en
+ * otras pruebas reservan memoria en cada llamada.
+ */
+@Tag("allocation")
+class ContentTypeInterceptorAllocationTest {
+
+	private static final int ITERATIONS = 20_000;
+
+	private static final int ROUNDS = 5;
+
+	/**
+	 * La excepcion con su traza; holgado para no depender de la profundidad de
+	 * la pila del runner de tests.
+	 */
+	private static final long REJECT_BUDGET = 4096;
+
+	/**
+	 * La clave, la entrada de las reservas en curso y su expiracion. La
+	 * respuesta que se guarda al completar se captura fuera de
+	 * {@code preHandle}.
+	 */
+	private static final long IDEMPOTENCY_KEY_BUDGET = 256;
+
+	private static final ThreadMXBean THREADS = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private ContentTypeInterceptor interceptor;
+
+	private HandlerMethod handler;
+
+	private final HttpServletResponse response = new MockHttpServletResponse();
+
+	@BeforeAll
+	static void requireAllocationCounters() {
+		assumeTrue(THREADS.isThreadAllocatedMemorySupported());
+		THREADS.setThreadAllocatedMemoryEnabled(true);
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+		Handlers bean = new Handlers();
+		Method method = Handlers.class.getMethod("upload");
+		handler = new HandlerMethod(bean, method);
+		ApplicationContext context = context(handler);
+		ContentTypeRuleRegistry ruleRegistry = new ContentTypeRuleRegistry(context);
+		BulkheadRegistry bulkheadRegistry = new BulkheadRegistry(context, meterRegistry());
+		IdempotencyRegistry idempotencyRegistry = new IdempotencyRegistry(context, new MockEnvironment(),
+				meterRegistry());
+		ruleRegistry.afterSingletonsInstantiated();
+		bulkheadRegistry.afterSingletonsInstantiated();
+		idempotencyRegistry.afterSingletonsInstantiated();
+		interceptor = new ContentTypeInterceptor(ruleRegistry, new EndpointLatencyRecorder(), bulkheadRegistry,
+				idempotencyRegistry, new TrafficCaptureLog(new MockEnvironment()));
+	}
+
+	@Test
+	void acceptedRequestDoesNotAllocate() throws Exception {
+		PreparedRequest request = new PreparedRequest("Application/JSON; charset=UTF-8", null);
+
+		long allocated = bestBytesPerCall(() -> {
+			request.reset();
+			interceptor.preHandle(request, response, handler);
+			interceptor.afterCompletion(request, response, handler, null);
+		});
+
+		assertEquals(0, allocated, "bytes reservados por peticion aceptada");
+	}
+
+	@Test
+	void acceptedRequestWithIdempotencyKeyOnlyAllocatesTheReservation() throws Exception {
+		PreparedRequest request = new PreparedRequest("Application/JSON; charset=UTF-8", "pedido-42");
+
+		long allocated = bestBytesPerCall(() -> {
+			request.reset();
+			interceptor.preHandle(request, response, handler);
+			interceptor.afterCompletion(request, response, handler, null);
+		});
+
+		assertTrue(allocated > 0 && allocated <= IDEMPOTENCY_KEY_BUDGET,
+				() -> "bytes por peticion con Idempotency-Key: " + allocated);
+	}
+
+	@Test
+	void rejectedRequestOnlyAllocatesTheException() throws Exception {
+		PreparedRequest request = new PreparedRequest("text/plain;".repeat(100), null);
+		assertThrows(InvalidContentTypeException.class, () -> interceptor.preHandle(request, response, handler));
+
+		long allocated = bestBytesPerCall(() -> {
+			request.reset();
+			try {
+				interceptor.preHandle(request, response, handler);
+			} catch (InvalidContentTypeException ex) {
+				// esperado
+			}
+		});
+
+		assertTrue(allocated > 0 && allocated <= REJECT_BUDGET, () -> "bytes por peticion rechazada: " + allocated);
+	}
+
+	private static long bestBytesPerCall(Call call) throws Exception {
+		for (int i = 0; i < ITERATIONS; i++) {
+			call.run();
+		}
+		long best = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long before = THREADS.getCurrentThreadAllocatedBytes();
+			for (int i = 0; i < ITERATIONS; i++) {
+				call.run();
+			}
+			best = Math.min(best, (THREADS.getCurrentThreadAllocatedBytes() - before) / ITERATIONS);
+		}
+		return best;
+	}
+
+	private static ApplicationContext context(HandlerMethod handler) {
+		RequestMappingHandlerMapping mapping = mock(RequestMappingHandlerMapping.class);
+		when(mapping.getHandlerMethods()).thenReturn(Map.of(RequestMappingInfo.paths("/upload").build(), handler));
+		ApplicationContext context = mock(ApplicationContext.class);
+		when(context.getBeansOfType(RequestMappingHandlerMapping.class)).thenReturn(Map.of("mapping", mapping));
+		when(context.getEnvironment()).thenReturn(new MockEnvironment());
+		return context;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ObjectProvider<MeterRegistry> meterRegistry() {
+		return mock(ObjectProvider.class);
+	}
+
+	@FunctionalInterface
+	private interface Call {
+
+		void run() throws Exception;
+
+	}
+
+	/**
+	 * POST con un Content-Type fijo y atributos en un array, sin reservar
+	 * memoria en ninguna lectura.
+	 */
+	private static final class PreparedRequest extends HttpServletRequestWrapper {
+
+		private final String contentType;
+
+		private final String idempotencyKey;
+
+		private final String[] names = new String[4];
+
+		private final Object[] values = new Object[4];
+
+		PreparedRequest(String contentType, String idempotencyKey) {
+			super(new MockHttpServletRequest());
+			this.contentType = contentType;
+			this.idempotencyKey = idempotencyKey;
+		}
+
+		void reset() {
+			for (int i = 0; i < names.length; i++) {
+				names[i] = null;
+				values[i] = null;
+			}
+		}
+
+		@Override
+		public String getMethod() {
+			return "POST";
+		}
+
+		@Override
+		public String getHeader(String name) {
+			if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name)) {
+				return contentType;
+			}
+			return IdempotencyRegistry.IDEMPOTENCY_KEY_HEADER.equalsIgnoreCase(name) ? idempotencyKey : null;
+		}
+
+		@Override
+		public Object getAttribute(String name) {
+			for (int i = 0; i < names.length; i++) {
+				if (name.equals(names[i])) {
+					return values[i];
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public void setAttribute(String name, Object value) {
+			int free = -1;
+			for (int i = 0; i < names.length; i++) {
+				if (name.equals(names[i])) {
+					values[i] = value;
+					return;
+				}
+				if (free < 0 && names[i] == null) {
+					free = i;
+				}
+			}
+			names[free] = name;
+			values[free] = value;
+		}
+
+		@Override
+		public void removeAttribute(String name) {
+			for (int i = 0; i < names.length; i++) {
+				if (name.equals(names[i])) {
+					names[i] = null;
+					values[i] = null;
+				}
+			}
+		}
+
+	}
+
+	static class Handlers {
+
+		@ValidContentType
+		@Bulkhead(maxConcurrent = 4)
+		@Idempotent
+		public void upload() {
+		}
+
+	}
+
+}
@@ -4,15 +4,20 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.method.HandlerMethod;
 
 import com.fasterxml.jackson.annotation.JsonFormat.Shape;
 
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
@@ -20,6 +25,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 import java.io.File;
+import java.lang.reflect.Method;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.text.SimpleDateFormat;
@@ -77,12 +83,29 @@ class ContentTypeInterceptorTest {
 	@Mock
 	private HandlerMethod handlerMethod;
 
+	@Mock
+	private ContentTypeRuleRegistry ruleRegistry;
+
+	@Mock
+	private EndpointLatencyRecorder latencyRecorder;
+
+	@Mock
+	private BulkheadRegistry bulkheadRegistry;
+
+	@Mock
+	private IdempotencyRegistry idempotencyRegistry;
+
+	@Mock
+	private TrafficCaptureLog trafficCapture;
+
 	@InjectMocks
 	private ContentTypeInterceptor interceptor;
 
 	@BeforeEach
 	public void setup() {
 		MockitoAnnotations.openMocks(this);
+		when(ruleRegistry.getLenientRule(any())).thenAnswer(invocation -> ContentTypeRule
+				.lenient(invocation.<HandlerMethod>getArgument(0).getMethodAnnotation(ValidContentType.class)));
 	}
 
 	@Test
@@ -109,8 +132,7 @@ class ContentTypeInterceptorTest {
 
 	@Test
 	void givenValidContentTypeWithAnnotation_thenPass() throws Exception {
-		ValidContentType annotation = mock(ValidContentType.class);
-		when(annotation.value()).thenReturn("application/annotation-type");
+		ValidContentType annotation = annotation("application/annotation-type");
 		when(request.getHeader(HttpHeaders.CONTENT_TYPE)).thenReturn("application/annotation-type");
 		when(handlerMethod.getMethodAnnotation(ValidContentType.class)).thenReturn(annotation);
 
@@ -127,6 +149,218 @@ class ContentTypeInterceptorTest {
 		assertTrue(interceptor.preHandle(request, response, handlerMethod));
 	}
 
+	@Test
+	void givenIndexedRule_usesRuleWithoutAnnotationLookup() throws Exception {
+		when(ruleRegistry.getRule(any(), any())).thenReturn(ContentTypeRule.compile("application/json"));
+		when(request.getHeader(HttpHeaders.CONTENT_TYPE)).thenReturn("Application/JSON; charset=UTF-8");
+
+		assertTrue(interceptor.preHandle(request, response, handlerMethod));
+		verify(handlerMethod, never()).getMethodAnnotation(ValidContentType.class);
+	}
+
+	@Test
+	void givenTenantHeader_usesTenantRule() throws Exception {
+		when(ruleRegistry.hasTenantRules()).thenReturn(true);
+		when(request.getHeader(ContentTypeRuleRegistry.TENANT_HEADER)).thenReturn("acme");
+		when(ruleRegistry.getRule(null, "acme")).thenReturn(ContentTypeRule.compile("application/acme+json"));
+		when(request.getHeader(HttpHeaders.CONTENT_TYPE)).thenReturn("application/acme+json");
+
+		assertTrue(interceptor.preHandle(request, response, handlerMethod));
+	}
+
+	@Test
+	void givenNoTenantRules_doesNotReadTenantHeader() throws Exception {
+		when(request.getHeader(HttpHeaders.CONTENT_TYPE)).thenReturn("application/custom-type");
+
+		assertTrue(interceptor.preHandle(request, response, handlerMethod));
+		verify(request, never()).getHeader(ContentTypeRuleRegistry.TENANT_HEADER);
+	}
+
+	@Test
+	void givenRejectedRequest_recordsPreHandleLatency() {
+		when(request.getHeader(HttpHeaders.CONTENT_TYPE)).thenReturn("application/xml");
+
+		assertThrows(InvalidContentTypeException.class, () -> interceptor.preHandle(request, response, handlerMethod));
+		verify(latencyRecorder).recordPreHandle(any(), anyLong(), anyLong());
+	}
+
+	@Test
+	void givenRejectedRequest_doesNotLeaveHandlerStartForNextRequest() throws Exception {
+		EndpointLatencyRecorder recorder = new EndpointLatencyRecorder();
+		ContentTypeInterceptor interceptor = new ContentTypeInterceptor(ruleRegistry, recorder, bulkheadRegistry,
+				idempotencyRegistry, trafficCapture);
+		Method method = getClass().getDeclaredMethod("setup");
+		when(handlerMethod.getMethod()).thenReturn(method);
+		when(request.getHeader(HttpHeaders.CONTENT_TYPE)).thenReturn("application/xml");
+		assertThrows(InvalidContentTypeException.class, () -> interceptor.preHandle(request, response, handlerMethod));
+
+		// Peticion ya validada por la valve en el mismo hilo: no pasa por validateIfApplies
+		HttpServletRequest validated = mock(HttpServletRequest.class);
+		when(validated.getAttribute(ContentTypeInterceptor.VALIDATED_ATTRIBUTE)).thenReturn(Boolean.TRUE);
+		long before = System.nanoTime();
+		assertTrue(interceptor.preHandle(validated, response, handlerMethod));
+		interceptor.afterCompletion(validated, response, handlerMethod, null);
+		long elapsed = System.nanoTime() - before;
+
+		LatencyHistogram handler = recorder.getLatencies().get(method).getHandler();
+		assertEquals(1, handler.getCount());
+		assertTrue(handler.getMax() <= elapsed);
+	}
+
+	@Test
+	void givenIdempotentReplay_discardsHandlerStart() throws Exception {
+		when(request.getHeader(HttpHeaders.CONTENT_TYPE)).thenReturn("application/custom-type");
+		when(idempotencyRegistry.begin(eq(request), any())).thenReturn(new CachedResponse(200, null, new byte[0]));
+
+		assertFalse(interceptor.preHandle(request, new MockHttpServletResponse(), handlerMethod));
+		verify(latencyRecorder).discardHandlerStart();
+		verify(latencyRecorder, never()).recordHandlerStart(any(), anyLong());
+	}
+
+	@Test
+	void givenCompletedRequest_recordsHandlerLatency() throws Exception {
+		interceptor.afterCompletion(request, response, handlerMethod, null);
+
+		verify(latencyRecorder).recordCompletion(eq(request), any(), anyLong());
+	}
+
+	@Test
+	void givenAsyncStarted_handsHandlerStartToRequest() {
+		interceptor.afterConcurrentHandlingStarted(request, response, handlerMethod);
+
+		verify(latencyRecorder).recordAsyncStarted(eq(request), any());
+		verify(latencyRecorder, never()).recordCompletion(any(), any(), anyLong());
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "GET", "HEAD", "OPTIONS", "DELETE" })
+	void givenBodilessMethod_skipsValidation(String httpMethod) throws Exception {
+		when(request.getMethod()).thenReturn(httpMethod);
+
+		assertTrue(interceptor.preHandle(request, response, handlerMethod));
+		verify(request, never()).getHeader(HttpHeaders.CONTENT_TYPE);
+		verify(latencyRecorder, never()).recordPreHandle(any(), anyLong(), anyLong());
+		verify(latencyRecorder).recordHandlerStart(any(), anyLong());
+	}
+
+	@Test
+	void givenBodyMethod_validates() {
+		when(request.getMethod()).thenReturn("PUT");
+
+		assertThrows(InvalidContentTypeException.class, () -> interceptor.preHandle(request, response, handlerMethod));
+	}
+
+	@Test
+	void givenAcceptedRequest_marksRequestAsValidated() throws Exception {
+		when(request.getDispatcherType()).thenReturn(DispatcherType.REQUEST);
+		when(request.getHeader(HttpHeaders.CONTENT_TYPE)).thenReturn("application/custom-type");
+
+		assertTrue(interceptor.preHandle(request, response, handlerMethod));
+		verify(request).setAttribute(ContentTypeInterceptor.VALIDATED_ATTRIBUTE, Boolean.TRUE);
+	}
+
+	@ParameterizedTest
+	@EnumSource(value = DispatcherType.class, names = { "ASYNC", "ERROR" })
+	void givenValidatedRedispatch_skipsValidation(DispatcherType dispatcherType) throws Exception {
+		when(request.getDispatcherType()).thenReturn(dispatcherType);
+		when(request.getAttribute(ContentTypeInterceptor.VALIDATED_ATTRIBUTE)).thenReturn(Boolean.TRUE);
+
+		assertTrue(interceptor.preHandle(request, response, handlerMethod));
+		verify(request, never()).getHeader(HttpHeaders.CONTENT_TYPE);
+	}
+
+	@Test
+	void givenAcceptedRequest_acquiresBulkheadPermit() throws Exception {
+		when(request.getHeader(HttpHeaders.CONTENT_TYPE)).thenReturn("application/custom-type");
+
+		assertTrue(interceptor.preHandle(request, response, handlerMethod));
+		verify(bulkheadRegistry).acquire(request, null);
+	}
+
+	@Test
+	void givenRejectedRequest_doesNotAcquireBulkheadPermit() {
+		assertThrows(InvalidContentTypeException.class, () -> interceptor.preHandle(request, response, handlerMethod));
+		verifyNoInteractions(bulkheadRegistry);
+	}
+
+	@Test
+	void givenValidatedRequest_stillAcquiresBulkheadPermit() throws Exception {
+		when(request.getAttribute(ContentTypeInterceptor.VALIDATED_ATTRIBUTE)).thenReturn(Boolean.TRUE);
+
+		assertTrue(interceptor.preHandle(request, response, handlerMethod));
+		verify(bulkheadRegistry).acquire(request, null);
+	}
+
+	@Test
+	void givenFullBulkhead_propagatesException() {
+		when(request.getHeader(HttpHeaders.CONTENT_TYPE)).thenReturn("application/custom-type");
+		doThrow(new BulkheadFullException("lleno")).when(bulkheadRegistry).acquire(request, null);
+
+		assertThrows(BulkheadFullException.class, () -> interceptor.preHandle(request, response, handlerMethod));
+	}
+
+	@Test
+	void givenRejectedRequest_stillRecordsTrafficSample() {
+		assertThrows(InvalidContentTypeException.class, () -> interceptor.preHandle(request, response, handlerMethod));
+		verify(trafficCapture).record(request, null);
+	}
+
+	@Test
+	void givenValidatedRequest_doesNotRecordTrafficSampleAgain() throws Exception {
+		when(request.getAttribute(ContentTypeInterceptor.VALIDATED_ATTRIBUTE)).thenReturn(Boolean.TRUE);
+
+		assertTrue(interceptor.preHandle(request, response, handlerMethod));
+		verifyNoInteractions(trafficCapture);
+	}
+
+	@Test
+	void afterCompletion_releasesBulkheadPermit() {
+		interceptor.afterCompletion(request, response, handlerMethod, null);
+		verify(bulkheadRegistry).release(request);
+	}
+
+	@Test
+	void afterConcurrentHandlingStarted_keepsBulkheadPermit() {
+		interceptor.afterConcurrentHandlingStarted(request, response, handlerMethod);
+		verifyNoInteractions(bulkheadRegistry);
+	}
+
+	@Test
+	void givenCompletedIdempotencyKey_replaysWithoutHandler() throws Exception {
+		MockHttpServletResponse mockResponse = new MockHttpServletResponse();
+		when(request.getHeader(HttpHeaders.CONTENT_TYPE)).thenReturn("application/custom-type");
+		when(idempotencyRegistry.begin(request, null))
+				.thenReturn(new CachedResponse(200, "text/plain;charset=UTF-8", "hecho".getBytes()));
+
+		assertFalse(interceptor.preHandle(request, mockResponse, handlerMethod));
+		assertEquals("hecho", mockResponse.getContentAsString());
+		assertEquals("true", mockResponse.getHeader(CachedResponse.REPLAYED_HEADER));
+		verifyNoInteractions(bulkheadRegistry);
+	}
+
+	@Test
+	void givenFullBulkhead_releasesIdempotencyKey() {
+		when(request.getHeader(HttpHeaders.CONTENT_TYPE)).thenReturn("application/custom-type");
+		BulkheadFullException full = new BulkheadFullException("lleno");
+		doThrow(full).when(bulkheadRegistry).acquire(request, null);
+
+		assertThrows(BulkheadFullException.class, () -> interceptor.preHandle(request, response, handlerMethod));
+		verify(idempotencyRegistry).finish(request, full);
+	}
+
+	@Test
+	void afterCompletion_finishesIdempotencyKey() {
+		interceptor.afterCompletion(request, response, handlerMethod, null);
+		verify(idempotencyRegistry).finish(request, null);
+	}
+
+	@Test
+	void givenUnvalidatedErrorDispatch_validates() {
+		when(request.getDispatcherType()).thenReturn(DispatcherType.ERROR);
+
+		assertThrows(InvalidContentTypeException.class, () -> interceptor.preHandle(request, response, handlerMethod));
+	}
+
 	@Test
 	void givenInvalidContentType_throwsException() {
 		when(request.getHeader(HttpHeaders.CONTENT_TYPE)).thenReturn("application/xml");
@@ -137,8 +371,7 @@ class ContentTypeInterceptorTest {
 
 	@Test
 	void givenMismatchedContentTypeWithAnnotation_throwsException() {
-		ValidContentType annotation = mock(ValidContentType.class);
-		when(annotation.value()).thenReturn("application/json");
+		ValidContentType annotation = annotation("application/json");
 		when(handlerMethod.getMethodAnnotation(ValidContentType.class)).thenReturn(annotation);
 		when(request.getHeader(HttpHeaders.CONTENT_TYPE)).thenReturn("application/xml");
 
@@ -163,6 +396,23 @@ class ContentTypeInterceptorTest {
 		assertEquals("El Content-Type es inválido", exception.getMessage());
 	}
 
+	/**
+	 * Anotacion simulada con los valores por defecto de {@link ValidContentType}
+	 * salvo el media type.
+	 */
+	private static ValidContentType annotation(String value) {
+		ValidContentType annotation = mock(ValidContentType.class);
+		when(annotation.value()).thenReturn(value);
+		when(annotation.methods()).thenReturn(new RequestMethod[] { RequestMethod.POST, RequestMethod.PUT,
+				RequestMethod.PATCH });
+		when(annotation.allowedEncodings()).thenReturn(new String[0]);
+		when(annotation.partTypes()).thenReturn(new String[0]);
+		when(annotation.maxLength()).thenReturn(ContentTypeRule.DEFAULT_MAX_LENGTH);
+		when(annotation.maxParameters()).thenReturn(ContentTypeRule.DEFAULT_MAX_PARAMETERS);
+		when(annotation.mode()).thenReturn(ValidationMode.ENFORCE);
+		return annotation;
+	}
+
 	@ParameterizedTest
 	@MethodSource("handlerProvider")
 	void givenHandler_thenReturnsTrue(Object handler, String handlerType) throws Exception {
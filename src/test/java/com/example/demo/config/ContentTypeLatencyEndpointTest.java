@@ -0,0 +1,29 @@
+package com.example.demo.config;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ContentTypeLatencyEndpointTest {
+
+	@Test
+	void reportsPercentilesInMicrosPerEndpoint() throws Exception {
+		EndpointLatencyRecorder recorder = new EndpointLatencyRecorder();
+		Method method = getClass().getDeclaredMethod("reportsPercentilesInMicrosPerEndpoint");
+		recorder.recordPreHandle(method, 0, 3_000);
+		recorder.recordHandlerStart(method, 3_000);
+		recorder.recordCompletion(new MockHttpServletRequest(), method, 10_000);
+
+		Map<String, Map<String, Map<String, Object>>> report = new ContentTypeLatencyEndpoint(recorder).latencies();
+
+		Map<String, Map<String, Object>> phases = report.get("ContentTypeLatencyEndpointTest#reportsPercentilesInMicrosPerEndpoint");
+		assertEquals(1L, phases.get("preHandle").get("count"));
+		assertEquals(3.0, phases.get("preHandle").get("maxMicros"));
+		assertEquals(7.0, phases.get("handler").get("p99Micros"));
+	}
+
+}
@@ -0,0 +1,311 @@
+package com.example.demo.config;
+
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.server.PathContainer;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ContentTypeRuleRegistryTest {
+
+	private final MockEnvironment environment = new MockEnvironment();
+
+	@Test
+	void indexesEveryHandlerMethod() throws Exception {
+		ContentTypeRuleRegistry registry = registryFor(new ValidHandlers());
+
+		registry.afterSingletonsInstantiated();
+
+		assertEquals("application/json", registry.getRule(ValidHandlers.class.getMethod("json")).getMediaType());
+		assertEquals("application/custom-type",
+				registry.getRule(ValidHandlers.class.getMethod("custom")).getMediaType());
+		assertSame(ContentTypeRule.DEFAULT, registry.getRule(ValidHandlers.class.getMethod("notAnnotated")));
+	}
+
+	@Test
+	void findsRuleByMethodAndPath() {
+		ContentTypeRuleRegistry registry = registryFor(new ValidHandlers());
+
+		registry.afterSingletonsInstantiated();
+
+		assertEquals("application/json", findRule(registry, "POST", "/json", null).getMediaType());
+		assertEquals("application/custom-type",
+				findRule(registry, "PUT", "/custom", null).getMediaType());
+		assertNull(findRule(registry, "POST", "/unknown", null));
+	}
+
+	@Test
+	void failsOnInvalidDeclarations() {
+		ContentTypeRuleRegistry registry = registryFor(new InvalidHandlers());
+
+		IllegalStateException exception = assertThrows(IllegalStateException.class,
+				registry::afterSingletonsInstantiated);
+
+		assertTrue(exception.getMessage().contains("empty"));
+		assertTrue(exception.getMessage().contains("wildcard"));
+	}
+
+	@Test
+	void returnsNullForUnknownMethods() {
+		ContentTypeRuleRegistry registry = registryFor(new ValidHandlers());
+
+		registry.afterSingletonsInstantiated();
+
+		assertNull(registry.getRule(null));
+		assertNull(registry.getRule(Object.class.getMethods()[0]));
+	}
+
+	@Test
+	void resolvesUnindexedHandlersOncePerMethod() throws Exception {
+		ContentTypeRuleRegistry registry = registryFor(new ValidHandlers());
+		registry.afterSingletonsInstantiated();
+		HandlerMethod unindexed = handlerMethod(new SharedPathHandlers(), "xml");
+
+		ContentTypeRule rule = registry.getLenientRule(unindexed);
+
+		assertEquals("application/xml", rule.getMediaType());
+		assertSame(rule, registry.getLenientRule(unindexed));
+		assertEquals(Map.of(unindexed.getMethod(), rule), registry.getLenientRules());
+	}
+
+	@Test
+	void appliesTenantRulesFromProperties() throws Exception {
+		environment.setProperty("content-type.tenants.acme[ValidHandlers#custom]", "application/acme+json");
+		ContentTypeRuleRegistry registry = registryFor(new ValidHandlers());
+
+		registry.afterSingletonsInstantiated();
+
+		Method custom = ValidHandlers.class.getMethod("custom");
+		assertTrue(registry.hasTenantRules());
+		assertEquals("application/acme+json", registry.getRule(custom, "acme").getMediaType());
+		assertEquals("application/custom-type", registry.getRule(custom, "other").getMediaType());
+		assertEquals("application/custom-type", registry.getRule(custom, null).getMediaType());
+		assertEquals("application/json", registry.getRule(ValidHandlers.class.getMethod("json"), "acme").getMediaType());
+		assertEquals("application/acme+json",
+				findRule(registry, "POST", "/custom", "acme").getMediaType());
+	}
+
+	@Test
+	void tenantRulesKeepMethodsAndPathsOfTheEndpoint() throws Exception {
+		ContentTypeRuleRegistry registry = registryFor(new ValidHandlers());
+		registry.afterSingletonsInstantiated();
+
+		registry.reloadTenantRules(Map.of("acme", Map.of("ValidHandlers#custom", "application/acme+json")));
+
+		ContentTypeRule rule = registry.getRule(ValidHandlers.class.getMethod("custom"), "acme");
+		assertTrue(rule.appliesTo(new MockHttpServletRequest("POST", "/custom")));
+		assertFalse(rule.appliesTo(new MockHttpServletRequest("GET", "/custom")));
+	}
+
+	@Test
+	void reloadReplacesTenantTable() throws Exception {
+		ContentTypeRuleRegistry registry = registryFor(new ValidHandlers());
+		registry.afterSingletonsInstantiated();
+		Method json = ValidHandlers.class.getMethod("json");
+
+		registry.reloadTenantRules(Map.of("acme", Map.of("ValidHandlers#json", "application/acme+json")));
+		assertEquals("application/acme+json", registry.getRule(json, "acme").getMediaType());
+
+		registry.reloadTenantRules(Map.of());
+		assertFalse(registry.hasTenantRules());
+		assertEquals("application/json", registry.getRule(json, "acme").getMediaType());
+	}
+
+	@Test
+	void invalidTenantRulesKeepPreviousTable() throws Exception {
+		ContentTypeRuleRegistry registry = registryFor(new ValidHandlers());
+		registry.afterSingletonsInstantiated();
+		Method json = ValidHandlers.class.getMethod("json");
+		registry.reloadTenantRules(Map.of("acme", Map.of("ValidHandlers#json", "application/acme+json")));
+
+		IllegalStateException exception = assertThrows(IllegalStateException.class,
+				() -> registry.reloadTenantRules(Map.of("acme", Map.of("ValidHandlers#json", "application/*",
+						"ValidHandlers#unknown", "application/json"))));
+
+		assertTrue(exception.getMessage().contains("ValidHandlers#unknown"));
+		assertTrue(exception.getMessage().contains("comodines"));
+		assertEquals("application/acme+json", registry.getRule(json, "acme").getMediaType());
+	}
+
+	@Test
+	void subscribersApplyTenantRulesPublishedBySibling(@TempDir Path directory) throws Exception {
+		Path file = directory.resolve("reglas.snapshot");
+		ContentTypeRuleRegistry publisher = registryFor(new ValidHandlers(), new MockEnvironment()
+				.withProperty("content-type.snapshot.file", file.toString())
+				.withProperty("content-type.snapshot.publisher", "true"));
+		ContentTypeRuleRegistry subscriber = registryFor(new ValidHandlers(), new MockEnvironment()
+				.withProperty("content-type.snapshot.file", file.toString()));
+		publisher.afterSingletonsInstantiated();
+		subscriber.afterSingletonsInstantiated();
+		Method custom = ValidHandlers.class.getMethod("custom");
+
+		publisher.reloadTenantRules(Map.of("acme", Map.of("ValidHandlers#custom", "application/acme+json")));
+
+		assertEquals("application/acme+json", subscriber.getRule(custom, "acme").getMediaType());
+		assertEquals(publisher.getSnapshotVersion(), subscriber.getSnapshotVersion());
+		assertTrue(subscriber.getRule(custom, "acme").appliesTo(new MockHttpServletRequest("POST", "/custom")));
+
+		publisher.reloadTenantRules(Map.of());
+
+		assertFalse(subscriber.hasTenantRules());
+		assertEquals("application/custom-type", subscriber.getRule(custom, "acme").getMediaType());
+	}
+
+	@Test
+	void subscribersTakeTenantRulesOnlyFromTheSnapshot(@TempDir Path directory) throws Exception {
+		Path file = directory.resolve("reglas.snapshot");
+		RuleSnapshotFile.create(file, 4096);
+		ContentTypeRuleRegistry subscriber = registryFor(new ValidHandlers(), new MockEnvironment()
+				.withProperty("content-type.snapshot.file", file.toString())
+				.withProperty("content-type.tenants.acme[ValidHandlers#json]", "application/acme+json"));
+
+		subscriber.afterSingletonsInstantiated();
+
+		assertFalse(subscriber.hasTenantRules());
+		assertThrows(IllegalStateException.class, subscriber::reloadTenantRules);
+	}
+
+	@Test
+	void subscribersIgnoreEndpointsTheyDoNotHave(@TempDir Path directory) throws Exception {
+		Path file = directory.resolve("reglas.snapshot");
+		RuleSnapshotFile sibling = RuleSnapshotFile.create(file, 4096);
+		sibling.publish(sibling.encode(Map.of("acme",
+				Map.of("ValidHandlers#json", "application/acme+json", "ValidHandlers#removed", "text/plain"))));
+		ContentTypeRuleRegistry subscriber = registryFor(new ValidHandlers(), new MockEnvironment()
+				.withProperty("content-type.snapshot.file", file.toString()));
+
+		subscriber.afterSingletonsInstantiated();
+
+		assertEquals("application/acme+json",
+				findRule(subscriber, "POST", "/json", "acme").getMediaType());
+		assertEquals(sibling.version(), subscriber.getSnapshotVersion());
+	}
+
+	@Test
+	void findsRuleOfTheMappingWhoseConditionsMatch() throws Exception {
+		SharedPathHandlers bean = new SharedPathHandlers();
+		RequestMappingInfo.BuilderConfiguration options = new RequestMappingInfo.BuilderConfiguration();
+		options.setPatternParser(PathPatternParser.defaultInstance);
+		Map<RequestMappingInfo, HandlerMethod> handlerMethods = new HashMap<>();
+		handlerMethods.put(RequestMappingInfo.paths("/shared").methods(RequestMethod.POST)
+				.consumes("application/json").options(options).build(), handlerMethod(bean, "json"));
+		handlerMethods.put(RequestMappingInfo.paths("/shared").methods(RequestMethod.POST)
+				.consumes("application/xml").options(options).build(), handlerMethod(bean, "xml"));
+		handlerMethods.put(RequestMappingInfo.paths("/shared").methods(RequestMethod.POST).params("lote")
+				.options(options).build(), handlerMethod(bean, "batch"));
+		ContentTypeRuleRegistry registry = registryFor(handlerMethods, environment);
+		registry.afterSingletonsInstantiated();
+
+		MockHttpServletRequest xml = new MockHttpServletRequest("POST", "/shared");
+		xml.setContentType("application/xml");
+		MockHttpServletRequest batch = new MockHttpServletRequest("POST", "/shared");
+		batch.setContentType("application/xml");
+		batch.setParameter("lote", "1");
+		MockHttpServletRequest other = new MockHttpServletRequest("POST", "/shared");
+		other.setContentType("text/plain");
+
+		PathContainer path = PathContainer.parsePath("/shared");
+		assertEquals("application/xml", registry.findRule(xml, path).getMediaType());
+		assertEquals("application/x-ndjson", registry.findRule(batch, path).getMediaType());
+		assertNull(registry.findRule(other, path));
+	}
+
+	private static ContentTypeRule findRule(ContentTypeRuleRegistry registry, String httpMethod, String path,
+			String tenant) {
+		return registry.findRule(new MockHttpServletRequest(httpMethod, path), PathContainer.parsePath(path), tenant);
+	}
+
+	private static HandlerMethod handlerMethod(Object bean, String name) throws NoSuchMethodException {
+		return new HandlerMethod(bean, bean.getClass().getMethod(name));
+	}
+
+	private ContentTypeRuleRegistry registryFor(Object bean) {
+		return registryFor(bean, environment);
+	}
+
+	private static ContentTypeRuleRegistry registryFor(Object bean, MockEnvironment environment) {
+		RequestMappingInfo.BuilderConfiguration options = new RequestMappingInfo.BuilderConfiguration();
+		options.setPatternParser(PathPatternParser.defaultInstance);
+		Map<RequestMappingInfo, HandlerMethod> handlerMethods = new HashMap<>();
+		for (Method method : bean.getClass().getDeclaredMethods()) {
+			handlerMethods.put(RequestMappingInfo.paths("/" + method.getName()).options(options).build(),
+					new HandlerMethod(bean, method));
+		}
+		return registryFor(handlerMethods, environment);
+	}
+
+	private static ContentTypeRuleRegistry registryFor(Map<RequestMappingInfo, HandlerMethod> handlerMethods,
+			MockEnvironment environment) {
+		RequestMappingHandlerMapping mapping = mock(RequestMappingHandlerMapping.class);
+		when(mapping.getHandlerMethods()).thenReturn(handlerMethods);
+
+		ApplicationContext context = mock(ApplicationContext.class);
+		when(context.getBeansOfType(RequestMappingHandlerMapping.class)).thenReturn(Map.of("mapping", mapping));
+		when(context.getEnvironment()).thenReturn(environment);
+		return new ContentTypeRuleRegistry(context);
+	}
+
+	static class ValidHandlers {
+
+		@ValidContentType
+		public void json() {
+		}
+
+		@ValidContentType("Application/Custom-Type")
+		public void custom() {
+		}
+
+		public void notAnnotated() {
+		}
+
+	}
+
+	static class SharedPathHandlers {
+
+		@ValidContentType
+		public void json() {
+		}
+
+		@ValidContentType("application/xml")
+		public void xml() {
+		}
+
+		@ValidContentType("application/x-ndjson")
+		public void batch() {
+		}
+
+	}
+
+	static class InvalidHandlers {
+
+		@ValidContentType("")
+		public void empty() {
+		}
+
+		@ValidContentType("application/*")
+		public void wildcard() {
+		}
+
+	}
+
+}
@@ -0,0 +1,263 @@
+package com.example.demo.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ContentTypeRuleTest {
+
+	@Test
+	void compileNormalizesMediaType() {
+		ContentTypeRule rule = ContentTypeRule.compile(" Application/Custom-Type ");
+
+		assertEquals("application/custom-type", rule.getMediaType());
+		assertEquals("El Content-Type esperado es application/custom-type", rule.getMessage());
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "", "   ", "application", "application/", "*/*", "application/*",
+			"application/json;charset=UTF-8" })
+	void compileRejectsInvalidDeclarations(String declared) {
+		assertThrows(IllegalArgumentException.class, () -> ContentTypeRule.compile(declared));
+	}
+
+	@Test
+	void matchesIgnoresCase() {
+		ContentTypeRule rule = ContentTypeRule.compile("application/json");
+
+		assertTrue(rule.matches("APPLICATION/json"));
+		assertFalse(rule.matches("application/xml"));
+	}
+
+	@Test
+	void appliesOnlyToDeclaredMethods() throws Exception {
+		ContentTypeRule rule = ContentTypeRule.compile(annotation("scoped"));
+
+		assertTrue(rule.appliesTo(request("PUT", "/api/items")));
+		assertFalse(rule.appliesTo(request("POST", "/api/items")));
+		assertFalse(rule.appliesTo(request("GET", "/api/items")));
+	}
+
+	@Test
+	void appliesOnlyToIncludedAndNotExcludedPaths() throws Exception {
+		ContentTypeRule rule = ContentTypeRule.compile(annotation("scoped"));
+
+		assertTrue(rule.appliesTo(request("PUT", "/api/items/1")));
+		assertFalse(rule.appliesTo(request("PUT", "/api/items/internal")));
+		assertFalse(rule.appliesTo(request("PUT", "/other")));
+	}
+
+	@Test
+	void defaultsToBodyMethodsOnAnyPath() throws Exception {
+		ContentTypeRule rule = ContentTypeRule.compile(annotation("defaults"));
+
+		assertTrue(rule.appliesTo(request("POST", "/anything")));
+		assertTrue(rule.appliesTo(request("PATCH", "/anything")));
+		assertFalse(rule.appliesTo(request("DELETE", "/anything")));
+	}
+
+	@Test
+	void compileRejectsEmptyMethods() throws Exception {
+		assertThrows(IllegalArgumentException.class, () -> ContentTypeRule.compile(annotation("noMethods")));
+		assertTrue(ContentTypeRule.lenient(annotation("noMethods")).appliesTo(request("POST", "/anything")));
+	}
+
+	@Test
+	void compileRejectsInvalidPathPatterns() {
+		assertThrows(IllegalArgumentException.class, () -> ContentTypeRule.compile(annotation("invalidPattern")));
+	}
+
+	@Test
+	void lenientFallsBackToDefault() {
+		ValidContentType annotation = mock(ValidContentType.class);
+		when(annotation.value()).thenReturn("");
+
+		assertSame(ContentTypeRule.DEFAULT, ContentTypeRule.lenient(null));
+		assertSame(ContentTypeRule.DEFAULT, ContentTypeRule.lenient(annotation));
+	}
+
+	@Test
+	void lenientAppliesTheSameLimitsAsCompile() throws Exception {
+		String header = "application/json; charset=UTF-8";
+
+		assertEquals(ContentTypeRule.compile(annotation("noParameters")).check(header),
+				ContentTypeRule.lenient(annotation("noParameters")).check(header));
+		assertEquals(ContentTypeRule.TOO_MANY_PARAMETERS_MESSAGE,
+				ContentTypeRule.lenient(annotation("noParameters")).check(header));
+		assertEquals(null, ContentTypeRule.lenient(annotation("noLength")).check(header));
+		assertEquals(null, ContentTypeRule.lenient(annotation("negativeParameters")).check(header));
+	}
+
+	@Test
+	void compilesAllowedEncodings() throws Exception {
+		ContentTypeRule rule = ContentTypeRule.compile(annotation("gzip"));
+
+		assertTrue(rule.validatesEncoding());
+		assertTrue(rule.allows(ContentCoding.IDENTITY));
+		assertTrue(rule.allows(ContentCoding.GZIP));
+		assertFalse(rule.allows(ContentCoding.DEFLATE));
+	}
+
+	@Test
+	void withoutAllowedEncodingsDoesNotValidateEncoding() throws Exception {
+		ContentTypeRule rule = ContentTypeRule.compile(annotation("defaults"));
+
+		assertFalse(rule.validatesEncoding());
+		assertFalse(rule.allows(ContentCoding.GZIP));
+	}
+
+	@Test
+	void compileRejectsUnsupportedEncodings() {
+		assertThrows(IllegalArgumentException.class, () -> ContentTypeRule.compile(annotation("brotli")));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "gzip", "GZIP", " x-gzip " })
+	void parsesGzipAliases(String header) {
+		assertEquals(ContentCoding.GZIP, ContentCoding.parse(header));
+	}
+
+	@Test
+	void parsesIdentityAndRejectsUnknownOrStackedEncodings() {
+		assertEquals(ContentCoding.IDENTITY, ContentCoding.parse(null));
+		assertEquals(ContentCoding.IDENTITY, ContentCoding.parse("identity"));
+		assertEquals(null, ContentCoding.parse("br"));
+		assertEquals(null, ContentCoding.parse("gzip, deflate"));
+	}
+
+	@Test
+	void checksPartContentTypes() throws Exception {
+		ContentTypeRule rule = ContentTypeRule.compile(annotation("pngParts"));
+
+		assertTrue(rule.validatesParts());
+		assertEquals(null, rule.checkPart("IMAGE/PNG"));
+		assertEquals(null, rule.checkPart("image/png; name=foto"));
+		assertEquals(ContentTypeRule.PART_MESSAGE, rule.checkPart("text/plain"));
+	}
+
+	@Test
+	void withoutPartTypesAcceptsAnyPart() throws Exception {
+		ContentTypeRule rule = ContentTypeRule.compile(annotation("defaults"));
+
+		assertFalse(rule.validatesParts());
+		assertEquals(null, rule.checkPart("text/plain"));
+	}
+
+	@Test
+	void compileRejectsPartTypesWithoutMultipart() {
+		assertThrows(IllegalArgumentException.class, () -> ContentTypeRule.compile(annotation("jsonParts")));
+	}
+
+	@Test
+	void withMediaTypeKeepsPartTypes() throws Exception {
+		ContentTypeRule rule = ContentTypeRule.compile(annotation("pngParts")).withMediaType("multipart/mixed");
+
+		assertEquals(ContentTypeRule.PART_MESSAGE, rule.checkPart("text/plain"));
+		assertThrows(IllegalArgumentException.class,
+				() -> ContentTypeRule.compile(annotation("pngParts")).withMediaType("application/json"));
+	}
+
+	@Test
+	void rejectsHeadersOverTheLimitsBeforeParsing() throws Exception {
+		ContentTypeRule rule = ContentTypeRule.compile(annotation("limited"));
+
+		assertEquals(null, rule.check("application/json; charset=UTF-8; q=1"));
+		assertEquals(null, rule.check("application/json" + " ".repeat(24)));
+		assertEquals(ContentTypeRule.TOO_LONG_MESSAGE, rule.check("application/json" + " ".repeat(25)));
+		assertEquals(ContentTypeRule.TOO_MANY_PARAMETERS_MESSAGE, rule.check("application/json;;;"));
+		assertEquals(ContentTypeRule.TOO_MANY_PARAMETERS_MESSAGE, rule.check("text/plain;a;b;c"));
+	}
+
+	@Test
+	void defaultLimitsBoundHeaderSize() {
+		ContentTypeRule rule = ContentTypeRule.compile("application/json");
+
+		assertEquals(ContentTypeRule.TOO_LONG_MESSAGE, rule.check(";".repeat(10_000)));
+		assertEquals(ContentTypeRule.TOO_MANY_PARAMETERS_MESSAGE, rule.check("application/json" + ";".repeat(9)));
+		assertEquals(null, rule.check("application/json" + ";".repeat(8)));
+	}
+
+	@Test
+	void compileRejectsInvalidLimits() {
+		assertThrows(IllegalArgumentException.class, () -> ContentTypeRule.compile(annotation("noLength")));
+		assertThrows(IllegalArgumentException.class, () -> ContentTypeRule.compile(annotation("negativeParameters")));
+	}
+
+	@Test
+	void withMediaTypeKeepsLimits() throws Exception {
+		ContentTypeRule rule = ContentTypeRule.compile(annotation("limited")).withMediaType("application/acme+json");
+
+		assertEquals(ContentTypeRule.TOO_MANY_PARAMETERS_MESSAGE, rule.check("application/acme+json;;;"));
+	}
+
+	private static ValidContentType annotation(String method) throws NoSuchMethodException {
+		return Fixtures.class.getDeclaredMethod(method).getAnnotation(ValidContentType.class);
+	}
+
+	private static MockHttpServletRequest request(String method, String path) {
+		return new MockHttpServletRequest(method, path);
+	}
+
+	static class Fixtures {
+
+		@ValidContentType(methods = RequestMethod.PUT, includePaths = "/api/**", excludePaths = "/api/*/internal")
+		void scoped() {
+		}
+
+		@ValidContentType
+		void defaults() {
+		}
+
+		@ValidContentType(methods = {})
+		void noMethods() {
+		}
+
+		@ValidContentType(includePaths = "/api/{*rest}/more")
+		void invalidPattern() {
+		}
+
+		@ValidContentType(allowedEncodings = "gzip")
+		void gzip() {
+		}
+
+		@ValidContentType(allowedEncodings = "br")
+		void brotli() {
+		}
+
+		@ValidContentType(value = "multipart/form-data", partTypes = "image/png")
+		void pngParts() {
+		}
+
+		@ValidContentType(partTypes = "image/png")
+		void jsonParts() {
+		}
+
+		@ValidContentType(maxLength = 40, maxParameters = 2)
+		void limited() {
+		}
+
+		@ValidContentType(maxLength = 0)
+		void noLength() {
+		}
+
+		@ValidContentType(maxParameters = -1)
+		void negativeParameters() {
+		}
+
+		@ValidContentType(maxParameters = 0)
+		void noParameters() {
+		}
+
+	}
+
+}
@@ -0,0 +1,98 @@
+package com.example.demo.config;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ContentTypeShadowEndpointTest {
+
+	@Test
+	void shadowRuleLetsRequestsThroughAndReportsWouldRejects() throws Exception {
+		Method method = Handlers.class.getDeclaredMethod("shadow");
+		Method enforced = Handlers.class.getDeclaredMethod("enforced");
+		ContentTypeRule rule = ContentTypeRule.compile(method.getAnnotation(ValidContentType.class));
+		ContentTypeRuleRegistry registry = mock(ContentTypeRuleRegistry.class);
+		when(registry.getRule(method, null)).thenReturn(rule);
+		when(registry.getRules()).thenReturn(Map.of(method, rule, enforced, ContentTypeRule.DEFAULT));
+		ContentTypeInterceptor interceptor = new ContentTypeInterceptor(registry, new EndpointLatencyRecorder(),
+				mock(BulkheadRegistry.class), mock(IdempotencyRegistry.class), mock(TrafficCaptureLog.class));
+
+		assertTrue(interceptor.preHandle(request("application/xml"), new MockHttpServletResponse(),
+				new HandlerMethod(new Handlers(), method)));
+		assertTrue(interceptor.preHandle(request("application/json"), new MockHttpServletResponse(),
+				new HandlerMethod(new Handlers(), method)));
+
+		Map<String, Map<String, Object>> report = new ContentTypeShadowEndpoint(registry).shadowRules();
+		assertEquals(1, report.size());
+		Map<String, Object> summary = report.get("Handlers#shadow");
+		assertEquals("application/json", summary.get("rule"));
+		assertEquals(2L, summary.get("evaluated"));
+		assertEquals(1L, summary.get("wouldReject"));
+		assertEquals(List.of("application/xml"), summary.get("samples"));
+	}
+
+	@Test
+	void reportsTenantAndUnindexedRulesUnderTheirEndpoint() throws Exception {
+		Method method = Handlers.class.getDeclaredMethod("shadow");
+		Method unindexed = Handlers.class.getDeclaredMethod("unindexed");
+		ContentTypeRule rule = ContentTypeRule.compile(method.getAnnotation(ValidContentType.class));
+		ContentTypeRule lenient = ContentTypeRule.lenient(unindexed.getAnnotation(ValidContentType.class));
+		ContentTypeRuleRegistry registry = mock(ContentTypeRuleRegistry.class);
+		when(registry.hasTenantRules()).thenReturn(true);
+		when(registry.getRule(method, "acme")).thenReturn(rule.withMediaType("application/acme+json"));
+		when(registry.getLenientRule(any())).thenReturn(lenient);
+		when(registry.getRules()).thenReturn(Map.of(method, rule));
+		when(registry.getLenientRules()).thenReturn(Map.of(unindexed, lenient));
+		ContentTypeInterceptor interceptor = new ContentTypeInterceptor(registry, new EndpointLatencyRecorder(),
+				mock(BulkheadRegistry.class), mock(IdempotencyRegistry.class), mock(TrafficCaptureLog.class));
+		MockHttpServletRequest tenantRequest = request("application/json");
+		tenantRequest.addHeader(ContentTypeRuleRegistry.TENANT_HEADER, "acme");
+
+		interceptor.preHandle(tenantRequest, new MockHttpServletResponse(), new HandlerMethod(new Handlers(), method));
+		for (int i = 0; i < 2; i++) {
+			interceptor.preHandle(request("application/xml"), new MockHttpServletResponse(),
+					new HandlerMethod(new Handlers(), unindexed));
+		}
+
+		Map<String, Map<String, Object>> report = new ContentTypeShadowEndpoint(registry).shadowRules();
+		assertEquals(1L, report.get("Handlers#shadow").get("wouldReject"));
+		assertEquals(List.of("application/json"), report.get("Handlers#shadow").get("samples"));
+		assertEquals(2L, report.get("Handlers#unindexed").get("evaluated"));
+		assertEquals(2L, report.get("Handlers#unindexed").get("wouldReject"));
+	}
+
+	private static MockHttpServletRequest request(String contentType) {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/shadow");
+		request.addHeader(HttpHeaders.CONTENT_TYPE, contentType);
+		return request;
+	}
+
+	static class Handlers {
+
+		@ValidContentType(mode = ValidationMode.SHADOW)
+		void shadow() {
+		}
+
+		@ValidContentType
+		void enforced() {
+		}
+
+		@ValidContentType(mode = ValidationMode.SHADOW)
+		void unindexed() {
+		}
+
+	}
+
+}
@@ -0,0 +1,83 @@
+package com.example.demo.config;
+
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.method.HandlerMethod;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ContentTypeValidationEventTest {
+
+	private final ContentTypeRuleRegistry ruleRegistry = mock(ContentTypeRuleRegistry.class);
+
+	private final ContentTypeInterceptor interceptor = new ContentTypeInterceptor(
+			ruleRegistry, new EndpointLatencyRecorder(), mock(BulkheadRegistry.class),
+			mock(IdempotencyRegistry.class), mock(TrafficCaptureLog.class));
+
+	@Test
+	void recordsAcceptedAndRejectedDecisions() throws Exception {
+		Path file = Files.createTempFile("content-type-validation", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable(ContentTypeValidationEvent.NAME).withThreshold(Duration.ZERO);
+			recording.start();
+
+			HandlerMethod handler = handlerMethod();
+			when(ruleRegistry.getLenientRule(handler)).thenReturn(ContentTypeRule.DEFAULT);
+			interceptor.preHandle(requestWith("application/custom-type"), mock(HttpServletResponse.class), handler);
+			assertThrows(InvalidContentTypeException.class, () -> interceptor
+					.preHandle(requestWith("application/json"), mock(HttpServletResponse.class), handler));
+
+			recording.stop();
+			recording.dump(file);
+		}
+
+		List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+				.filter(event -> event.getEventType().getName().equals(ContentTypeValidationEvent.NAME))
+				.toList();
+		Files.deleteIfExists(file);
+
+		assertEquals(2, events.size());
+		assertEquals("ContentTypeValidationEventTest#handle", events.get(0).getString("endpoint"));
+		assertEquals("application/custom-type", events.get(0).getString("rule"));
+		assertEquals(ContentTypeValidationEvent.ACCEPTED, events.get(0).getString("outcome"));
+		assertEquals(ContentTypeValidationEvent.REJECTED, events.get(1).getString("outcome"));
+		assertTrue(events.get(1).getDuration().toNanos() >= 0);
+	}
+
+	@Test
+	void createsNoEventWithoutRecording() {
+		assertNull(ContentTypeValidationEvent.begin(null));
+	}
+
+	public void handle() {
+	}
+
+	private HandlerMethod handlerMethod() throws NoSuchMethodException {
+		Method method = getClass().getMethod("handle");
+		return new HandlerMethod(this, method);
+	}
+
+	private static HttpServletRequest requestWith(String contentType) {
+		HttpServletRequest request = mock(HttpServletRequest.class);
+		when(request.getHeader(HttpHeaders.CONTENT_TYPE)).thenReturn(contentType);
+		return request;
+	}
+
+}
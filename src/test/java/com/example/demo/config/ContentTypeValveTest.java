@@ -0,0 +1,80 @@
+package com.example.demo.config;
+
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.example.demo.controller.Controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = "content-type.validation.valve.enabled=true")
+class ContentTypeValveTest {
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	@Autowired
+	private EndpointLatencyRecorder latencyRecorder;
+
+	@Test
+	void givenInvalidContentType_rejectsBeforeReachingSpringMvc() throws Exception {
+		ResponseEntity<String> response = post("/api/content-type-not-value", "application/custom-type");
+
+		assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+		assertEquals("El Content-Type esperado es application/json", response.getBody());
+		assertEquals("text/plain;charset=UTF-8", response.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE));
+		Method method = Controller.class.getMethod("contentTypNotValue", String.class);
+		assertNull(latencyRecorder.getLatencies().get(method));
+	}
+
+	@Test
+	void givenMissingContentType_rejects() throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/content-type-value"))
+				.POST(HttpRequest.BodyPublishers.ofString("{}")).build();
+
+		HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+
+		assertEquals(HttpStatus.BAD_REQUEST.value(), response.statusCode());
+		assertEquals("El Content-Type es obligatorio", response.body());
+	}
+
+	@Test
+	void givenValidContentType_passesThrough() {
+		ResponseEntity<String> response = post("/api/content-type-value", "application/custom-type; charset=UTF-8");
+
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		assertEquals("Datos procesados correctamente", response.getBody());
+	}
+
+	@Test
+	void givenUnmappedPath_passesThrough() {
+		ResponseEntity<String> response = post("/api/unknown", "application/xml");
+
+		assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+	}
+
+	private ResponseEntity<String> post(String url, String contentType) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HttpHeaders.CONTENT_TYPE, contentType);
+		return restTemplate.postForEntity(url, new HttpEntity<>("{}", headers), String.class);
+	}
+
+}
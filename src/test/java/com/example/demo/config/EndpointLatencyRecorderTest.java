@@ -0,0 +1,71 @@
+package com.example.demo.config;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EndpointLatencyRecorderTest {
+
+	private final EndpointLatencyRecorder recorder = new EndpointLatencyRecorder();
+
+	@Test
+	void recordsBothPhasesPerEndpoint() throws Exception {
+		Method method = getClass().getDeclaredMethod("recordsBothPhasesPerEndpoint");
+
+		recorder.recordPreHandle(method, 1_000, 3_000);
+		recorder.recordHandlerStart(method, 3_000);
+		recorder.recordCompletion(new MockHttpServletRequest(), method, 10_000);
+
+		EndpointLatencyRecorder.EndpointLatency latency = recorder.getLatencies().get(method);
+		assertEquals("EndpointLatencyRecorderTest#recordsBothPhasesPerEndpoint", latency.getName());
+		assertEquals(2_000, latency.getPreHandle().getMax());
+		assertEquals(7_000, latency.getHandler().getMax());
+	}
+
+	@Test
+	void ignoresCompletionWithoutPreHandle() throws Exception {
+		Method method = getClass().getDeclaredMethod("ignoresCompletionWithoutPreHandle");
+
+		recorder.recordCompletion(new MockHttpServletRequest(), method, 10_000);
+		recorder.recordPreHandle(null, 0, 1);
+		recorder.recordHandlerStart(null, 1);
+
+		assertTrue(recorder.getLatencies().isEmpty());
+	}
+
+	@Test
+	void ignoresCompletionAfterDiscardedStart() throws Exception {
+		Method method = getClass().getDeclaredMethod("ignoresCompletionAfterDiscardedStart");
+
+		recorder.recordHandlerStart(method, 1_000);
+		recorder.discardHandlerStart();
+		recorder.recordCompletion(new MockHttpServletRequest(), method, 10_000);
+
+		assertTrue(recorder.getLatencies().isEmpty());
+	}
+
+	@Test
+	void recordsAsyncCompletionOnAnotherThread() throws Exception {
+		Method method = getClass().getDeclaredMethod("recordsAsyncCompletionOnAnotherThread");
+		MockHttpServletRequest request = new MockHttpServletRequest();
+
+		recorder.recordPreHandle(method, 1_000, 3_000);
+		recorder.recordHandlerStart(method, 3_000);
+		recorder.recordAsyncStarted(request, method);
+		// Otra peticion al mismo endpoint en el hilo original no debe usar ese inicio
+		recorder.recordCompletion(new MockHttpServletRequest(), method, 5_000);
+		CompletableFuture.runAsync(() -> recorder.recordCompletion(request, method, 20_000)).get();
+
+		LatencyHistogram handler = recorder.getLatencies().get(method).getHandler();
+		assertEquals(1, handler.getCount());
+		assertEquals(17_000, handler.getMax());
+		assertNull(request.getAttribute(EndpointLatencyRecorder.HANDLER_START_ATTRIBUTE));
+	}
+
+}
@@ -0,0 +1,154 @@
+package com.example.demo.config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdempotencyCacheTest {
+
+	private static final long TTL = 1_000;
+
+	private final AtomicLong now = new AtomicLong();
+
+	@Test
+	void replaysCompletedResponse() {
+		IdempotencyCache cache = cache(100, 1 << 20, 1024);
+		CachedResponse response = response("hecho");
+
+		assertNull(cache.reserve("clave"));
+		cache.complete("clave", response);
+
+		assertSame(response, cache.reserve("clave"));
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	void rejectsConcurrentRequestWithSameKey() {
+		IdempotencyCache cache = cache(100, 1 << 20, 1024);
+		cache.reserve("clave");
+
+		assertThrows(IdempotencyConflictException.class, () -> cache.reserve("clave"));
+	}
+
+	@Test
+	void releasedKeyCanBeRetried() {
+		IdempotencyCache cache = cache(100, 1 << 20, 1024);
+		cache.reserve("clave");
+		cache.release("clave");
+
+		assertNull(cache.reserve("clave"));
+	}
+
+	@Test
+	void expiresEntriesAfterTtl() {
+		IdempotencyCache cache = cache(100, 1 << 20, 1024);
+		cache.reserve("clave");
+		cache.complete("clave", response("hecho"));
+
+		now.addAndGet(TTL);
+
+		assertNull(cache.reserve("clave"));
+		assertEquals(1, cache.getExpirations());
+	}
+
+	@Test
+	void evictsWhenSegmentIsFull() {
+		IdempotencyCache cache = cache(16, 1 << 20, 1024);
+		for (int i = 0; i < 1000; i++) {
+			String key = "clave-" + i;
+			cache.reserve(key);
+			cache.complete(key, response("hecho"));
+		}
+
+		assertTrue(cache.size() <= 16);
+		assertEquals(1000 - cache.size(), cache.getEvictions());
+	}
+
+	@Test
+	void doesNotEvictReservationsInFlight() {
+		IdempotencyCache cache = cache(16, 16 * 512, 1024);
+		cache.reserve("en-curso");
+		for (int i = 0; i < 1000; i++) {
+			String key = "clave-" + i;
+			cache.reserve(key);
+			cache.complete(key, response("hecho"));
+		}
+
+		assertThrows(IdempotencyConflictException.class, () -> cache.reserve("en-curso"));
+	}
+
+	@Test
+	void expiredReservationCanBeRetried() {
+		IdempotencyCache cache = cache(100, 1 << 20, 1024);
+		cache.reserve("clave");
+
+		now.addAndGet(TTL);
+
+		assertNull(cache.reserve("clave"));
+		assertEquals(1, cache.getExpirations());
+	}
+
+	@Test
+	void keepsWithinByteBudget() {
+		long maxBytes = 16 * 4096;
+		IdempotencyCache cache = cache(10_000, maxBytes, 4096);
+		for (int i = 0; i < 1000; i++) {
+			String key = "clave-" + i;
+			cache.reserve(key);
+			cache.complete(key, response("x".repeat(1000)));
+		}
+
+		assertTrue(cache.bytes() <= maxBytes);
+		assertTrue(cache.getEvictions() > 0);
+	}
+
+	@Test
+	void doesNotStoreBodiesOverLimit() {
+		IdempotencyCache cache = cache(100, 1 << 20, 10);
+		cache.reserve("clave");
+		cache.complete("clave", response("demasiado largo"));
+
+		assertNull(cache.reserve("clave"));
+	}
+
+	@Test
+	void clockGivesReadEntriesASecondChance() {
+		IdempotencyCache cache = cache(16, 1 << 20, 1024);
+		String hot = null;
+		for (int i = 0; hot == null || cache.size() < 16; i++) {
+			String key = "clave-" + i;
+			cache.reserve(key);
+			cache.complete(key, response("hecho"));
+			if (i == 0) {
+				hot = key;
+			}
+		}
+		for (int i = 0; i < 200; i++) {
+			if (cache.reserve(hot) == null) {
+				cache.complete(hot, response("hecho"));
+			}
+			String key = "otra-" + i;
+			cache.reserve(key);
+			cache.complete(key, response("hecho"));
+		}
+
+		assertTrue(cache.getHits() > 150);
+	}
+
+	private IdempotencyCache cache(int maxEntries, long maxBytes, int maxBodyBytes) {
+		return new IdempotencyCache(maxEntries, maxBytes, maxBodyBytes, TTL, now::get);
+	}
+
+	private static CachedResponse response(String body) {
+		return new CachedResponse(200, "text/plain;charset=UTF-8", body.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
@@ -0,0 +1,117 @@
+package com.example.demo.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InflatingInputStreamTest {
+
+	private static final byte[] BODY = "{\"dato\":\"ejemplo\"}\n".repeat(1000).getBytes(StandardCharsets.UTF_8);
+
+	private final AtomicInteger releases = new AtomicInteger();
+
+	@Test
+	void inflatesGzip() throws IOException {
+		try (InputStream in = stream(gzip(BODY), ContentCoding.GZIP, 1 << 20, 100)) {
+			assertArrayEquals(BODY, in.readAllBytes());
+		}
+		assertEquals(1, releases.get());
+	}
+
+	@Test
+	void inflatesGzipWithOptionalHeaderFields() throws IOException {
+		byte[] compressed = gzip(BODY);
+		ByteArrayOutputStream withName = new ByteArrayOutputStream();
+		withName.write(compressed, 0, 3);
+		withName.write(compressed[3] | 8 | 4);
+		withName.write(compressed, 4, 6);
+		withName.write(new byte[] { 2, 0, 'x', 'y' });
+		withName.write("cuerpo.ndjson\0".getBytes(StandardCharsets.ISO_8859_1));
+		withName.write(compressed, 10, compressed.length - 10);
+
+		try (InputStream in = stream(withName.toByteArray(), ContentCoding.GZIP, 1 << 20, 100)) {
+			assertArrayEquals(BODY, in.readAllBytes());
+		}
+	}
+
+	@Test
+	void inflatesDeflate() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (DeflaterOutputStream deflater = new DeflaterOutputStream(out)) {
+			deflater.write(BODY);
+		}
+
+		try (InputStream in = stream(out.toByteArray(), ContentCoding.DEFLATE, 1 << 20, 100)) {
+			assertArrayEquals(BODY, in.readAllBytes());
+		}
+	}
+
+	@Test
+	void abortsWhenDecompressedSizeExceedsMaximum() {
+		InputStream in = stream(gzip(BODY), ContentCoding.GZIP, 1000, 1000);
+
+		assertThrows(DecompressionLimitException.class, in::readAllBytes);
+	}
+
+	@Test
+	void abortsZipBombEarlyOnCompressionRatio() throws IOException {
+		byte[] bomb = gzip(new byte[64 * 1024 * 1024]);
+		InflatingInputStream in = stream(bomb, ContentCoding.GZIP, Long.MAX_VALUE, 100);
+
+		assertThrows(DecompressionLimitException.class, in::readAllBytes);
+		assertTrue(in.getProduced() < 1024 * 1024, "Descomprimidos " + in.getProduced() + " bytes");
+	}
+
+	@Test
+	void rejectsCorruptedCrc() {
+		byte[] compressed = gzip(BODY);
+		compressed[compressed.length - 8] ^= 1;
+
+		assertThrows(ZipException.class, () -> stream(compressed, ContentCoding.GZIP, 1 << 20, 100).readAllBytes());
+	}
+
+	@Test
+	void rejectsTruncatedBody() {
+		byte[] compressed = gzip(BODY);
+		byte[] truncated = java.util.Arrays.copyOf(compressed, compressed.length / 2);
+
+		assertThrows(EOFException.class, () -> stream(truncated, ContentCoding.GZIP, 1 << 20, 100).readAllBytes());
+	}
+
+	@Test
+	void rejectsNonGzipBody() {
+		assertThrows(ZipException.class, () -> stream(BODY, ContentCoding.GZIP, 1 << 20, 100).readAllBytes());
+	}
+
+	private InflatingInputStream stream(byte[] compressed, ContentCoding coding, long maxBytes, int maxRatio) {
+		return new InflatingInputStream(new ByteArrayInputStream(compressed), coding,
+				new Inflater(coding == ContentCoding.GZIP), new byte[512], maxBytes, maxRatio,
+				releases::incrementAndGet);
+	}
+
+	private static byte[] gzip(byte[] body) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(body);
+		} catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+		return out.toByteArray();
+	}
+
+}
@@ -0,0 +1,48 @@
+package com.example.demo.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+	@Test
+	void emptyHistogramReportsZero() {
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getValueAtPercentile(99));
+		assertEquals(0, histogram.getMax());
+	}
+
+	@Test
+	void percentilesStayWithinBucketPrecision() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long value = 1; value <= 10_000; value++) {
+			histogram.record(value * 1_000);
+		}
+
+		assertEquals(10_000, histogram.getCount());
+		assertEquals(10_000_000, histogram.getMax());
+		assertWithinPrecision(5_000_000, histogram.getValueAtPercentile(50));
+		assertWithinPrecision(9_900_000, histogram.getValueAtPercentile(99));
+		assertEquals(10_000_000, histogram.getValueAtPercentile(100));
+	}
+
+	@Test
+	void bucketsCoverTheWholeRange() {
+		long previous = -1;
+		for (long value : new long[] { 0, 1, 31, 32, 33, 1_000, 1L << 40, Long.MAX_VALUE }) {
+			int index = LatencyHistogram.bucketIndex(value);
+			assertTrue(index >= previous);
+			previous = index;
+		}
+		new LatencyHistogram().record(Long.MAX_VALUE);
+	}
+
+	private static void assertWithinPrecision(long expected, long actual) {
+		assertTrue(Math.abs(actual - expected) <= expected / 16, () -> "expected ~" + expected + " but was " + actual);
+	}
+
+}
@@ -0,0 +1,75 @@
+package com.example.demo.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MacPoolTest {
+
+	private static final byte[] KEY = "clave".getBytes(StandardCharsets.UTF_8);
+
+	@Test
+	void signsStreamedBodyIncrementally() throws Exception {
+		MacPool pool = new MacPool("HmacSHA256", KEY, 2);
+		byte[] body = "x".repeat(10_000).getBytes(StandardCharsets.UTF_8);
+		MacPool.PooledMac mac = pool.acquire();
+
+		try (InputStream in = new SigningInputStream(new ByteArrayInputStream(body), mac)) {
+			in.read();
+			in.readNBytes(100);
+			((SigningInputStream) in).drain();
+		}
+
+		assertTrue(mac.matches(expected(body)));
+	}
+
+	@Test
+	void resetsMacBetweenUses() throws Exception {
+		MacPool pool = new MacPool("HmacSHA256", KEY, 1);
+		MacPool.PooledMac mac = pool.acquire();
+		mac.update(new byte[] { 1, 2, 3 }, 0, 3);
+		pool.release(mac);
+
+		MacPool.PooledMac reused = pool.acquire();
+
+		assertSame(mac, reused);
+		assertTrue(reused.matches(expected(new byte[0])));
+	}
+
+	@Test
+	void createsNewInstancesWhenPoolIsEmpty() {
+		MacPool pool = new MacPool("HmacSHA256", KEY, 1);
+
+		assertNotSame(pool.acquire(), pool.acquire());
+	}
+
+	@Test
+	void rejectsWrongSignature() {
+		MacPool pool = new MacPool("HmacSHA256", KEY, 1);
+
+		assertFalse(pool.acquire().matches(new byte[32]));
+	}
+
+	@Test
+	void failsOnUnknownAlgorithm() {
+		assertThrows(IllegalArgumentException.class, () -> new MacPool("HmacDesconocido", KEY, 1));
+	}
+
+	private static byte[] expected(byte[] body) throws Exception {
+		Mac mac = Mac.getInstance("HmacSHA256");
+		mac.init(new SecretKeySpec(KEY, "HmacSHA256"));
+		return mac.doFinal(body);
+	}
+
+}
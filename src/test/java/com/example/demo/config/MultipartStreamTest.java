@@ -0,0 +1,221 @@
+package com.example.demo.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MultipartStreamTest {
+
+	private static final ContentTypeRule PNG_PARTS = ContentTypeRule.compile(annotation("pngParts"));
+
+	private final BufferPool bufferPool = new BufferPool(256, 1);
+
+	@ParameterizedTest
+	@ValueSource(ints = { 1, 7, 4096 })
+	void readsPartsInAnyChunkSize(int chunkSize) throws IOException {
+		String body = "preambulo\r\n" + part("uno.png", "image/png", "PNG-1") + part("dos.png", "image/png",
+				"--limit\r\n-contenido-con-casi-el-limite-") + "--limite--\r\nepilogo";
+
+		try (MultipartStream stream = stream(new ChunkedInputStream(bytes(body), chunkSize), PNG_PARTS)) {
+			MultipartStream.Part first = stream.next();
+			assertEquals("imagen", first.getName());
+			assertEquals("uno.png", first.getFilename());
+			assertEquals("image/png", first.getContentType());
+			assertEquals("PNG-1", content(first));
+
+			MultipartStream.Part second = stream.next();
+			assertEquals("--limit\r\n-contenido-con-casi-el-limite-", content(second));
+			assertNull(stream.next());
+		}
+	}
+
+	@Test
+	void skipsUnreadContent() throws IOException {
+		String body = part("uno.png", "image/png", "x".repeat(1000)) + part("dos.png", "image/png", "PNG-2")
+				+ "--limite--\r\n";
+
+		try (MultipartStream stream = stream(new ByteArrayInputStream(bytes(body)), PNG_PARTS)) {
+			MultipartStream.Part first = stream.next();
+			MultipartStream.Part second = stream.next();
+			assertEquals(-1, first.getInputStream().read());
+			assertEquals("PNG-2", content(second));
+		}
+	}
+
+	@Test
+	void partsWithoutContentTypeAreTextPlain() throws IOException {
+		String body = "--limite\r\nContent-Disposition: form-data; name=\"campo\"\r\n\r\nvalor\r\n--limite--";
+
+		try (MultipartStream stream = stream(new ByteArrayInputStream(bytes(body)), ContentTypeRule.DEFAULT)) {
+			MultipartStream.Part part = stream.next();
+			assertEquals("text/plain", part.getContentType());
+			assertEquals("valor", content(part));
+		}
+	}
+
+	@Test
+	void rejectsFirstInvalidPartWithoutReadingItsContent() throws IOException {
+		byte[] body = bytes(part("uno.png", "image/png", "PNG-1") + part("script.sh", "text/x-sh", "x".repeat(4096))
+				+ "--limite--\r\n");
+		CountingInputStream input = new CountingInputStream(new ChunkedInputStream(body, 64));
+		MultipartStream stream = stream(input, PNG_PARTS);
+
+		assertEquals("PNG-1", content(stream.next()));
+		InvalidContentTypeException ex = assertThrows(InvalidContentTypeException.class, stream::next);
+
+		assertEquals(ContentTypeRule.PART_MESSAGE, ex.getMessage());
+		// Como mucho se ha leido un buffer: el resto de la parte rechazada no se lee
+		assertTrue(input.count <= 256, "leidos " + input.count + " bytes");
+		assertNull(stream.next());
+	}
+
+	@Test
+	void shadowRuleDoesNotRejectParts() throws IOException {
+		ContentTypeRule shadow = ContentTypeRule.compile(annotation("shadowPngParts"));
+		String body = part("script.sh", "text/x-sh", "echo") + "--limite--\r\n";
+
+		try (MultipartStream stream = stream(new ByteArrayInputStream(bytes(body)), shadow)) {
+			assertEquals("echo", content(stream.next()));
+		}
+		assertEquals(1, shadow.getShadowStats().getSamples().size());
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "sin-delimitador", "--limite\r\nContent-Type: image/png\r\n\r\nsin cierre",
+			"--limite\r\nsin-dos-puntos\r\n\r\nx\r\n--limite--", "--limite" })
+	void rejectsMalformedBodies(String body) {
+		MultipartStream stream = stream(new ByteArrayInputStream(bytes(body)), ContentTypeRule.DEFAULT);
+
+		InvalidContentTypeException ex = assertThrows(InvalidContentTypeException.class, () -> {
+			for (MultipartStream.Part part = stream.next(); part != null; part = stream.next()) {
+				content(part);
+			}
+		});
+		assertEquals(MultipartStream.MALFORMED_MESSAGE, ex.getMessage());
+	}
+
+	@Test
+	void rejectsHeadersLargerThanBuffer() {
+		String body = "--limite\r\nX-Relleno: " + "x".repeat(300) + "\r\n\r\nx\r\n--limite--";
+		MultipartStream stream = stream(new ByteArrayInputStream(bytes(body)), ContentTypeRule.DEFAULT);
+
+		assertThrows(InvalidContentTypeException.class, stream::next);
+	}
+
+	@Test
+	void releasesBufferWhenFinished() throws IOException {
+		MultipartStream stream = stream(new ByteArrayInputStream(bytes("--limite--")), ContentTypeRule.DEFAULT);
+		assertNull(stream.next());
+
+		byte[] buffer = bufferPool.acquire();
+		bufferPool.release(buffer);
+		assertSame(buffer, bufferPool.acquire());
+	}
+
+	@Test
+	void extractsBoundary() {
+		assertEquals("limite", MultipartStream.boundary("multipart/form-data; boundary=limite"));
+		assertEquals("con espacio", MultipartStream.boundary("multipart/form-data; boundary=\"con espacio\""));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "multipart/form-data", "multipart/form-data; boundary=\"\"", "no es un media type" })
+	void rejectsMissingBoundary(String contentType) {
+		assertThrows(InvalidContentTypeException.class, () -> MultipartStream.boundary(contentType));
+	}
+
+	@Test
+	void rejectsBoundaryLongerThanRfcLimit() {
+		assertThrows(InvalidContentTypeException.class,
+				() -> MultipartStream.boundary("multipart/form-data; boundary=" + "b".repeat(71)));
+	}
+
+	private MultipartStream stream(InputStream body, ContentTypeRule rule) {
+		return new MultipartStream(body, "limite", rule, bufferPool);
+	}
+
+	private static String part(String filename, String contentType, String content) {
+		return "--limite\r\nContent-Disposition: form-data; name=\"imagen\"; filename=\"" + filename
+				+ "\"\r\nContent-Type: " + contentType + "\r\n\r\n" + content + "\r\n";
+	}
+
+	private static String content(MultipartStream.Part part) throws IOException {
+		return new String(part.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static ValidContentType annotation(String method) {
+		try {
+			return Fixtures.class.getDeclaredMethod(method).getAnnotation(ValidContentType.class);
+		} catch (NoSuchMethodException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * Entrega el cuerpo en trozos de tamano fijo, como llegaria por la red.
+	 */
+	private static final class ChunkedInputStream extends FilterInputStream {
+
+		private final int chunkSize;
+
+		ChunkedInputStream(byte[] body, int chunkSize) {
+			super(new ByteArrayInputStream(body));
+			this.chunkSize = chunkSize;
+		}
+
+		@Override
+		public int read(byte[] target, int offset, int length) throws IOException {
+			return super.read(target, offset, Math.min(length, chunkSize));
+		}
+
+	}
+
+	private static final class CountingInputStream extends FilterInputStream {
+
+		private int count;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read(byte[] target, int offset, int length) throws IOException {
+			int read = super.read(target, offset, length);
+			if (read > 0) {
+				count += read;
+			}
+			return read;
+		}
+
+	}
+
+	static class Fixtures {
+
+		@ValidContentType(value = "multipart/form-data", partTypes = "image/png")
+		void pngParts() {
+		}
+
+		@ValidContentType(value = "multipart/form-data", partTypes = "image/png", mode = ValidationMode.SHADOW)
+		void shadowPngParts() {
+		}
+
+	}
+
+}
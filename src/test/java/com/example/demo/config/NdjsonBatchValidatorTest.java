@@ -0,0 +1,102 @@
+package com.example.demo.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.config.NdjsonBatchValidator.BatchResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NdjsonBatchValidatorTest {
+
+	private final NdjsonBatchValidator validator = new NdjsonBatchValidator(new ObjectMapper());
+
+	@Test
+	void validatesEachRecord() throws IOException {
+		BatchResult result = validate("{\"a\":1}\n{\"a\":\n[1]\n{\"a\":{\"b\":2}}\n");
+
+		assertEquals(new BatchResult(2, 2, "AIIA"), result);
+	}
+
+	@Test
+	void acceptsCrlfLastLineWithoutNewlineAndSkipsBlankLines() throws IOException {
+		BatchResult result = validate("{\"a\":1}\r\n\n   \n{\"a\":2}");
+
+		assertEquals(new BatchResult(2, 0, "AA"), result);
+	}
+
+	@Test
+	void rejectsTrailingContentAfterObject() throws IOException {
+		assertEquals("I", validate("{\"a\":1} {\"b\":2}\n").status());
+	}
+
+	@Test
+	void marksRecordsOverLimitAndContinues() throws IOException {
+		String tooLong = "{\"a\":\"" + "x".repeat(NdjsonBatchValidator.MAX_RECORD_LENGTH * 3) + "\"}";
+
+		BatchResult result = validate("{\"a\":1}\n" + tooLong + "\n{\"a\":2}\n");
+
+		assertEquals(new BatchResult(2, 1, "ALA"), result);
+	}
+
+	@Test
+	void acceptsRecordsOfExactlyTheLimit() throws IOException {
+		String exact = "{\"a\":\"" + "x".repeat(NdjsonBatchValidator.MAX_RECORD_LENGTH - 8) + "\"}";
+		String overByOne = "{\"a\":\"" + "x".repeat(NdjsonBatchValidator.MAX_RECORD_LENGTH - 7) + "\"}";
+
+		BatchResult result = validate(exact + "\r\n" + exact + "\n" + overByOne + "\n" + exact);
+
+		assertEquals(new BatchResult(3, 1, "AALA"), result);
+	}
+
+	@Test
+	void handlesRecordsSplitAcrossReads() throws IOException {
+		StringBuilder body = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			body.append("{\"registro\":").append(i).append("}\n");
+		}
+
+		BatchResult result = validator.validate(new TrickleInputStream(body.toString().getBytes(StandardCharsets.UTF_8)));
+
+		assertEquals(5000, result.accepted());
+		assertEquals(0, result.rejected());
+	}
+
+	@Test
+	void emptyBodyHasNoRecords() throws IOException {
+		assertEquals(new BatchResult(0, 0, ""), validate(""));
+	}
+
+	private BatchResult validate(String body) throws IOException {
+		return validator.validate(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Devuelve como mucho 7 bytes por lectura para partir los registros.
+	 */
+	private static final class TrickleInputStream extends InputStream {
+
+		private final ByteArrayInputStream delegate;
+
+		TrickleInputStream(byte[] bytes) {
+			this.delegate = new ByteArrayInputStream(bytes);
+		}
+
+		@Override
+		public int read() {
+			return delegate.read();
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) {
+			return delegate.read(buffer, offset, Math.min(length, 7));
+		}
+
+	}
+
+}
@@ -0,0 +1,154 @@
+package com.example.demo.config;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.HttpEntityMethodProcessor;
+import org.springframework.web.servlet.mvc.method.annotation.ModelAndViewMethodReturnValueHandler;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.RequestResponseBodyMethodProcessor;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ResponseContentTypeRegistryTest {
+
+	@Test
+	void presetsPrecomputedHeaderValue() throws Exception {
+		ResponseContentTypeRegistry registry = registryFor(new ValidHandlers());
+		registry.afterSingletonsInstantiated();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		assertTrue(registry.preset(response, ValidHandlers.class.getMethod("text")));
+		assertEquals("text/plain;charset=UTF-8", response.getHeader("Content-Type"));
+		assertEquals("UTF-8", response.getCharacterEncoding());
+	}
+
+	@Test
+	void ignoresMethodsWithoutDeclaration() throws Exception {
+		ResponseContentTypeRegistry registry = registryFor(new ValidHandlers());
+		registry.afterSingletonsInstantiated();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		assertFalse(registry.preset(response, ValidHandlers.class.getMethod("undeclared")));
+		assertFalse(registry.preset(response, null));
+		assertNull(response.getContentType());
+		assertEquals(2, registry.getProducedTypes().size());
+	}
+
+	@Test
+	void decoratesOnlyBodyReturnValueHandlers() {
+		List<HttpMessageConverter<?>> converters = List.of(new StringHttpMessageConverter());
+		RequestMappingHandlerAdapter adapter = new RequestMappingHandlerAdapter();
+		adapter.setReturnValueHandlers(List.of(new ModelAndViewMethodReturnValueHandler(),
+				new HttpEntityMethodProcessor(converters), new RequestResponseBodyMethodProcessor(converters)));
+		ResponseContentTypeRegistry registry = registryFor(new ValidHandlers(), adapter);
+
+		registry.afterSingletonsInstantiated();
+
+		List<HandlerMethodReturnValueHandler> decorated = adapter.getReturnValueHandlers().stream()
+				.filter(PresetContentTypeReturnValueHandler.class::isInstance).toList();
+		assertEquals(2, decorated.size());
+		assertTrue(decorated.stream().map(handler -> ((PresetContentTypeReturnValueHandler) handler).getDelegate())
+				.allMatch(handler -> handler instanceof RequestResponseBodyMethodProcessor
+						|| handler instanceof HttpEntityMethodProcessor));
+	}
+
+	@Test
+	void checksSelectedContentType() throws Exception {
+		ResponseContentTypeRegistry registry = registryFor(new ValidHandlers());
+		registry.afterSingletonsInstantiated();
+		Method text = ValidHandlers.class.getMethod("text");
+		Method json = ValidHandlers.class.getMethod("json");
+
+		assertDoesNotThrow(() -> registry.check(text, MediaType.parseMediaType("text/plain;charset=UTF-8")));
+		assertDoesNotThrow(() -> registry.check(json, MediaType.parseMediaType("application/json;charset=UTF-8")));
+		assertThrows(InvalidResponseContentTypeException.class, () -> registry.check(text, MediaType.TEXT_PLAIN));
+		assertThrows(InvalidResponseContentTypeException.class,
+				() -> registry.check(json, MediaType.APPLICATION_XML));
+	}
+
+	@Test
+	void failsOnInvalidDeclarations() {
+		ResponseContentTypeRegistry registry = registryFor(new InvalidHandlers());
+
+		IllegalStateException exception = assertThrows(IllegalStateException.class,
+				registry::afterSingletonsInstantiated);
+
+		assertTrue(exception.getMessage().contains("wildcard"));
+		assertTrue(exception.getMessage().contains("invalid"));
+		assertTrue(exception.getMessage().contains("notProduced"));
+	}
+
+	private static ResponseContentTypeRegistry registryFor(Object bean) {
+		return registryFor(bean, new RequestMappingHandlerAdapter());
+	}
+
+	private static ResponseContentTypeRegistry registryFor(Object bean, RequestMappingHandlerAdapter adapter) {
+		RequestMappingHandlerMapping mapping = mock(RequestMappingHandlerMapping.class);
+		Map<RequestMappingInfo, HandlerMethod> handlerMethods = new HashMap<>();
+		for (Method method : bean.getClass().getDeclaredMethods()) {
+			RequestMappingInfo.Builder info = RequestMappingInfo.paths("/" + method.getName());
+			if (method.getName().equals("notProduced")) {
+				info.produces(MediaType.APPLICATION_XML_VALUE);
+			}
+			handlerMethods.put(info.build(), new HandlerMethod(bean, method));
+		}
+		when(mapping.getHandlerMethods()).thenReturn(handlerMethods);
+
+		ApplicationContext context = mock(ApplicationContext.class);
+		when(context.getBeansOfType(RequestMappingHandlerMapping.class)).thenReturn(Map.of("mapping", mapping));
+		when(context.getBeansOfType(RequestMappingHandlerAdapter.class)).thenReturn(Map.of("adapter", adapter));
+		return new ResponseContentTypeRegistry(context);
+	}
+
+	static class ValidHandlers {
+
+		@ResponseContentType("text/plain;charset=UTF-8")
+		public void text() {
+		}
+
+		@ResponseContentType(MediaType.APPLICATION_JSON_VALUE)
+		public void json() {
+		}
+
+		public void undeclared() {
+		}
+
+	}
+
+	static class InvalidHandlers {
+
+		@ResponseContentType("text/*")
+		public void wildcard() {
+		}
+
+		@ResponseContentType("text")
+		public void invalid() {
+		}
+
+		@ResponseContentType(MediaType.APPLICATION_JSON_VALUE)
+		public void notProduced() {
+		}
+
+	}
+
+}
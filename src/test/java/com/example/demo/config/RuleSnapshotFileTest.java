@@ -0,0 +1,118 @@
+package com.example.demo.config;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RuleSnapshotFileTest {
+
+	private static final Map<String, Map<String, String>> RULES = Map.of("acme",
+			Map.of("Controller#contentTypeValue", "application/acme+json"), "globex",
+			Map.of("Controller#batch", "application/x-ndjson"));
+
+	@TempDir
+	private Path directory;
+
+	@Test
+	void readersSeeEachPublishedVersion() {
+		Path file = directory.resolve("reglas.snapshot");
+		RuleSnapshotFile publisher = RuleSnapshotFile.create(file, 4096);
+		RuleSnapshotFile reader = RuleSnapshotFile.open(file);
+		assertEquals(0, reader.version());
+		assertNull(reader.read(0));
+
+		long first = publisher.publish(publisher.encode(RULES));
+		assertEquals(first, reader.version());
+		assertEquals(RULES, reader.read(first));
+
+		long second = publisher.publish(publisher.encode(Map.of()));
+		assertTrue(second > first);
+		assertEquals(Map.of(), reader.read(reader.version()));
+	}
+
+	@Test
+	void discardsReadsOfAnOutdatedOrUnfinishedVersion() {
+		Path file = directory.resolve("reglas.snapshot");
+		RuleSnapshotFile publisher = RuleSnapshotFile.create(file, 4096);
+		long first = publisher.publish(publisher.encode(RULES));
+		publisher.publish(publisher.encode(Map.of()));
+
+		assertNull(publisher.read(first));
+		assertNull(publisher.read(first + 1));
+	}
+
+	@Test
+	void newPublisherContinuesFromExistingVersion() {
+		Path file = directory.resolve("reglas.snapshot");
+		long previous = RuleSnapshotFile.create(file, 4096).publish(new byte[] { 0, 0, 0, 0 });
+
+		RuleSnapshotFile restarted = RuleSnapshotFile.create(file, 4096);
+
+		assertEquals(previous, restarted.version());
+		assertTrue(restarted.publish(restarted.encode(RULES)) > previous);
+	}
+
+	@Test
+	void readersRemapTheFileWhenThePublisherGrowsIt() {
+		Path file = directory.resolve("reglas.snapshot");
+		RuleSnapshotFile.create(file, 64);
+		RuleSnapshotFile reader = RuleSnapshotFile.open(file);
+
+		RuleSnapshotFile publisher = RuleSnapshotFile.create(file, 4096);
+		long version = publisher.publish(publisher.encode(RULES));
+
+		assertEquals(RULES, reader.read(version));
+	}
+
+	@Test
+	void readersNeverCreateTheFile() {
+		Path file = directory.resolve("reglas.snapshot");
+
+		assertThrows(IllegalStateException.class, () -> RuleSnapshotFile.open(file));
+		assertFalse(Files.exists(file));
+	}
+
+	@Test
+	void readersFailWhenTheHeaderChanges() throws Exception {
+		Path file = directory.resolve("reglas.snapshot");
+		RuleSnapshotFile publisher = RuleSnapshotFile.create(file, 4096);
+		RuleSnapshotFile reader = RuleSnapshotFile.open(file);
+		long version = publisher.publish(publisher.encode(RULES));
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap("otro".getBytes()), 0);
+		}
+
+		assertThrows(IllegalStateException.class, () -> reader.read(version));
+	}
+
+	@Test
+	void rejectsRulesThatDoNotFit() {
+		RuleSnapshotFile publisher = RuleSnapshotFile.create(directory.resolve("reglas.snapshot"), 64);
+
+		assertThrows(IllegalStateException.class, () -> publisher.encode(RULES));
+	}
+
+	@Test
+	void rejectsFilesThatAreNotSnapshots() throws Exception {
+		Path file = directory.resolve("otro.bin");
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap("no es un snapshot".getBytes()));
+		}
+
+		assertThrows(IllegalStateException.class, () -> RuleSnapshotFile.open(file));
+		assertEquals(17, Files.size(file));
+	}
+
+}
@@ -0,0 +1,48 @@
+package com.example.demo.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShadowStatsTest {
+
+	@Test
+	void countsEvaluationsAndWouldRejects() {
+		ShadowStats stats = new ShadowStats();
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.addHeader(HttpHeaders.CONTENT_TYPE, "application/xml");
+
+		stats.record(null, request);
+		stats.record("El Content-Type esperado es application/json", request);
+
+		assertEquals(2, stats.getEvaluated());
+		assertEquals(1, stats.getWouldReject());
+		assertEquals(1, stats.getSamples().size());
+		assertEquals("application/xml", stats.getSamples().get(0));
+	}
+
+	@Test
+	void reservoirIsBounded() {
+		ShadowStats stats = new ShadowStats();
+		for (int i = 0; i < 10_000; i++) {
+			stats.sample("application/x-" + i);
+		}
+
+		assertEquals(ShadowStats.RESERVOIR_SIZE, stats.getSamples().size());
+	}
+
+	@Test
+	void samplesAreTruncatedAndMissingHeaderIsMarked() {
+		ShadowStats stats = new ShadowStats();
+
+		stats.sample("x".repeat(10_000));
+		stats.sample(null);
+
+		assertEquals(ShadowStats.MAX_SAMPLE_LENGTH, stats.getSamples().get(0).length());
+		assertTrue(stats.getSamples().contains("<ausente>"));
+	}
+
+}
@@ -0,0 +1,252 @@
+package com.example.demo.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "request.signature.secret=" + SignatureBodyAdviceTest.SECRET)
+@AutoConfigureMockMvc
+@Import(SignatureBodyAdviceTest.SignedHandlers.class)
+class SignatureBodyAdviceTest {
+
+	static final String SECRET = "secreto-de-pruebas";
+
+	private static final String URL = "/test/signed";
+
+	private static final String BODY = "{\"dato\":\"ejemplo\"}";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	void acceptsValidSignature() throws Exception {
+		mockMvc.perform(request(BODY).header(SignatureBodyAdvice.SIGNATURE_HEADER, sign(BODY)))
+				.andExpect(status().isOk())
+				.andExpect(content().string("Datos procesados correctamente"));
+	}
+
+	@Test
+	void acceptsUppercaseHexSignature() throws Exception {
+		mockMvc.perform(request(BODY).header(SignatureBodyAdvice.SIGNATURE_HEADER, sign(BODY).toUpperCase()))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	void rejectsMissingSignature() throws Exception {
+		mockMvc.perform(request(BODY))
+				.andExpect(status().isUnauthorized())
+				.andExpect(content().string("El header X-Signature es obligatorio"));
+	}
+
+	@Test
+	void rejectsSignatureOfAnotherBody() throws Exception {
+		mockMvc.perform(request(BODY).header(SignatureBodyAdvice.SIGNATURE_HEADER, sign("{}")))
+				.andExpect(status().isUnauthorized())
+				.andExpect(content().string("La firma es inválida"));
+	}
+
+	@Test
+	void rejectsMalformedSignature() throws Exception {
+		mockMvc.perform(request(BODY).header(SignatureBodyAdvice.SIGNATURE_HEADER, "zz"))
+				.andExpect(status().isUnauthorized())
+				.andExpect(content().string("La firma es inválida"));
+	}
+
+	@Test
+	void validatesContentTypeBeforeSignature() throws Exception {
+		mockMvc.perform(MockMvcRequestBuilders.post(URL).header(HttpHeaders.CONTENT_TYPE, "application/json")
+				.content(BODY))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void doesNotApplyToEndpointsWithoutAnnotation() throws Exception {
+		mockMvc.perform(MockMvcRequestBuilders.post("/api/async/content-type-value")
+				.header(HttpHeaders.CONTENT_TYPE, "application/custom-type").content(BODY))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	void decodesHexOfExpectedLength() {
+		assertArrayEquals(new byte[] { 0x0a, (byte) 0xff }, SignatureBodyAdvice.decodeHex("0aFF", 2));
+		assertNull(SignatureBodyAdvice.decodeHex("0aff", 3));
+		assertNull(SignatureBodyAdvice.decodeHex("0g", 1));
+	}
+
+	@Test
+	void failsOnStartupWithoutSecret() throws Exception {
+		SignatureBodyAdvice advice = new SignatureBodyAdvice(contextFor(new MockEnvironment(), "signed"));
+
+		IllegalStateException exception = assertThrows(IllegalStateException.class,
+				advice::afterSingletonsInstantiated);
+
+		assertTrue(exception.getMessage().contains("falta la propiedad request.signature.secret"));
+	}
+
+	@Test
+	void failsOnStartupWhenNoConverterReadsTheBody() throws Exception {
+		SignatureBodyAdvice advice = new SignatureBodyAdvice(contextFor(secretEnvironment(), "streamed"));
+
+		IllegalStateException exception = assertThrows(IllegalStateException.class,
+				advice::afterSingletonsInstantiated);
+
+		assertTrue(exception.getMessage().contains("streamed"));
+		assertTrue(exception.getMessage().contains("@RequestBody o HttpEntity"));
+	}
+
+	@Test
+	void releasesMacWhenTheConverterFails() throws Exception {
+		SignatureBodyAdvice advice = adviceWithSecret();
+		MacPool pool = advice.getMacPool();
+		MacPool.PooledMac mac = pool.acquire();
+		pool.release(mac);
+		ServletRequestAttributes attributes = new ServletRequestAttributes(new MockHttpServletRequest());
+		RequestContextHolder.setRequestAttributes(attributes);
+		try {
+			HttpInputMessage message = advice.beforeBodyRead(inputMessage(new ByteArrayInputStream(new byte[0])),
+					bodyParameter(), String.class, StringHttpMessageConverter.class);
+			message.getBody().read();
+		} finally {
+			RequestContextHolder.resetRequestAttributes();
+		}
+
+		attributes.requestCompleted();
+
+		assertSame(mac, pool.acquire());
+	}
+
+	@Test
+	void propagatesReadErrorsInsteadOfRejectingTheSignature() throws Exception {
+		SignatureBodyAdvice advice = adviceWithSecret();
+		InputStream failing = new InputStream() {
+
+			@Override
+			public int read() throws IOException {
+				throw new IOException("conexion cerrada");
+			}
+
+		};
+		HttpInputMessage message = advice.beforeBodyRead(inputMessage(failing), bodyParameter(), String.class,
+				StringHttpMessageConverter.class);
+
+		assertThrows(HttpMessageNotReadableException.class, () -> advice.afterBodyRead("", message, bodyParameter(),
+				String.class, StringHttpMessageConverter.class));
+	}
+
+	private static SignatureBodyAdvice adviceWithSecret() {
+		return new SignatureBodyAdvice(contextFor(secretEnvironment(), "signed"));
+	}
+
+	private static MockEnvironment secretEnvironment() {
+		return new MockEnvironment().withProperty(SignatureBodyAdvice.SECRET_PROPERTY, SECRET);
+	}
+
+	private static HttpInputMessage inputMessage(InputStream body) throws Exception {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(SignatureBodyAdvice.SIGNATURE_HEADER, sign(BODY));
+		return new HttpInputMessage() {
+
+			@Override
+			public InputStream getBody() {
+				return body;
+			}
+
+			@Override
+			public HttpHeaders getHeaders() {
+				return headers;
+			}
+
+		};
+	}
+
+	private static MethodParameter bodyParameter() throws Exception {
+		return new MethodParameter(SignedHandlers.class.getMethod("signed", String.class), 0);
+	}
+
+	private static ApplicationContext contextFor(MockEnvironment environment, String handler) {
+		Map<RequestMappingInfo, HandlerMethod> handlerMethods = new HashMap<>();
+		for (Method method : SignedHandlers.class.getMethods()) {
+			if (method.getName().equals(handler)) {
+				handlerMethods.put(RequestMappingInfo.paths("/" + handler).build(),
+						new HandlerMethod(new SignedHandlers(), method));
+			}
+		}
+		RequestMappingHandlerMapping mapping = mock(RequestMappingHandlerMapping.class);
+		when(mapping.getHandlerMethods()).thenReturn(handlerMethods);
+		ApplicationContext context = mock(ApplicationContext.class);
+		when(context.getBeansOfType(RequestMappingHandlerMapping.class)).thenReturn(Map.of("mapping", mapping));
+		when(context.getEnvironment()).thenReturn(environment);
+		return context;
+	}
+
+	private static MockHttpServletRequestBuilder request(String body) {
+		return MockMvcRequestBuilders.post(URL).header(HttpHeaders.CONTENT_TYPE, "application/custom-type")
+				.content(body);
+	}
+
+	static String sign(String body) throws Exception {
+		Mac mac = Mac.getInstance("HmacSHA256");
+		mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+		return HexFormat.of().formatHex(mac.doFinal(body.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@RestController
+	static class SignedHandlers {
+
+		@ValidContentType("application/custom-type")
+		@ValidSignature
+		@PostMapping("/test/signed")
+		public String signed(@RequestBody String body) {
+			return "Datos procesados correctamente";
+		}
+
+		@ValidSignature
+		public void streamed(InputStream body) {
+		}
+
+	}
+
+}
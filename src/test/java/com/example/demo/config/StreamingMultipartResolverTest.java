@@ -0,0 +1,56 @@
+package com.example.demo.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
+import org.springframework.http.server.PathContainer;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StreamingMultipartResolverTest {
+
+	private final ContentTypeRuleRegistry ruleRegistry = mock(ContentTypeRuleRegistry.class);
+
+	private final StreamingMultipartResolver resolver = new StreamingMultipartResolver(ruleRegistry,
+			new MultipartProperties());
+
+	@Test
+	void leavesStreamedEndpointsUnresolved() throws Exception {
+		when(ruleRegistry.findRule(any(), any(PathContainer.class), any()))
+				.thenReturn(ContentTypeRule.DEFAULT.withMediaType("multipart/form-data"));
+		assertTrue(resolver.isMultipart(multipart()));
+
+		ContentTypeRule streamed = ContentTypeRule
+				.compile(Fixtures.class.getDeclaredMethod("pngParts").getAnnotation(ValidContentType.class));
+		when(ruleRegistry.findRule(any(), any(PathContainer.class), any())).thenReturn(streamed);
+		assertFalse(resolver.isMultipart(multipart()));
+	}
+
+	@Test
+	void resolvesRequestsWithoutRule() {
+		assertTrue(resolver.isMultipart(multipart()));
+
+		MockHttpServletRequest json = new MockHttpServletRequest("POST", "/api/otro");
+		json.setContentType("application/json");
+		assertFalse(resolver.isMultipart(json));
+	}
+
+	private static MockHttpServletRequest multipart() {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/upload");
+		request.setContentType("multipart/form-data; boundary=limite");
+		return request;
+	}
+
+	static class Fixtures {
+
+		@ValidContentType(value = "multipart/form-data", partTypes = "image/png")
+		void pngParts() {
+		}
+
+	}
+
+}
@@ -0,0 +1,64 @@
+package com.example.demo.config;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TenantRuleTableTest {
+
+	@Test
+	void findsRuleByTenantAndMethod() throws Exception {
+		Method first = Handlers.class.getDeclaredMethod("first");
+		Method second = Handlers.class.getDeclaredMethod("second");
+		ContentTypeRule acme = ContentTypeRule.compile("application/acme+json");
+		ContentTypeRule globex = ContentTypeRule.compile("application/globex+json");
+
+		TenantRuleTable table = TenantRuleTable.of(Map.of("acme", Map.of(first, acme), "globex", Map.of(second, globex)));
+
+		assertSame(acme, table.find("acme", first));
+		assertNull(table.find("acme", second));
+		assertSame(globex, table.find("globex", second));
+		assertNull(table.find("unknown", first));
+		assertNull(table.find(null, first));
+	}
+
+	@Test
+	void handlesThousandsOfTenants() throws Exception {
+		Method first = Handlers.class.getDeclaredMethod("first");
+		Map<String, Map<Method, ContentTypeRule>> rules = new HashMap<>();
+		for (int i = 0; i < 5000; i++) {
+			rules.put("tenant-" + i, Map.of(first, ContentTypeRule.compile("application/tenant-" + i + "+json")));
+		}
+
+		TenantRuleTable table = TenantRuleTable.of(rules);
+
+		assertEquals(5000, table.getTenantCount());
+		assertEquals("application/tenant-4321+json", table.find("tenant-4321", first).getMediaType());
+	}
+
+	@Test
+	void emptyTableFindsNothing() throws Exception {
+		TenantRuleTable table = TenantRuleTable.of(Map.of());
+
+		assertTrue(table.isEmpty());
+		assertNull(table.find("acme", Handlers.class.getDeclaredMethod("first")));
+	}
+
+	static class Handlers {
+
+		void first() {
+		}
+
+		void second() {
+		}
+
+	}
+
+}
@@ -0,0 +1,74 @@
+package com.example.demo.config;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.tomcat.util.buf.MessageBytes;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TomcatContentTypeMatcherTest {
+
+	private final ContentTypeRule rule = ContentTypeRule.compile("application/custom-type");
+
+	@ParameterizedTest
+	@ValueSource(strings = { "application/custom-type", "Application/Custom-Type", " application/custom-type ",
+			"application/custom-type; charset=UTF-8", "application/custom-type;" })
+	void givenExpectedBytes_thenValid(String header) {
+		assertNull(TomcatContentTypeMatcher.check(rule, bytes(header)));
+	}
+
+	@ParameterizedTest
+	@CsvSource(delimiter = '|', value = { "application/json|El Content-Type esperado es application/custom-type",
+			"application/custom-typo|El Content-Type esperado es application/custom-type",
+			"application/custom-type-x|El Content-Type esperado es application/custom-type",
+			"';'|El Content-Type es inválido", "'  ; charset=UTF-8'|El Content-Type es inválido",
+			"''|El Content-Type es inválido" })
+	void givenUnexpectedBytes_thenError(String header, String expectedError) {
+		assertEquals(expectedError, TomcatContentTypeMatcher.check(rule, bytes(header)));
+	}
+
+	@Test
+	void givenHeaderOverTheLimits_thenRejectsBeforeComparing() {
+		assertEquals(ContentTypeRule.TOO_LONG_MESSAGE,
+				TomcatContentTypeMatcher.check(rule, bytes("application/custom-type" + " ".repeat(2_000))));
+		assertEquals(ContentTypeRule.TOO_MANY_PARAMETERS_MESSAGE,
+				TomcatContentTypeMatcher.check(rule, bytes("application/custom-type" + ";".repeat(9))));
+		assertNull(TomcatContentTypeMatcher.check(rule, bytes("application/custom-type" + ";".repeat(8))));
+	}
+
+	@Test
+	void givenMissingHeader_thenMissingError() {
+		assertEquals("El Content-Type es obligatorio", TomcatContentTypeMatcher.check(rule, (MessageBytes) null));
+		assertEquals("El Content-Type es obligatorio", TomcatContentTypeMatcher.check(rule, MessageBytes.newInstance()));
+	}
+
+	@Test
+	void givenStringValue_thenFallsBackToStringCheck() {
+		MessageBytes header = MessageBytes.newInstance();
+		header.setString("application/custom-type; charset=UTF-8");
+
+		assertNull(TomcatContentTypeMatcher.check(rule, header));
+	}
+
+	@Test
+	void comparesOnlyTheChunkRange() {
+		byte[] buffer = "XXapplication/custom-typeYY".getBytes(StandardCharsets.US_ASCII);
+		MessageBytes header = MessageBytes.newInstance();
+		header.setBytes(buffer, 2, buffer.length - 4);
+
+		assertNull(TomcatContentTypeMatcher.check(rule, header));
+	}
+
+	private static MessageBytes bytes(String value) {
+		byte[] buffer = value.getBytes(StandardCharsets.ISO_8859_1);
+		MessageBytes header = MessageBytes.newInstance();
+		header.setBytes(buffer, 0, buffer.length);
+		return header;
+	}
+
+}
@@ -0,0 +1,103 @@
+package com.example.demo.config;
+
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import com.example.demo.config.TrafficCaptureLog.CapturedRequest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrafficCaptureLogTest {
+
+	@TempDir
+	private Path directory;
+
+	@Test
+	void disabledWithoutFile() {
+		TrafficCaptureLog log = new TrafficCaptureLog(new MockEnvironment());
+
+		log.record(request("application/json", null), null);
+
+		assertFalse(log.isEnabled());
+	}
+
+	@Test
+	void writesRecordsThatCanBeReplayed() throws Exception {
+		Path file = directory.resolve("captura.bin");
+		TrafficCaptureLog log = new TrafficCaptureLog(environment(file, "1", "64KB"));
+		Method method = Handlers.class.getDeclaredMethod("upload");
+
+		log.record(request("Application/JSON; charset=UTF-8", null), method);
+		log.record(request("multipart/form-data; boundary=\"a;b\"; Charset=utf-8", "gzip"), method);
+		log.record(request(null, null), null);
+		log.destroy();
+
+		List<CapturedRequest> requests = TrafficCaptureLog.read(file);
+		assertEquals(List.of(
+				new CapturedRequest("POST", "Handlers#upload", "Application/JSON; charset=UTF-8", null),
+				new CapturedRequest("POST", "Handlers#upload", "multipart/form-data; boundary=\"xxx\"; Charset=utf-8",
+						"gzip"),
+				new CapturedRequest("POST", "", null, null)), requests);
+	}
+
+	@Test
+	void dropsRecordsWhenFileIsFull() throws Exception {
+		Path file = directory.resolve("captura.bin");
+		TrafficCaptureLog log = new TrafficCaptureLog(environment(file, "1", "80B"));
+
+		for (int i = 0; i < 10; i++) {
+			log.record(request("application/json", null), null);
+		}
+
+		List<CapturedRequest> requests = TrafficCaptureLog.read(file);
+		assertEquals(2, requests.size());
+		assertEquals(8, log.getDropped());
+	}
+
+	@Test
+	void samplesOneOfEveryRateRequests() throws Exception {
+		Path file = directory.resolve("captura.bin");
+		TrafficCaptureLog log = new TrafficCaptureLog(environment(file, "10", "1MB"));
+
+		for (int i = 0; i < 10_000; i++) {
+			log.record(request("application/json", null), null);
+		}
+
+		int recorded = TrafficCaptureLog.read(file).size();
+		assertTrue(recorded > 700 && recorded < 1300, () -> "registros: " + recorded);
+	}
+
+	private static MockEnvironment environment(Path file, String sampleRate, String maxSize) {
+		return new MockEnvironment().withProperty("content-type.capture.file", file.toString())
+				.withProperty("content-type.capture.sample-rate", sampleRate)
+				.withProperty("content-type.capture.max-size", maxSize);
+	}
+
+	private static MockHttpServletRequest request(String contentType, String contentEncoding) {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/upload");
+		if (contentType != null) {
+			request.addHeader(HttpHeaders.CONTENT_TYPE, contentType);
+		}
+		if (contentEncoding != null) {
+			request.addHeader(HttpHeaders.CONTENT_ENCODING, contentEncoding);
+		}
+		return request;
+	}
+
+	static class Handlers {
+
+		void upload() {
+		}
+
+	}
+
+}
@@ -0,0 +1,69 @@
+package com.example.demo.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.generate.GenerationContext;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.beans.factory.aot.BeanRegistrationAotContribution;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RegisteredBean;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ValidContentTypeAotProcessorTest {
+
+	private final ValidContentTypeAotProcessor processor = new ValidContentTypeAotProcessor();
+
+	@Test
+	void registersAnnotatedMethodsForIntrospection() throws Exception {
+		BeanRegistrationAotContribution contribution = processor.processAheadOfTime(register(ValidBean.class));
+		assertNotNull(contribution);
+
+		RuntimeHints hints = new RuntimeHints();
+		GenerationContext generationContext = mock(GenerationContext.class);
+		when(generationContext.getRuntimeHints()).thenReturn(hints);
+		contribution.applyTo(generationContext, null);
+
+		assertTrue(RuntimeHintsPredicates.reflection().onMethod(ValidBean.class.getMethod("handle"))
+				.introspect().test(hints));
+	}
+
+	@Test
+	void ignoresBeansWithoutAnnotatedMethods() {
+		assertNull(processor.processAheadOfTime(register(Object.class)));
+	}
+
+	@Test
+	void failsBuildOnInvalidDeclaration() {
+		assertThrows(IllegalStateException.class, () -> processor.processAheadOfTime(register(InvalidBean.class)));
+	}
+
+	private static RegisteredBean register(Class<?> beanClass) {
+		DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+		beanFactory.registerBeanDefinition("bean", new RootBeanDefinition(beanClass));
+		return RegisteredBean.of(beanFactory, "bean");
+	}
+
+	static class ValidBean {
+
+		@ValidContentType("application/custom-type")
+		public void handle() {
+		}
+
+	}
+
+	static class InvalidBean {
+
+		@ValidContentType("application/")
+		public void handle() {
+		}
+
+	}
+
+}
@@ -0,0 +1,20 @@
+package com.example.demo.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ValidContentTypeRuntimeHintsTest {
+
+	@Test
+	void registersAnnotationForReflection() throws Exception {
+		RuntimeHints hints = new RuntimeHints();
+		new ValidContentTypeRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+		assertTrue(RuntimeHintsPredicates.reflection()
+				.onMethod(ValidContentType.class.getMethod("value")).test(hints));
+	}
+
+}
@@ -1,29 +1,43 @@
 package com.example.demo.config;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistration;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class WebConfigTest {
 
 	@Mock
 	private ContentTypeInterceptor contentTypeInterceptor;
 
+	@Mock
+	private MultipartStreamArgumentResolver multipartStreamArgumentResolver;
+
 	@Mock
 	private InterceptorRegistry interceptorRegistry;
 
+	@Mock
+	private InterceptorRegistration interceptorRegistration;
+
 	@InjectMocks
 	private WebConfig webConfig;
 
 	@BeforeEach
 	void setUp() {
 		MockitoAnnotations.openMocks(this);
+		when(interceptorRegistry.addInterceptor(contentTypeInterceptor)).thenReturn(interceptorRegistration);
 	}
 
 	@Test
@@ -33,4 +47,20 @@ public class WebConfigTest {
 		verify(interceptorRegistry).addInterceptor(contentTypeInterceptor);
 	}
 
-}
\ No newline at end of file
+	@Test
+	void testAddInterceptorsExcludesErrorAndActuator() {
+		webConfig.addInterceptors(interceptorRegistry);
+
+		verify(interceptorRegistration).excludePathPatterns("/error", "/actuator/**");
+	}
+
+	@Test
+	void testAddArgumentResolvers() {
+		List<HandlerMethodArgumentResolver> resolvers = new ArrayList<>();
+
+		webConfig.addArgumentResolvers(resolvers);
+
+		assertEquals(List.of(multipartStreamArgumentResolver), resolvers);
+	}
+
+}
@@ -1,18 +1,43 @@
 package com.example.demo.controller;
 
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.RequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import com.example.demo.config.BulkheadRegistry;
+import com.example.demo.config.ContentTypeRuleRegistry;
+import com.example.demo.config.EndpointLatencyRecorder;
+import com.example.demo.config.IdempotencyRegistry;
+import com.example.demo.config.LatencyHistogram;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -22,8 +47,23 @@ class ControllerTest {
 	@Autowired
 	private MockMvc mockMvc;
 
+	@Autowired
+	private EndpointLatencyRecorder latencyRecorder;
+
+	@Autowired
+	private BulkheadRegistry bulkheadRegistry;
+
+	@Autowired
+	private ContentTypeRuleRegistry ruleRegistry;
+
+	@Autowired
+	private ConfigurableEnvironment environment;
+
 	private static final String URL_CONTENT_TYPE_VALUE = "/api/content-type-value";
 	private static final String URL_CONTENT_TYPE_NOT_VALUE = "/api/content-type-not-value";
+	private static final String URL_ASYNC_CONTENT_TYPE_VALUE = "/api/async/content-type-value";
+	private static final String URL_ASYNC_CONTENT_TYPE_NOT_VALUE = "/api/async/content-type-not-value";
+	private static final String URL_FUNCTIONAL_CONTENT_TYPE_VALUE = "/api/functional/content-type-value";
 	private static final String EXPECTED_CONTENT_TYPE = "application/custom-type";
 
 	@Nested
@@ -88,4 +128,377 @@ class ControllerTest {
 
 	}
 
-}
\ No newline at end of file
+	@Nested
+	class AsyncContentType {
+
+		@Test
+		void shouldValidateCallableOnlyOnce() throws Exception {
+			long validations = validations("asyncContentTypeValue");
+			RequestBuilder requestBuilder = MockMvcRequestBuilders.post(URL_ASYNC_CONTENT_TYPE_VALUE)
+					.header(HttpHeaders.CONTENT_TYPE, EXPECTED_CONTENT_TYPE).content("{}");
+
+			MvcResult result = mockMvc.perform(requestBuilder).andExpect(request().asyncStarted()).andReturn();
+			mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk())
+					.andExpect(content().string("Datos procesados correctamente"));
+
+			assertEquals(validations + 1, validations("asyncContentTypeValue"));
+		}
+
+		@Test
+		void shouldValidateCompletableFutureOnlyOnce() throws Exception {
+			long validations = validations("asyncContentTypNotValue");
+			RequestBuilder requestBuilder = MockMvcRequestBuilders.post(URL_ASYNC_CONTENT_TYPE_NOT_VALUE)
+					.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE).content("{}");
+
+			MvcResult result = mockMvc.perform(requestBuilder).andExpect(request().asyncStarted()).andReturn();
+			mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk())
+					.andExpect(content().string("Datos procesados correctamente"));
+
+			assertEquals(validations + 1, validations("asyncContentTypNotValue"));
+		}
+
+		@Test
+		void shouldRecordHandlerLatencyWhenAsyncDispatchCompletes() throws Exception {
+			Method method = Controller.class.getMethod("asyncContentTypeValue", String.class);
+			long completed = handlerCount(method);
+			RequestBuilder requestBuilder = MockMvcRequestBuilders.post(URL_ASYNC_CONTENT_TYPE_VALUE)
+					.header(HttpHeaders.CONTENT_TYPE, EXPECTED_CONTENT_TYPE).content("{}");
+
+			MvcResult result = mockMvc.perform(requestBuilder).andExpect(request().asyncStarted()).andReturn();
+			assertEquals(completed, handlerCount(method));
+
+			mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+			assertEquals(completed + 1, handlerCount(method));
+		}
+
+		@Test
+		void shouldReturnBadRequestForInvalidContentTypeWithoutStartingAsync() throws Exception {
+			RequestBuilder requestBuilder = MockMvcRequestBuilders.post(URL_ASYNC_CONTENT_TYPE_VALUE)
+					.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE).content("{}");
+
+			mockMvc.perform(requestBuilder).andExpect(request().asyncNotStarted())
+					.andExpect(status().isBadRequest())
+					.andExpect(content().string("El Content-Type esperado es application/custom-type"));
+		}
+
+		@Test
+		void shouldHoldBulkheadPermitUntilAsyncCompletion() throws Exception {
+			Method method = Controller.class.getMethod("asyncContentTypeValue", String.class);
+			RequestBuilder requestBuilder = MockMvcRequestBuilders.post(URL_ASYNC_CONTENT_TYPE_VALUE)
+					.header(HttpHeaders.CONTENT_TYPE, EXPECTED_CONTENT_TYPE).content("{}");
+
+			MvcResult result = mockMvc.perform(requestBuilder).andExpect(request().asyncStarted()).andReturn();
+			assertEquals(1, bulkheadRegistry.getBulkheads().get(method).getInFlight());
+
+			mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+			assertEquals(0, bulkheadRegistry.getBulkheads().get(method).getInFlight());
+		}
+
+		private long handlerCount(Method method) {
+			EndpointLatencyRecorder.EndpointLatency latency = latencyRecorder.getLatencies().get(method);
+			return latency != null ? latency.getHandler().getCount() : 0;
+		}
+
+		private long validations(String handlerName) throws NoSuchMethodException {
+			Method method = Controller.class.getMethod(handlerName, String.class);
+			EndpointLatencyRecorder.EndpointLatency latency = latencyRecorder.getLatencies().get(method);
+			LatencyHistogram preHandle = latency != null ? latency.getPreHandle() : null;
+			return preHandle != null ? preHandle.getCount() : 0;
+		}
+
+	}
+
+	@Nested
+	class Idempotency {
+
+		@Test
+		void shouldReplayCompletedResponseForRepeatedKey() throws Exception {
+			RequestBuilder requestBuilder = MockMvcRequestBuilders.post(URL_CONTENT_TYPE_VALUE)
+					.header(HttpHeaders.CONTENT_TYPE, EXPECTED_CONTENT_TYPE)
+					.header(IdempotencyRegistry.IDEMPOTENCY_KEY_HEADER, "reintento-1").content("{}");
+
+			mockMvc.perform(requestBuilder).andExpect(status().isOk())
+					.andExpect(header().doesNotExist("Idempotent-Replayed"));
+			mockMvc.perform(requestBuilder).andExpect(status().isOk())
+					.andExpect(header().string("Idempotent-Replayed", "true"))
+					.andExpect(content().string("Datos procesados correctamente"));
+		}
+
+		@Test
+		void shouldValidateContentTypeBeforeReplaying() throws Exception {
+			mockMvc.perform(MockMvcRequestBuilders.post(URL_CONTENT_TYPE_VALUE)
+					.header(HttpHeaders.CONTENT_TYPE, EXPECTED_CONTENT_TYPE)
+					.header(IdempotencyRegistry.IDEMPOTENCY_KEY_HEADER, "reintento-2").content("{}"))
+					.andExpect(status().isOk());
+
+			mockMvc.perform(MockMvcRequestBuilders.post(URL_CONTENT_TYPE_VALUE)
+					.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+					.header(IdempotencyRegistry.IDEMPOTENCY_KEY_HEADER, "reintento-2").content("{}"))
+					.andExpect(status().isBadRequest());
+		}
+
+		@Test
+		void shouldNotCacheRejectedRequests() throws Exception {
+			mockMvc.perform(MockMvcRequestBuilders.post(URL_CONTENT_TYPE_VALUE)
+					.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+					.header(IdempotencyRegistry.IDEMPOTENCY_KEY_HEADER, "reintento-3").content("{}"))
+					.andExpect(status().isBadRequest());
+
+			mockMvc.perform(MockMvcRequestBuilders.post(URL_CONTENT_TYPE_VALUE)
+					.header(HttpHeaders.CONTENT_TYPE, EXPECTED_CONTENT_TYPE)
+					.header(IdempotencyRegistry.IDEMPOTENCY_KEY_HEADER, "reintento-3").content("{}"))
+					.andExpect(status().isOk())
+					.andExpect(header().doesNotExist("Idempotent-Replayed"));
+		}
+
+	}
+
+	@Nested
+	class Batch {
+
+		@Test
+		void shouldReturnStatusPerRecord() throws Exception {
+			RequestBuilder requestBuilder = MockMvcRequestBuilders.post("/api/batch")
+					.header(HttpHeaders.CONTENT_TYPE, "application/x-ndjson")
+					.content("{\"dato\":\"uno\"}\nno-es-json\n{\"dato\":\"dos\"}\n");
+
+			mockMvc.perform(requestBuilder).andExpect(status().isOk())
+					.andExpect(content().json("{\"accepted\":2,\"rejected\":1,\"status\":\"AIA\"}"));
+		}
+
+		@Test
+		void shouldInflateGzipBody() throws Exception {
+			RequestBuilder requestBuilder = MockMvcRequestBuilders.post("/api/batch")
+					.header(HttpHeaders.CONTENT_TYPE, "application/x-ndjson")
+					.header(HttpHeaders.CONTENT_ENCODING, "gzip")
+					.content(gzip("{\"dato\":\"uno\"}\n{\"dato\":\"dos\"}\n".getBytes(StandardCharsets.UTF_8)));
+
+			mockMvc.perform(requestBuilder).andExpect(status().isOk())
+					.andExpect(content().json("{\"accepted\":2,\"rejected\":0,\"status\":\"AA\"}"));
+		}
+
+		@Test
+		void shouldReturnBadRequestForEncodingNotAllowed() throws Exception {
+			RequestBuilder requestBuilder = MockMvcRequestBuilders.post("/api/batch")
+					.header(HttpHeaders.CONTENT_TYPE, "application/x-ndjson")
+					.header(HttpHeaders.CONTENT_ENCODING, "br").content("{}");
+
+			mockMvc.perform(requestBuilder).andExpect(status().isBadRequest())
+					.andExpect(content().string("El Content-Encoding no está permitido"));
+		}
+
+		@Test
+		void shouldAbortZipBomb() throws Exception {
+			RequestBuilder requestBuilder = MockMvcRequestBuilders.post("/api/batch")
+					.header(HttpHeaders.CONTENT_TYPE, "application/x-ndjson")
+					.header(HttpHeaders.CONTENT_ENCODING, "gzip")
+					.content(gzip(new byte[32 * 1024 * 1024]));
+
+			mockMvc.perform(requestBuilder).andExpect(status().isPayloadTooLarge());
+		}
+
+		private static byte[] gzip(byte[] body) throws IOException {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+				gzip.write(body);
+			}
+			return out.toByteArray();
+		}
+
+		@Test
+		void shouldReturnBadRequestForNonNdjsonContentType() throws Exception {
+			RequestBuilder requestBuilder = MockMvcRequestBuilders.post("/api/batch")
+					.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE).content("{}");
+
+			mockMvc.perform(requestBuilder).andExpect(status().isBadRequest())
+					.andExpect(content().string("El Content-Type esperado es application/x-ndjson"));
+		}
+
+	}
+
+	@Nested
+	class Upload {
+
+		private static final String MULTIPART = "multipart/form-data; boundary=limite";
+
+		@Test
+		void shouldStreamAllowedParts() throws Exception {
+			RequestBuilder requestBuilder = MockMvcRequestBuilders.post("/api/upload")
+					.header(HttpHeaders.CONTENT_TYPE, MULTIPART)
+					.content(part("uno.png", "image/png", "PNG-1") + part("dos.png", "image/png", "PNG-22")
+							+ "--limite--\r\n");
+
+			mockMvc.perform(requestBuilder).andExpect(status().isOk())
+					.andExpect(content().json("{\"parts\":2,\"bytes\":11}"));
+		}
+
+		@Test
+		void shouldReturnBadRequestForPartNotAllowed() throws Exception {
+			RequestBuilder requestBuilder = MockMvcRequestBuilders.post("/api/upload")
+					.header(HttpHeaders.CONTENT_TYPE, MULTIPART)
+					.content(part("uno.png", "image/png", "PNG-1") + part("script.sh", "text/x-sh", "rm -rf /")
+							+ "--limite--\r\n");
+
+			mockMvc.perform(requestBuilder).andExpect(status().isBadRequest())
+					.andExpect(content().string("El Content-Type de una parte no está permitido"));
+		}
+
+		@Test
+		void shouldReturnBadRequestForMissingBoundary() throws Exception {
+			RequestBuilder requestBuilder = MockMvcRequestBuilders.post("/api/upload")
+					.header(HttpHeaders.CONTENT_TYPE, MediaType.MULTIPART_FORM_DATA_VALUE).content("");
+
+			mockMvc.perform(requestBuilder).andExpect(status().isBadRequest())
+					.andExpect(content().string("El cuerpo multipart está mal formado"));
+		}
+
+		@Test
+		void shouldReturnBadRequestForNonMultipartContentType() throws Exception {
+			RequestBuilder requestBuilder = MockMvcRequestBuilders.post("/api/upload")
+					.header(HttpHeaders.CONTENT_TYPE, "image/png").content("PNG");
+
+			mockMvc.perform(requestBuilder).andExpect(status().isBadRequest())
+					.andExpect(content().string("El Content-Type esperado es multipart/form-data"));
+		}
+
+		private static String part(String filename, String contentType, String content) {
+			return "--limite\r\nContent-Disposition: form-data; name=\"imagen\"; filename=\"" + filename
+					+ "\"\r\nContent-Type: " + contentType + "\r\n\r\n" + content + "\r\n";
+		}
+
+	}
+
+	@Nested
+	class ProducedContentType {
+
+		@Test
+		void shouldPresetDeclaredContentTypeWithoutNegotiating() throws Exception {
+			RequestBuilder requestBuilder = MockMvcRequestBuilders.post(URL_CONTENT_TYPE_VALUE)
+					.header(HttpHeaders.CONTENT_TYPE, EXPECTED_CONTENT_TYPE)
+					.header(HttpHeaders.ACCEPT, MediaType.APPLICATION_XML_VALUE).content("{}");
+
+			mockMvc.perform(requestBuilder).andExpect(status().isOk())
+					.andExpect(header().string(HttpHeaders.CONTENT_TYPE, "text/plain;charset=UTF-8"));
+		}
+
+		@Test
+		void shouldPresetDeclaredContentTypeOnAsyncEndpoints() throws Exception {
+			MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post(URL_ASYNC_CONTENT_TYPE_VALUE)
+					.header(HttpHeaders.CONTENT_TYPE, EXPECTED_CONTENT_TYPE).content("{}"))
+					.andExpect(request().asyncStarted()).andReturn();
+
+			mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk())
+					.andExpect(header().string(HttpHeaders.CONTENT_TYPE, "text/plain;charset=UTF-8"));
+		}
+
+		@Test
+		void shouldPresetJsonForBatch() throws Exception {
+			RequestBuilder requestBuilder = MockMvcRequestBuilders.post("/api/batch")
+					.header(HttpHeaders.CONTENT_TYPE, "application/x-ndjson").content("{}\n");
+
+			mockMvc.perform(requestBuilder).andExpect(status().isOk())
+					.andExpect(content().contentType(MediaType.APPLICATION_JSON));
+		}
+
+		@Test
+		void shouldNotKeepPresetContentTypeOnErrors() throws Exception {
+			RequestBuilder requestBuilder = MockMvcRequestBuilders.post("/api/upload")
+					.header(HttpHeaders.CONTENT_TYPE, "multipart/form-data; boundary=limite")
+					.content("sin partes");
+
+			mockMvc.perform(requestBuilder).andExpect(status().isBadRequest())
+					.andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_PLAIN));
+		}
+
+	}
+
+	@Nested
+	class TenantRules {
+
+		private static final String URL_TENANTS_ENDPOINT = "/actuator/contenttypetenants";
+
+		private static final String ACME_RULE = "content-type.tenants.acme[Controller#contentTypeValue]=application/acme+json\n";
+
+		@TempDir
+		private Path directory;
+
+		private Path file;
+
+		@BeforeEach
+		void declareTenantsFile() {
+			file = directory.resolve("tenants.properties");
+			environment.getPropertySources().addFirst(new MapPropertySource("tenantRules",
+					Map.of("content-type.tenants-file", file.toString())));
+		}
+
+		@AfterEach
+		void removeTenantsFile() {
+			environment.getPropertySources().remove("tenantRules");
+			ruleRegistry.reloadTenantRules();
+		}
+
+		@Test
+		void shouldApplyTenantRulesReloadedThroughTheEndpoint() throws Exception {
+			Files.writeString(file, ACME_RULE);
+
+			mockMvc.perform(MockMvcRequestBuilders.post(URL_TENANTS_ENDPOINT)).andExpect(status().isNoContent());
+
+			mockMvc.perform(MockMvcRequestBuilders.post(URL_CONTENT_TYPE_VALUE)
+					.header(ContentTypeRuleRegistry.TENANT_HEADER, "acme")
+					.header(HttpHeaders.CONTENT_TYPE, "application/acme+json").content("{}"))
+					.andExpect(status().isOk());
+			mockMvc.perform(MockMvcRequestBuilders.post(URL_CONTENT_TYPE_VALUE)
+					.header(HttpHeaders.CONTENT_TYPE, "application/acme+json").content("{}"))
+					.andExpect(status().isBadRequest());
+		}
+
+		@Test
+		void shouldKeepTenantRulesWhenTheReloadIsInvalid() throws Exception {
+			Files.writeString(file, ACME_RULE);
+			mockMvc.perform(MockMvcRequestBuilders.post(URL_TENANTS_ENDPOINT)).andExpect(status().isNoContent());
+			Files.writeString(file, ACME_RULE + "content-type.tenants.acme[Controller#unknown]=application/json\n");
+
+			mockMvc.perform(MockMvcRequestBuilders.post(URL_TENANTS_ENDPOINT)).andExpect(status().isBadRequest());
+			Files.delete(file);
+			mockMvc.perform(MockMvcRequestBuilders.post(URL_TENANTS_ENDPOINT)).andExpect(status().isBadRequest());
+
+			mockMvc.perform(MockMvcRequestBuilders.post(URL_CONTENT_TYPE_VALUE)
+					.header(ContentTypeRuleRegistry.TENANT_HEADER, "acme")
+					.header(HttpHeaders.CONTENT_TYPE, "application/acme+json").content("{}"))
+					.andExpect(status().isOk());
+		}
+
+	}
+
+	@Nested
+	class FunctionalContentType {
+
+		@Test
+		void shouldReturnOkForContentTypeValue() throws Exception {
+			RequestBuilder requestBuilder = MockMvcRequestBuilders.post(URL_FUNCTIONAL_CONTENT_TYPE_VALUE)
+					.header(HttpHeaders.CONTENT_TYPE, EXPECTED_CONTENT_TYPE).content("{}");
+
+			mockMvc.perform(requestBuilder).andExpect(status().isOk())
+					.andExpect(content().string("Datos procesados correctamente"));
+		}
+
+		@Test
+		void shouldReturnBadRequestForInvalidContentTypeValue() throws Exception {
+			RequestBuilder requestBuilder = MockMvcRequestBuilders.post(URL_FUNCTIONAL_CONTENT_TYPE_VALUE)
+					.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE).content("{}");
+
+			mockMvc.perform(requestBuilder).andExpect(status().isBadRequest())
+					.andExpect(content().string("El Content-Type esperado es application/custom-type"));
+		}
+
+		@Test
+		void shouldReturnBadRequestForNullContentTypeValue() throws Exception {
+			RequestBuilder requestBuilder = MockMvcRequestBuilders.post(URL_FUNCTIONAL_CONTENT_TYPE_VALUE).content("{}");
+
+			mockMvc.perform(requestBuilder).andExpect(status().isBadRequest())
+					.andExpect(content().string("El Content-Type es obligatorio"));
+		}
+
+	}
+
+}